@@ -0,0 +1,99 @@
+package ru.tveu.shiftcrm.core.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.entity.Transaction;
+import ru.tveu.shiftcrm.core.repository.projection.SellerView;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionView;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость отображения одной строки в DTO и отдельно LocalDateTime.toString, который есть в каждом из них.
+ * Дата с микросекундами, как приходит из timestamp postgres: toString печатает дробную часть.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmark {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 15, 10, 30, 45, 123_456_000);
+
+    private TransactionMapper transactionMapper;
+    private SellerMapper sellerMapper;
+
+    private Transaction transaction;
+    private TransactionView transactionView;
+    private TransactionCreateRequest createRequest;
+    private Seller seller;
+    private SellerView sellerView;
+    private LocalDateTime date;
+
+    @Setup
+    public void setUp() {
+        //репозиторий нужен только map(TransactionCreateRequest) без продавца
+        transactionMapper = new TransactionMapper(null);
+        sellerMapper = new SellerMapper();
+
+        seller = Seller.builder()
+                .id(1L)
+                .name("Benchmark Seller")
+                .contactInfo("benchmark@example.com")
+                .registrationDate(DATE)
+                .version(3L)
+                .build();
+        sellerView = new SellerView(1L, "Benchmark Seller", "benchmark@example.com", DATE, 3L);
+        transaction = Transaction.builder()
+                .id(1L)
+                .seller(seller)
+                .amount(1234.56)
+                .paymentType(PaymentType.CARD)
+                .transactionDate(DATE)
+                .build();
+        transactionView = new TransactionView(1L, 1L, 1234.56, PaymentType.CARD, DATE);
+        createRequest = new TransactionCreateRequest(1L, 1234.56, PaymentType.CARD.name());
+        date = DATE;
+    }
+
+    @Benchmark
+    public TransactionDTO transactionEntityToDto() {
+        return transactionMapper.map(transaction);
+    }
+
+    @Benchmark
+    public TransactionDTO transactionViewToDto() {
+        return transactionMapper.map(transactionView);
+    }
+
+    @Benchmark
+    public Transaction transactionCreateRequestToEntity() {
+        return transactionMapper.map(createRequest, seller);
+    }
+
+    @Benchmark
+    public SellerDTO sellerEntityToDto() {
+        return sellerMapper.map(seller);
+    }
+
+    @Benchmark
+    public SellerDTO sellerViewToDto() {
+        return sellerMapper.map(sellerView);
+    }
+
+    //поле, а не константа: иначе JIT может свернуть вызов
+    @Benchmark
+    public String localDateTimeToString() {
+        return date.toString();
+    }
+}
@@ -0,0 +1,161 @@
+package ru.tveu.shiftcrm.core.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.tveu.shiftcrm.core.cache.SellerTimeline;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.entity.Transaction;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Самое плотное окно продавца по ленте из size транзакций: исходный проход по List&lt;Transaction&gt;
+ * с Duration.between против примитивных вариантов (микросекунды из сущностей, long[] и сжатая SellerTimeline,
+ * по которой считает TimelineBestPeriodEngine). Загрузка ленты из БД не входит, только сам проход.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BestPeriodBenchmark {
+
+    private static final long DURATION_IN_DAYS = 7;
+    private static final long[] DURATIONS_MICROS = {TimeUnit.DAYS.toMicros(1), TimeUnit.DAYS.toMicros(7), TimeUnit.DAYS.toMicros(30)};
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    //средний интервал минута, с точностью до микросекунд как в timestamp postgres
+    private static final long MAX_GAP_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    private List<Transaction> transactions;
+    private long[] micros;
+    private SellerTimeline timeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        Seller seller = Seller.builder().id(1L).build();
+        transactions = new ArrayList<>(size);
+        micros = new long[size];
+        SellerTimeline.Builder builder = SellerTimeline.builder();
+
+        LocalDateTime transactionDate = START;
+        for (int i = 0; i < size; i++) {
+            transactionDate = transactionDate.plusNanos(random.nextLong(MAX_GAP_MICROS) * 1_000);
+            double amount = random.nextInt(1, 100_000) / 100.0;
+            transactions.add(Transaction.builder()
+                    .id((long) i)
+                    .seller(seller)
+                    .amount(amount)
+                    .paymentType(PaymentType.CARD)
+                    .transactionDate(transactionDate)
+                    .build());
+            micros[i] = SellerTimeline.toMicros(transactionDate);
+            builder.add(transactionDate, amount);
+        }
+        timeline = builder.build();
+    }
+
+    //алгоритм SlidingWindowAnalysisService до кэша лент: Duration на каждый сдвиг курсора
+    @Benchmark
+    public LocalDateTime transactionListDurationBetween() {
+        var duration = Duration.ofDays(DURATION_IN_DAYS);
+
+        LocalDateTime bestStart = null;
+        int maxTransactions = 0;
+
+        int start = 0;
+        for (int end = 0; end < transactions.size(); end++) {
+            LocalDateTime endTime = transactions.get(end).getTransactionDate();
+
+            while (start < end && Duration.between(transactions.get(start).getTransactionDate(), endTime).compareTo(duration) > 0) {
+                start++;
+            }
+
+            int currentTransactionCount = end - start + 1;
+            if (currentTransactionCount > maxTransactions) {
+                maxTransactions = currentTransactionCount;
+                bestStart = transactions.get(start).getTransactionDate();
+            }
+        }
+        return bestStart;
+    }
+
+    //те же сущности, но сравнение микросекунд эпохи вместо Duration
+    @Benchmark
+    public long transactionListEpochMicros() {
+        long windowMicros = TimeUnit.DAYS.toMicros(DURATION_IN_DAYS);
+
+        long bestStart = Long.MIN_VALUE;
+        int maxTransactions = 0;
+
+        int start = 0;
+        long startMicros = SellerTimeline.toMicros(transactions.get(0).getTransactionDate());
+        for (int end = 0; end < transactions.size(); end++) {
+            long endMicros = SellerTimeline.toMicros(transactions.get(end).getTransactionDate());
+
+            while (start < end && endMicros - startMicros > windowMicros) {
+                start++;
+                startMicros = SellerTimeline.toMicros(transactions.get(start).getTransactionDate());
+            }
+
+            int currentTransactionCount = end - start + 1;
+            if (currentTransactionCount > maxTransactions) {
+                maxTransactions = currentTransactionCount;
+                bestStart = startMicros;
+            }
+        }
+        return bestStart;
+    }
+
+    @Benchmark
+    public long longArray() {
+        long windowMicros = TimeUnit.DAYS.toMicros(DURATION_IN_DAYS);
+
+        long bestStart = Long.MIN_VALUE;
+        int maxTransactions = 0;
+
+        int start = 0;
+        for (int end = 0; end < micros.length; end++) {
+            while (start < end && micros[end] - micros[start] > windowMicros) {
+                start++;
+            }
+
+            int currentTransactionCount = end - start + 1;
+            if (currentTransactionCount > maxTransactions) {
+                maxTransactions = currentTransactionCount;
+                bestStart = micros[start];
+            }
+        }
+        return bestStart;
+    }
+
+    @Benchmark
+    public SellerTimeline.Window sellerTimeline() {
+        return timeline.densestWindow(TimeUnit.DAYS.toMicros(DURATION_IN_DAYS));
+    }
+
+    //три длины окна за один проход, как /seller/best-periods
+    @Benchmark
+    public SellerTimeline.Window[] sellerTimelineThreeDurations() {
+        return timeline.bestWindows(DURATIONS_MICROS, false);
+    }
+
+    @Benchmark
+    public SellerTimeline.Window[] sellerTimelineByAmount() {
+        return timeline.bestWindows(DURATIONS_MICROS, true);
+    }
+}
@@ -0,0 +1,239 @@
+package ru.tveu.shiftcrm.api.controller;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.tveu.shiftcrm.ShiftCrmApplication;
+import ru.tveu.shiftcrm.api.Path;
+import ru.tveu.shiftcrm.load.LoadTestDatabase;
+import ru.tveu.shiftcrm.load.LoadTestSettings;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Один и тот же узел под нагрузкой 2000 одновременных клиентов (чтение продавца и ленты транзакций):
+ * с пулом платформенных потоков Tomcat и в профиле virtual. Пропускная способность и задержки пишутся в лог и в
+ * {@code <report-dir>/<время запуска>/virtual-threads.txt}, а в виртуальном режиме JFR не должен видеть долгих
+ * закреплений носителя в коде приложения. Оба узла работают с одной базой в Testcontainers.
+ */
+@Slf4j
+class VirtualThreadLoadComparisonTest {
+
+    private static final LoadTestSettings SETTINGS = LoadTestSettings.fromSystemProperties();
+
+    private static final int CLIENTS = 2000;
+    private static final int REQUESTS_PER_CLIENT = 5;
+    private static final int WARMUP_CLIENTS = 200;
+    private static final int SELLERS = 100;
+    private static final int TRANSACTIONS_PER_SELLER = 50;
+
+    //порог jdk.VirtualThreadPinned по умолчанию: короче - не блокирующий ввод-вывод под монитором
+    private static final Duration PINNED_THRESHOLD = Duration.ofMillis(20);
+    private static final String APPLICATION_PACKAGE = "ru.tveu.shiftcrm.";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    private ConfigurableApplicationContext platformNode;
+    private ConfigurableApplicationContext virtualNode;
+    private JdbcTemplate jdbcTemplate;
+    private List<Long> sellerIds;
+
+    @BeforeEach
+    void setUp() {
+        platformNode = startNode();
+        virtualNode = startNode("virtual");
+        jdbcTemplate = platformNode.getBean(JdbcTemplate.class);
+
+        jdbcTemplate.update("INSERT INTO seller (name, contact_info, registration_date) " +
+                "SELECT 'Load Seller ' || g, 'load@example.com', now() FROM generate_series(1, ?) g", SELLERS);
+        sellerIds = jdbcTemplate.queryForList("SELECT id FROM seller WHERE name LIKE 'Load Seller %' ORDER BY id", Long.class);
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                        "SELECT nextval('transaction_id_seq'), s.id, 10.0, 'CARD', now() - g * INTERVAL '1 minute' " +
+                        "FROM seller s CROSS JOIN generate_series(1, ?) g WHERE s.name LIKE 'Load Seller %'",
+                TRANSACTIONS_PER_SELLER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            jdbcTemplate.update("DELETE FROM transaction WHERE seller_id IN (SELECT id FROM seller WHERE name LIKE 'Load Seller %')");
+            jdbcTemplate.update("DELETE FROM seller WHERE name LIKE 'Load Seller %'");
+        } finally {
+            platformNode.close();
+            virtualNode.close();
+        }
+    }
+
+    //схема из миграций Flyway общая для обоих узлов; accept-count с запасом, чтобы 2000 подключений не ждали в SYN-очереди
+    private ConfigurableApplicationContext startNode(String... profiles) {
+        List<String> properties = new ArrayList<>(List.of("server.port=0",
+                "server.tomcat.accept-count=" + CLIENTS,
+                "logging.level.ru.tveu.shiftcrm=warn"));
+        properties.addAll(List.of(LoadTestDatabase.properties()));
+        return new SpringApplicationBuilder(ShiftCrmApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .profiles(profiles)
+                .properties(properties.toArray(String[]::new))
+                .run();
+    }
+
+    @Test
+    void virtualThreadsAgainstPlatformThreads() throws Exception {
+        assertEquals(Boolean.TRUE, virtualNode.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class));
+
+        LoadResult platform = runLoad(platformNode);
+
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        LoadResult virtual;
+        try (RecordingStream pinning = new RecordingStream()) {
+            pinning.enable("jdk.VirtualThreadPinned").withThreshold(PINNED_THRESHOLD).withStackTrace();
+            //события копятся в список до конца прогона, поэтому объекты не переиспользуются
+            pinning.setReuse(false);
+            pinning.onEvent("jdk.VirtualThreadPinned", event -> {
+                if (inApplicationCode(event)) {
+                    pinned.add(event);
+                }
+            });
+            pinning.startAsync();
+            virtual = runLoad(virtualNode);
+            pinning.stop();
+        }
+
+        log.info("{} clients x {} requests: platform {}; virtual {}, report {}", CLIENTS, REQUESTS_PER_CLIENT,
+                platform, virtual, report(platform, virtual));
+        pinned.forEach(event -> log.warn("Pinned carrier for {} ms:\n{}",
+                event.getDuration().toMillis(), event.getStackTrace().getFrames()));
+
+        assertEquals(0, platform.errors());
+        assertEquals(0, virtual.errors());
+        assertTrue(pinned.isEmpty(), pinned.size() + " carrier pinning events in application code");
+    }
+
+    private static java.nio.file.Path report(LoadResult platform, LoadResult virtual) throws IOException {
+        java.nio.file.Path reportDir = SETTINGS.reportDir()
+                .resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(reportDir);
+        java.nio.file.Path report = reportDir.resolve("virtual-threads.txt");
+        Files.write(report, Stream.of(
+                "clients=%d requests-per-client=%d sellers=%d".formatted(CLIENTS, REQUESTS_PER_CLIENT, SELLERS),
+                "",
+                "%-10s %10s %10s %10s %10s %8s".formatted("threads", "req/s", "p50 ms", "p99 ms", "max ms", "errors"),
+                row("platform", platform),
+                row("virtual", virtual)).toList());
+        return report;
+    }
+
+    private static String row(String name, LoadResult result) {
+        return "%-10s %10d %10d %10d %10d %8d".formatted(name, result.requestsPerSecond(), result.p50Millis(),
+                result.p99Millis(), result.maxMillis(), result.errors());
+    }
+
+    private LoadResult runLoad(ConfigurableApplicationContext node) throws InterruptedException {
+        String baseUrl = "http://localhost:" + node.getEnvironment().getProperty("local.server.port");
+        load(baseUrl, WARMUP_CLIENTS, new long[WARMUP_CLIENTS * REQUESTS_PER_CLIENT]);
+
+        long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        long startedAt = System.nanoTime();
+        int errors = load(baseUrl, CLIENTS, latencies);
+        long elapsed = System.nanoTime() - startedAt;
+
+        Arrays.sort(latencies);
+        return new LoadResult(
+                latencies.length * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                TimeUnit.NANOSECONDS.toMillis(latencies[latencies.length / 2]),
+                TimeUnit.NANOSECONDS.toMillis(latencies[latencies.length * 99 / 100]),
+                TimeUnit.NANOSECONDS.toMillis(latencies[latencies.length - 1]),
+                errors);
+    }
+
+    //каждый клиент - отдельный виртуальный поток со своими запросами по очереди, старт по общей защелке
+    private int load(String baseUrl, int clients, long[] latencies) throws InterruptedException {
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                executor.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        int request = client * REQUESTS_PER_CLIENT + r;
+                        long requestStartedAt = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(
+                                    HttpRequest.newBuilder(uri(baseUrl, request)).GET().build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[request] = System.nanoTime() - requestStartedAt;
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+        return errors.get();
+    }
+
+    private URI uri(String baseUrl, int request) {
+        Long sellerId = sellerIds.get(request % sellerIds.size());
+        if (request % 2 == 0) {
+            return UriComponentsBuilder.fromHttpUrl(baseUrl).path(Path.SELLER_GET).buildAndExpand(sellerId).toUri();
+        }
+        return UriComponentsBuilder.fromHttpUrl(baseUrl).path(Path.TRANSACTION_GET_BY_SELLER_SEEK)
+                .queryParam("sellerId", sellerId)
+                .queryParam("size", 20)
+                .build().toUri();
+    }
+
+    //клиенты теста тоже виртуальные потоки: учитываем только закрепления с кадрами приложения
+    private static boolean inApplicationCode(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(APPLICATION_PACKAGE) && !type.startsWith(VirtualThreadLoadComparisonTest.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record LoadResult(long requestsPerSecond, long p50Millis, long p99Millis, long maxMillis, int errors) {
+    }
+}
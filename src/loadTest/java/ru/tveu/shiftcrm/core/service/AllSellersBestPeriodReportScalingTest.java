@@ -0,0 +1,91 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.tveu.shiftcrm.load.LoadTestDatabase;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер отчета по всем продавцам на пулах разной ширины; результат на каждом пуле должен совпадать.
+ * Входит в loadTest, а не в test - время на общем CI нестабильно. Совпадение с движком по продавцу
+ * проверяет AllSellersBestPeriodReportTest.
+ */
+@Slf4j
+@SpringBootTest
+class AllSellersBestPeriodReportScalingTest {
+
+    private static final String SELLER_NAME_PREFIX = "Scaling Seller ";
+    private static final int SELLERS = 200;
+    private static final int TRANSACTIONS_PER_SELLER = 2_000;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        LoadTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private AllSellersBestPeriodReport report;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO seller (name, contact_info, registration_date) " +
+                "SELECT ? || g, 'scaling@example.com', now() FROM generate_series(1, ?) g", SELLER_NAME_PREFIX, SELLERS);
+        //у каждого продавца свой шаг между транзакциями и случайный разброс, чтобы окна отличались
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                        "SELECT nextval('transaction_id_seq'), s.id, 10, 'CARD', " +
+                        "       TIMESTAMP '2023-01-01' + g * (s.id % 7 + 1) * INTERVAL '1 hour' + random() * INTERVAL '1 day' " +
+                        "FROM seller s CROSS JOIN generate_series(1, ?) g " +
+                        "WHERE s.name LIKE ? || '%'",
+                TRANSACTIONS_PER_SELLER, SELLER_NAME_PREFIX);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id IN (SELECT id FROM seller WHERE name LIKE ? || '%')", SELLER_NAME_PREFIX);
+        jdbcTemplate.update("DELETE FROM seller WHERE name LIKE ? || '%'", SELLER_NAME_PREFIX);
+    }
+
+    @Test
+    void reportScalesWithParallelism() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Map<Long, BestPeriod> expected = null;
+
+        for (int parallelism : new TreeSet<>(List.of(1, 2, 4, cores))) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                //прогрев, затем замер
+                report.run(30, pool);
+                long startedAt = System.nanoTime();
+                Map<Long, BestPeriod> periods = report.run(30, pool);
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+                log.info("All-sellers report: parallelism {}, {} sellers, {} rows, {} ms",
+                        parallelism, periods.size(), SELLERS * TRANSACTIONS_PER_SELLER, elapsedMillis);
+
+                if (expected == null) {
+                    expected = periods;
+                }
+                assertThat(periods).isEqualTo(expected);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.tveu.shiftcrm.core.service;
+
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.load.LoadTestDatabase;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнивает время страницы с точным COUNT(*), без подсчета и с оценкой планировщика. Входит в loadTest, а не в test -
+ * время на общем CI нестабильно; форму страниц в каждом режиме проверяет SellerCountModeTest.
+ */
+@Slf4j
+@SpringBootTest
+@Transactional
+class SellerCountModeBenchmarkTest {
+
+    private static final int SELLERS = 20_000;
+    private static final int TRANSACTIONS = 200_000;
+    private static final int ROUNDS = 20;
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 6, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2023, 3, 1, 18, 0);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        LoadTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private SellerService sellerService;
+
+    @Autowired
+    private SlidingWindowAnalysisService analysisService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO seller (name, contact_info, registration_date) " +
+                "SELECT 'Count Seller ' || g, 'count@example.com', now() FROM generate_series(1, ?) g", SELLERS);
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                        "SELECT nextval('transaction_id_seq'), " +
+                        "       (ARRAY(SELECT id FROM seller WHERE name LIKE 'Count Seller %' ORDER BY id))[1 + g % ?], " +
+                        "       round(CAST(random() * 100 AS numeric), 2), 'CARD', " +
+                        "       TIMESTAMP '2023-01-01' + g * INTERVAL '30 seconds' " +
+                        "FROM generate_series(1, ?) g",
+                SELLERS, TRANSACTIONS);
+        jdbcTemplate.execute("ANALYZE seller");
+        jdbcTemplate.execute("ANALYZE transaction");
+        jdbcTemplate.execute("ANALYZE seller_daily_stats");
+    }
+
+    @Test
+    void sellerListingCountModes() {
+        Pageable pageable = PageRequest.of(50, 20);
+        long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM seller", Long.class);
+
+        Page<SellerDTO> exact = (Page<SellerDTO>) sellerService.getAll(pageable, CountMode.EXACT);
+        Slice<SellerDTO> none = sellerService.getAll(pageable, CountMode.NONE);
+        Page<SellerDTO> estimated = (Page<SellerDTO>) sellerService.getAll(pageable, CountMode.ESTIMATE);
+
+        assertThat(exact.getTotalElements()).isEqualTo(total);
+        assertThat(none).isNotInstanceOf(Page.class);
+        assertThat(none.hasNext()).isTrue();
+        assertThat(estimated.getTotalElements()).isBetween(total / 2, total * 2);
+
+        log.info("Seller list, page {}: exact {} us, none {} us, estimate {} us",
+                pageable.getPageNumber(),
+                averageMicros(() -> sellerService.getAll(pageable, CountMode.EXACT)),
+                averageMicros(() -> sellerService.getAll(pageable, CountMode.NONE)),
+                averageMicros(() -> sellerService.getAll(pageable, CountMode.ESTIMATE)));
+    }
+
+    @Test
+    void belowThresholdCountModes() {
+        Pageable pageable = PageRequest.of(0, 20);
+        String startDate = START.toString();
+        String endDate = END.toString();
+
+        Page<SellerDTO> exact = (Page<SellerDTO>) analysisService.getSellersWithTransactionsBelowThreshold(
+                startDate, endDate, 500.0, pageable, CountMode.EXACT);
+        Slice<SellerDTO> none = analysisService.getSellersWithTransactionsBelowThreshold(
+                startDate, endDate, 500.0, pageable, CountMode.NONE);
+        Page<SellerDTO> estimated = (Page<SellerDTO>) analysisService.getSellersWithTransactionsBelowThreshold(
+                startDate, endDate, 500.0, pageable, CountMode.ESTIMATE);
+
+        assertThat(none.getContent()).hasSameSizeAs(exact.getContent());
+        assertThat(none.hasNext()).isEqualTo(exact.hasNext());
+        assertThat(estimated.getTotalElements()).isPositive();
+
+        log.info("Below threshold: exact total {}, estimated total {}; exact {} us, none {} us, estimate {} us",
+                exact.getTotalElements(), estimated.getTotalElements(),
+                averageMicros(() -> analysisService.getSellersWithTransactionsBelowThreshold(startDate, endDate, 500.0, pageable, CountMode.EXACT)),
+                averageMicros(() -> analysisService.getSellersWithTransactionsBelowThreshold(startDate, endDate, 500.0, pageable, CountMode.NONE)),
+                averageMicros(() -> analysisService.getSellersWithTransactionsBelowThreshold(startDate, endDate, 500.0, pageable, CountMode.ESTIMATE)));
+    }
+
+    private long averageMicros(Supplier<?> call) {
+        call.get();
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            call.get();
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt) / ROUNDS;
+    }
+}
@@ -0,0 +1,85 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkResultDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+import ru.tveu.shiftcrm.load.LoadTestDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер скорости: пакетная загрузка против тех же строк по одной. Входит в loadTest, а не в test - на общем CI
+ * соотношение времен нестабильно.
+ */
+@Slf4j
+@SpringBootTest
+class TransactionBulkIngestTest {
+
+    private static final int ROWS = 2_000;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        LoadTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Seller seller;
+
+    @BeforeEach
+    void setUp() {
+        seller = sellerRepository.save(Seller.builder()
+                .name("Bulk Seller")
+                .contactInfo("bulk@example.com")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ?", seller.getId());
+        sellerRepository.deleteById(seller.getId());
+    }
+
+    @Test
+    void bulkInsertIsFasterThanSingleRowPath() {
+        List<TransactionCreateRequest> requests = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            requests.add(new TransactionCreateRequest(seller.getId(), i, PaymentType.values()[i % 3].name()));
+        }
+
+        long startedAt = System.nanoTime();
+        requests.forEach(transactionService::create);
+        double singleRowsPerSecond = ROWS * (double) TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - startedAt);
+
+        TransactionBulkResultDTO result = transactionService.createAll(requests.iterator());
+
+        log.info("Single-row path: {} rows/sec, bulk path: {} rows/sec", (long) singleRowsPerSecond, (long) result.rowsPerSecond());
+        assertThat(result.created()).isEqualTo(ROWS);
+        assertThat(result.failed()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE seller_id = ?", Long.class, seller.getId()))
+                .isEqualTo(2L * ROWS);
+        assertThat(result.rowsPerSecond()).isGreaterThan(singleRowsPerSecond);
+    }
+}
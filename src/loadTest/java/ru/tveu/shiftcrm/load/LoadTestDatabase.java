@@ -0,0 +1,38 @@
+package ru.tveu.shiftcrm.load;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Один PostgreSQL в Testcontainers на все замеры loadTest, поднимающие приложение сами: схема создается
+ * миграциями Flyway, как в проде. Контейнер стартует при первом обращении и останавливается вместе с JVM.
+ */
+public final class LoadTestDatabase {
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+            DockerImageName.parse(LoadTestSettings.fromSystemProperties().postgresImage()).asCompatibleSubstituteFor("postgres"));
+
+    static {
+        POSTGRES.start();
+    }
+
+    private LoadTestDatabase() {
+    }
+
+    //для @SpringBootTest через @DynamicPropertySource
+    public static void register(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    //для узлов, которые тест запускает через SpringApplicationBuilder
+    public static String[] properties() {
+        return new String[]{
+                "spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                "spring.datasource.username=" + POSTGRES.getUsername(),
+                "spring.datasource.password=" + POSTGRES.getPassword()
+        };
+    }
+}
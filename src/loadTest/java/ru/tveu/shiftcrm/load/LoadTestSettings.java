@@ -0,0 +1,67 @@
+package ru.tveu.shiftcrm.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры прогона из системных свойств loadtest.*; без них - небольшой прогон на пару минут.
+ *
+ * @param mix веса операций, например post-transaction=30,get-transactions=40,best-period=10
+ */
+record LoadTestSettings(int sellers,
+                        int transactionsPerSeller,
+                        int days,
+                        int clients,
+                        Duration warmup,
+                        Duration duration,
+                        Map<Operation, Integer> mix,
+                        String profiles,
+                        String postgresImage,
+                        Path reportDir) {
+
+    private static final String PREFIX = "loadtest.";
+    private static final String DEFAULT_MIX =
+            "post-transaction=30,get-transactions=40,most-productive=10,below-threshold=10,best-period=10";
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                intProperty("sellers", 1_000),
+                intProperty("transactions-per-seller", 200),
+                intProperty("days", 90),
+                intProperty("clients", 500),
+                Duration.ofSeconds(intProperty("warmup-seconds", 15)),
+                Duration.ofSeconds(intProperty("duration-seconds", 60)),
+                parseMix(property("mix", DEFAULT_MIX)),
+                property("profiles", ""),
+                property("postgres-image", "postgres:16-alpine"),
+                Path.of(property("report-dir", "build/reports/load-test")));
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in " + PREFIX + "mix: " + entry);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.byKey(pair[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException(PREFIX + "mix has no operations with positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(property(name, String.valueOf(defaultValue)));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+}
@@ -0,0 +1,124 @@
+package ru.tveu.shiftcrm.load;
+
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.tveu.shiftcrm.api.Path;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Запросы производственного профиля. Продавцы и периоды выбираются случайно в пределах засеянных данных.
+ */
+enum Operation {
+
+    POST_TRANSACTION("post-transaction") {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            PaymentType[] paymentTypes = PaymentType.values();
+            String body = String.format(Locale.ROOT, "{\"sellerId\":%d,\"amount\":%.2f,\"paymentType\":\"%s\"}",
+                    target.randomSeller(random), random.nextInt(1, 1_000_000) / 100.0,
+                    paymentTypes[random.nextInt(paymentTypes.length)].name());
+            return HttpRequest.newBuilder(target.uri(Path.TRANSACTION_POST).build().toUri())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    },
+
+    GET_TRANSACTIONS("get-transactions") {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            return get(target.uri(Path.TRANSACTION_GET_BY_SELLER)
+                    .queryParam("sellerId", target.randomSeller(random))
+                    .queryParam("page", 0)
+                    .queryParam("size", 20));
+        }
+    },
+
+    MOST_PRODUCTIVE("most-productive") {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            LocalDateTime start = target.randomStart(random);
+            return get(target.uri(Path.SELLER_GET_MOST_PRODUCTIVE)
+                    .queryParam("startDate", start)
+                    .queryParam("endDate", target.randomEnd(start, random)));
+        }
+    },
+
+    BELOW_THRESHOLD("below-threshold") {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            LocalDateTime start = target.randomStart(random);
+            return get(target.uri(Path.SELLER_GET_WITH_TX_BELOW_THRESHOLD)
+                    .queryParam("startDate", start)
+                    .queryParam("endDate", target.randomEnd(start, random))
+                    .queryParam("threshold", 50_000)
+                    .queryParam("page", 0)
+                    .queryParam("size", 20));
+        }
+    },
+
+    BEST_PERIOD("best-period") {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            return get(target.uri(Path.SELLER_GET_BEST_PERIOD)
+                    .queryParam("durationInDays", random.nextInt(1, 31))
+                    .queryParam("sellerId", target.randomSeller(random)));
+        }
+    };
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    abstract HttpRequest request(Target target, ThreadLocalRandom random);
+
+    static Operation byKey(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation: " + key));
+    }
+
+    private static HttpRequest get(UriComponentsBuilder uri) {
+        return HttpRequest.newBuilder(uri.build().toUri()).GET().build();
+    }
+
+    /**
+     * Узел под нагрузкой и засеянные данные: id продавцов и период транзакций.
+     */
+    record Target(String baseUrl, long[] sellerIds, LocalDateTime from, LocalDateTime to) {
+
+        private static final int MAX_RANGE_DAYS = 30;
+
+        UriComponentsBuilder uri(String path) {
+            return UriComponentsBuilder.fromHttpUrl(baseUrl).path(path);
+        }
+
+        long randomSeller(ThreadLocalRandom random) {
+            return sellerIds[random.nextInt(sellerIds.length)];
+        }
+
+        LocalDateTime randomStart(ThreadLocalRandom random) {
+            long seconds = from.until(to, ChronoUnit.SECONDS);
+            return from.plusSeconds(random.nextLong(seconds)).truncatedTo(ChronoUnit.SECONDS);
+        }
+
+        LocalDateTime randomEnd(LocalDateTime start, ThreadLocalRandom random) {
+            LocalDateTime end = start.plusDays(random.nextInt(1, MAX_RANGE_DAYS + 1));
+            return end.isAfter(to) ? to : end;
+        }
+    }
+}
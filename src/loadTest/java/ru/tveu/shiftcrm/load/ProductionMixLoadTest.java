@@ -0,0 +1,226 @@
+package ru.tveu.shiftcrm.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import ru.tveu.shiftcrm.ShiftCrmApplication;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Производственная смесь запросов на узле с PostgreSQL в Testcontainers. Схема создается миграциями Flyway,
+ * данные засеваются SQL до заданного масштаба. Клиенты - виртуальные потоки, каждый шлет запросы по очереди
+ * (закрытая модель), операция выбирается по весам. Задержки пишутся в HdrHistogram по операциям; после прогона
+ * в build/reports/load-test/&lt;время запуска&gt; лежат summary.txt и распределения .hgrm для HistogramLogAnalyzer.
+ */
+@Slf4j
+@Testcontainers
+class ProductionMixLoadTest {
+
+    private static final LoadTestSettings SETTINGS = LoadTestSettings.fromSystemProperties();
+
+    //дальше минуты ответ считаем зависшим, точность три значащие цифры
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+            DockerImageName.parse(SETTINGS.postgresImage()).asCompatibleSubstituteFor("postgres"));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    private ConfigurableApplicationContext node;
+    private Operation.Target target;
+
+    @BeforeEach
+    void setUp() {
+        node = new SpringApplicationBuilder(ShiftCrmApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .profiles(SETTINGS.profiles().isBlank() ? new String[0] : SETTINGS.profiles().split(","))
+                .properties("server.port=0",
+                        "server.tomcat.accept-count=" + SETTINGS.clients(),
+                        "spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                        "spring.datasource.username=" + POSTGRES.getUsername(),
+                        "spring.datasource.password=" + POSTGRES.getPassword(),
+                        //лог на каждый запрос сам по себе стал бы узким местом
+                        "logging.level.ru.tveu.shiftcrm.core=warn",
+                        "logging.level.ru.tveu.shiftcrm.api=warn")
+                .run();
+
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime from = to.minusDays(SETTINGS.days());
+        long[] sellerIds = seed(node.getBean(JdbcTemplate.class), to);
+        target = new Operation.Target("http://localhost:" + node.getEnvironment().getProperty("local.server.port"),
+                sellerIds, from, to);
+    }
+
+    @AfterEach
+    void tearDown() {
+        node.close();
+    }
+
+    //засев одним INSERT ... SELECT на таблицу: триггер дневных агрегатов отрабатывает один раз на оператор
+    private long[] seed(JdbcTemplate jdbcTemplate, LocalDateTime to) {
+        long startedAt = System.nanoTime();
+        jdbcTemplate.update("INSERT INTO seller (name, contact_info, registration_date) " +
+                "SELECT 'Load Seller ' || g, 'seller' || g || '@example.com', ? - INTERVAL '1 year' " +
+                "FROM generate_series(1, ?) g", to, SETTINGS.sellers());
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                        "SELECT nextval('transaction_id_seq'), s.id, round((random() * 10000)::numeric, 2), " +
+                        "(ARRAY['CASH', 'CARD', 'TRANSFER'])[1 + floor(random() * 3)::int], " +
+                        "? - random() * make_interval(days => ?) " +
+                        "FROM seller s CROSS JOIN generate_series(1, ?) g",
+                to, SETTINGS.days(), SETTINGS.transactionsPerSeller());
+        jdbcTemplate.execute("ANALYZE");
+
+        long[] sellerIds = jdbcTemplate.queryForList("SELECT id FROM seller ORDER BY id", Long.class).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        log.info("Seeded {} sellers and {} transactions in {} s", sellerIds.length,
+                (long) sellerIds.length * SETTINGS.transactionsPerSeller(),
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt));
+        return sellerIds;
+    }
+
+    @Test
+    void productionMix() throws Exception {
+        Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        for (Operation operation : SETTINGS.mix().keySet()) {
+            recorders.put(operation, new Recorder(HIGHEST_LATENCY_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new AtomicLong());
+        }
+        Operation[] weighted = weighted(SETTINGS.mix());
+
+        long warmupEnd = System.nanoTime() + SETTINGS.warmup().toNanos();
+        long end = warmupEnd + SETTINGS.duration().toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < SETTINGS.clients(); c++) {
+                clients.submit(() -> runClient(weighted, recorders, errors, warmupEnd, end));
+            }
+        }
+
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+        Histogram total = new Histogram(HIGHEST_LATENCY_MICROS, SIGNIFICANT_DIGITS);
+        histograms.values().forEach(total::add);
+
+        Path reportDir = report(histograms, total, errors);
+        log.info("Load test report: {}", reportDir.toAbsolutePath());
+
+        assertTrue(total.getTotalCount() > 0, "No requests completed in the measurement window");
+        long failed = errors.values().stream().mapToLong(AtomicLong::get).sum();
+        assertTrue(failed * 100 <= total.getTotalCount(), failed + " of " + total.getTotalCount() + " requests failed");
+    }
+
+    private void runClient(Operation[] weighted, Map<Operation, Recorder> recorders, Map<Operation, AtomicLong> errors,
+                           long warmupEnd, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            Operation operation = weighted[random.nextInt(weighted.length)];
+            boolean failed;
+            try {
+                HttpResponse<Void> response = httpClient.send(operation.request(target, random), HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 300;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            //в отчет идут только запросы, начатые после прогрева
+            if (now >= warmupEnd) {
+                long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - now);
+                recorders.get(operation).recordValue(Math.min(latencyMicros, HIGHEST_LATENCY_MICROS));
+                if (failed) {
+                    errors.get(operation).incrementAndGet();
+                }
+            }
+        }
+    }
+
+    //операция повторена по своему весу: выбор - один случайный индекс
+    private static Operation[] weighted(Map<Operation, Integer> mix) {
+        return mix.entrySet().stream()
+                .flatMap(entry -> Stream.generate(entry::getKey).limit(entry.getValue()))
+                .toArray(Operation[]::new);
+    }
+
+    private Path report(Map<Operation, Histogram> histograms, Histogram total, Map<Operation, AtomicLong> errors)
+            throws IOException {
+        Path reportDir = SETTINGS.reportDir().resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(reportDir);
+        double seconds = SETTINGS.duration().toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+
+        try (PrintStream summary = new PrintStream(Files.newOutputStream(reportDir.resolve("summary.txt")), true)) {
+            summary.printf("sellers=%d transactions-per-seller=%d days=%d clients=%d warmup=%ds duration=%ds profiles=%s%n%n",
+                    SETTINGS.sellers(), SETTINGS.transactionsPerSeller(), SETTINGS.days(), SETTINGS.clients(),
+                    SETTINGS.warmup().toSeconds(), SETTINGS.duration().toSeconds(), SETTINGS.profiles());
+            summary.printf("%-18s %10s %10s %10s %10s %10s %10s %8s%n",
+                    "operation", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+            histograms.forEach((operation, histogram) ->
+                    printRow(summary, operation.key(), histogram, seconds, errors.get(operation).get()));
+            printRow(summary, "total", total, seconds, errors.values().stream().mapToLong(AtomicLong::get).sum());
+        }
+        log.info("Load test summary:\n{}", Files.readString(reportDir.resolve("summary.txt")));
+
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            writeDistribution(reportDir.resolve(entry.getKey().key() + ".hgrm"), entry.getValue());
+        }
+        writeDistribution(reportDir.resolve("total.hgrm"), total);
+        return reportDir;
+    }
+
+    private static void printRow(PrintStream summary, String name, Histogram histogram, double seconds, long errors) {
+        summary.printf("%-18s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI,
+                errors);
+    }
+
+    //значения в микросекундах, в файле - миллисекунды
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), true)) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
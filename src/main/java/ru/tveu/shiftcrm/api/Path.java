@@ -16,10 +16,20 @@ public class Path {
     public static final String SELLER_GET_MOST_PRODUCTIVE = SELLER + "/most-productive";
     public static final String SELLER_GET_WITH_TX_BELOW_THRESHOLD = SELLER + "/below-threshold";
     public static final String SELLER_GET_BEST_PERIOD = SELLER + "/best-period";
+    public static final String SELLER_GET_BEST_PERIOD_ALL = SELLER_GET_BEST_PERIOD + "/all";
+    public static final String SELLER_GET_BEST_PERIODS = SELLER + "/best-periods";
+    public static final String SELLER_GET_LEADERBOARD = SELLER + "/leaderboard";
 
     public static final String TRANSACTION = ROOT + "/transaction";
     public static final String TRANSACTION_GET = TRANSACTION + ID;
     public static final String TRANSACTION_GET_BY_SELLER = TRANSACTION;
+    public static final String TRANSACTION_GET_BY_SELLER_SEEK = TRANSACTION + "/seek";
+    public static final String TRANSACTION_EXPORT = TRANSACTION + "/export";
     public static final String TRANSACTION_POST = TRANSACTION;
+    public static final String TRANSACTION_POST_BULK = TRANSACTION + "/bulk";
+
+    public static final String ADMIN = ROOT + "/admin";
+    public static final String ADMIN_GENERATE = ADMIN + "/generate";
+    public static final String ADMIN_TRANSACTION_IMPORT = ADMIN + "/transaction/import";
 
 }
@@ -0,0 +1,56 @@
+package ru.tveu.shiftcrm.api.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import ru.tveu.shiftcrm.api.Path;
+import ru.tveu.shiftcrm.api.dto.BulkLoadResultDTO;
+import ru.tveu.shiftcrm.api.dto.GenerateRequest;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.service.SyntheticDataGenerator;
+import ru.tveu.shiftcrm.core.service.TransactionImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequiredArgsConstructor
+public class AdminController {
+
+    private static final String TEXT_CSV = "text/csv";
+
+    //генератор и импорт включаются свойствами: без свойства бина нет и ответ 404
+    private final ObjectProvider<SyntheticDataGenerator> syntheticDataGenerator;
+    private final ObjectProvider<TransactionImportService> transactionImportService;
+
+    //загрузка идет синхронно и на сотнях миллионов строк занимает минуты: таймаут клиента нужен с запасом
+    @PostMapping(Path.ADMIN_GENERATE)
+    @ResponseStatus(HttpStatus.OK)
+    public BulkLoadResultDTO generate(@RequestBody @Valid GenerateRequest generateRequest) {
+
+        SyntheticDataGenerator generator = syntheticDataGenerator.getIfAvailable();
+        if (generator == null) {
+            throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.GENERATOR_DISABLED);
+        }
+        return generator.generate(generateRequest);
+    }
+
+    //тело читается потоково прямо в COPY
+    @PostMapping(value = Path.ADMIN_TRANSACTION_IMPORT, consumes = TEXT_CSV)
+    @ResponseStatus(HttpStatus.OK)
+    public BulkLoadResultDTO importTransactions(InputStream body) throws IOException {
+
+        TransactionImportService importService = transactionImportService.getIfAvailable();
+        if (importService == null) {
+            throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.IMPORT_DISABLED);
+        }
+        return importService.importCsv(body);
+    }
+}
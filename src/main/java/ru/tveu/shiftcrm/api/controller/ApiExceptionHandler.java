@@ -1,19 +1,26 @@
 package ru.tveu.shiftcrm.api.controller;
 
 import jakarta.validation.UnexpectedTypeException;
+import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.service.ServiceMetrics;
 
 @ControllerAdvice
+@RequiredArgsConstructor
 public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final ServiceMetrics serviceMetrics;
+
     @ExceptionHandler(ServiceException.class)
     public ResponseEntity<Object> handle(ServiceException exception) {
+        serviceMetrics.error(exception.getErrorCode());
         return new ResponseEntity<>(exception.getLocalizedMessage(), exception.getErrorCode().getHttpStatus());
     }
 
@@ -22,6 +29,12 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(exception.getLocalizedMessage(), HttpStatus.BAD_REQUEST);
     }
 
+    //продавца успели изменить между чтением и записью: клиент перечитывает и повторяет
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handle(ObjectOptimisticLockingFailureException exception) {
+        return new ResponseEntity<>(exception.getLocalizedMessage(), HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(UnexpectedTypeException.class)
     public ResponseEntity<Object> handle(UnexpectedTypeException exception) {
         return new ResponseEntity<>(exception.getLocalizedMessage(), HttpStatus.BAD_REQUEST);
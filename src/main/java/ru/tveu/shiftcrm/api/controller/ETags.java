@@ -0,0 +1,77 @@
+package ru.tveu.shiftcrm.api.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.util.DigestUtils;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Сильные ETag без сериализации тела. Продавец однозначно задается id и версией, транзакция не меняется после
+ * создания и задается id, поэтому тег списка строится из id/версий и параметров страницы, а не из JSON.
+ * Продавец по id и списки транзакций продавца получают тег до загрузки тела - из версии продавца и
+ * {@link TransactionWatermark}, так что 304 не платит за запрос страницы. Результаты анализа без версий хешируются
+ * по toString() DTO: они и так отдаются из кэшей.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String seller(SellerDTO seller) {
+        return seller(seller.id(), seller.version());
+    }
+
+    static String seller(Long id, long version) {
+        return "seller-" + id + "-" + version;
+    }
+
+    static String sellers(Slice<SellerDTO> sellers) {
+        StringBuilder key = slice("sellers", sellers);
+        sellers.forEach(seller -> key.append(seller.id()).append(':').append(seller.version()).append(','));
+        return digest(key);
+    }
+
+    static String transaction(TransactionDTO transaction) {
+        return "transaction-" + transaction.id();
+    }
+
+    //сортировка и размер страницы входят в Pageable.toString()
+    static String transactions(Long sellerId, TransactionWatermark watermark, Pageable pageable) {
+        return digest(watermark("transactions", sellerId, watermark).append(pageable));
+    }
+
+    static String transactions(Long sellerId, TransactionWatermark watermark, String cursor, int size) {
+        return digest(watermark("transactions-seek", sellerId, watermark).append(cursor).append('|').append(size));
+    }
+
+    static String of(Object result) {
+        return digest(new StringBuilder(String.valueOf(result)));
+    }
+
+    private static StringBuilder slice(String name, Slice<?> slice) {
+        StringBuilder key = new StringBuilder(name).append('|')
+                .append(slice.getNumber()).append('|')
+                .append(slice.getSize()).append('|')
+                .append(slice.hasNext()).append('|');
+        if (slice instanceof Page<?> page) {
+            key.append(page.getTotalElements());
+        }
+        return key.append('|');
+    }
+
+    private static StringBuilder watermark(String name, Long sellerId, TransactionWatermark watermark) {
+        return new StringBuilder(name).append('|')
+                .append(sellerId).append('|')
+                .append(watermark.maxId()).append('|')
+                .append(watermark.oldestDate()).append('|');
+    }
+
+    private static String digest(CharSequence key) {
+        return DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
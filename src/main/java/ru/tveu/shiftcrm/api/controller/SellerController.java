@@ -2,9 +2,10 @@ package ru.tveu.shiftcrm.api.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,14 +15,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.tveu.shiftcrm.api.Path;
 import ru.tveu.shiftcrm.api.dto.PeriodDTO;
 import ru.tveu.shiftcrm.api.dto.SellerCreateRequest;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.SellerPeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerRankDTO;
 import ru.tveu.shiftcrm.api.dto.SellerUpdateRequest;
 import ru.tveu.shiftcrm.core.service.AnalysisService;
+import ru.tveu.shiftcrm.core.service.CountMode;
+import ru.tveu.shiftcrm.core.service.PeriodWeight;
 import ru.tveu.shiftcrm.core.service.SellerService;
 
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
@@ -30,18 +38,24 @@ public class SellerController {
     private final SellerService sellerService;
     private final AnalysisService analysisService;
 
+    //GET отдают ETag: при совпадении с If-None-Match ответ 304 без тела.
+    //тег продавца сверяется по одной версии до загрузки, 304 не читает продавца целиком
     @GetMapping(Path.SELLER_GET)
-    @ResponseStatus(HttpStatus.OK)
-    public SellerDTO getById(@PathVariable Long id) {
-
-        return sellerService.get(id);
+    public ResponseEntity<SellerDTO> getById(@PathVariable Long id, WebRequest webRequest) {
+
+        String eTag = ETags.seller(id, sellerService.getVersion(id));
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        SellerDTO seller = sellerService.get(id);
+        return ResponseEntity.ok().eTag(ETags.seller(seller)).body(seller);
     }
 
     @GetMapping(Path.SELLER_GET_ALL)
-    @ResponseStatus(HttpStatus.OK)
-    public Page<SellerDTO> getAll(Pageable pageable) {
+    public ResponseEntity<Slice<SellerDTO>> getAll(Pageable pageable, @RequestParam(defaultValue = "EXACT") CountMode count) {
 
-        return sellerService.getAll(pageable);
+        Slice<SellerDTO> sellers = sellerService.getAll(pageable, count);
+        return ResponseEntity.ok().eTag(ETags.sellers(sellers)).body(sellers);
     }
 
     @PostMapping(Path.SELLER_POST)
@@ -70,29 +84,61 @@ public class SellerController {
 
 
     @GetMapping(Path.SELLER_GET_MOST_PRODUCTIVE)
-    @ResponseStatus(HttpStatus.OK)
-    public SellerDTO getMostProductiveSeller(@RequestParam String startDate, @RequestParam String endDate) {
+    public ResponseEntity<SellerDTO> getMostProductiveSeller(@RequestParam String startDate, @RequestParam String endDate) {
 
-        return analysisService.getMostProductiveSeller(startDate, endDate);
+        SellerDTO seller = analysisService.getMostProductiveSeller(startDate, endDate);
+        return ResponseEntity.ok().eTag(ETags.seller(seller)).body(seller);
     }
 
 
     @GetMapping(Path.SELLER_GET_WITH_TX_BELOW_THRESHOLD)
-    @ResponseStatus(HttpStatus.OK)
-    public Page<SellerDTO> getSellersWithTransactionsBelowThreshold(
+    public ResponseEntity<Slice<SellerDTO>> getSellersWithTransactionsBelowThreshold(
             @RequestParam String startDate,
             @RequestParam String endDate,
             @RequestParam double threshold,
-            Pageable pageable) {
+            Pageable pageable,
+            @RequestParam(defaultValue = "EXACT") CountMode count) {
 
-        return analysisService.getSellersWithTransactionsBelowThreshold(startDate, endDate, threshold, pageable);
+        Slice<SellerDTO> sellers = analysisService.getSellersWithTransactionsBelowThreshold(startDate, endDate, threshold, pageable, count);
+        return ResponseEntity.ok().eTag(ETags.sellers(sellers)).body(sellers);
     }
 
     @GetMapping(Path.SELLER_GET_BEST_PERIOD)
-    @ResponseStatus(HttpStatus.OK)
-    public PeriodDTO getBestTransactionPeriod(@RequestParam long durationInDays, @RequestParam Long sellerId) {
+    public ResponseEntity<PeriodDTO> getBestTransactionPeriod(
+            @RequestParam long durationInDays,
+            @RequestParam Long sellerId,
+            @RequestParam(defaultValue = "COUNT") PeriodWeight weight) {
+
+        PeriodDTO period = analysisService.findBestTransactionPeriod(durationInDays, sellerId, weight);
+        return ResponseEntity.ok().eTag(ETags.of(period)).body(period);
+    }
+
+    @GetMapping(Path.SELLER_GET_BEST_PERIOD_ALL)
+    public ResponseEntity<List<SellerPeriodDTO>> getBestTransactionPeriodForAllSellers(@RequestParam long durationInDays) {
+
+        List<SellerPeriodDTO> periods = analysisService.findBestTransactionPeriodForAllSellers(durationInDays);
+        return ResponseEntity.ok().eTag(ETags.of(periods)).body(periods);
+    }
+
+    //отдельный путь, а не список в /best-period: там ответ - один PeriodDTO, здесь - карта по длинам окна
+    @GetMapping(Path.SELLER_GET_BEST_PERIODS)
+    public ResponseEntity<Map<Long, PeriodDTO>> getBestTransactionPeriods(
+            @RequestParam List<Long> durationInDays,
+            @RequestParam Long sellerId,
+            @RequestParam(defaultValue = "COUNT") PeriodWeight weight) {
+
+        Map<Long, PeriodDTO> periods = analysisService.findBestTransactionPeriods(durationInDays, sellerId, weight);
+        return ResponseEntity.ok().eTag(ETags.of(periods)).body(periods);
+    }
+
+    @GetMapping(Path.SELLER_GET_LEADERBOARD)
+    public ResponseEntity<List<SellerRankDTO>> getLeaderboard(
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "10") int limit) {
 
-        return analysisService.findBestTransactionPeriod(durationInDays, sellerId);
+        List<SellerRankDTO> ranks = analysisService.getLeaderboard(startDate, endDate, limit);
+        return ResponseEntity.ok().eTag(ETags.of(ranks)).body(ranks);
     }
 
 }
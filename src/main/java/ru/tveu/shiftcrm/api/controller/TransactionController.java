@@ -1,34 +1,102 @@
 package ru.tveu.shiftcrm.api.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.tveu.shiftcrm.api.Path;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkItemResultDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkResultDTO;
 import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
 import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionSliceDTO;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark;
+import ru.tveu.shiftcrm.core.service.ExportFormat;
+import ru.tveu.shiftcrm.core.service.TransactionExport;
+import ru.tveu.shiftcrm.core.service.TransactionExportService;
 import ru.tveu.shiftcrm.core.service.TransactionService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
 @RestController
 @RequiredArgsConstructor
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
+    private final ObjectMapper objectMapper;
 
+    //GET отдают ETag: при совпадении с If-None-Match ответ 304 без тела
     @GetMapping(Path.TRANSACTION_GET)
-    @ResponseStatus(HttpStatus.OK)
-    public TransactionDTO getTransaction(@PathVariable Long id) {
+    public ResponseEntity<TransactionDTO> getTransaction(@PathVariable Long id) {
 
-        return transactionService.get(id);
+        TransactionDTO transaction = transactionService.get(id);
+        return ResponseEntity.ok().eTag(ETags.transaction(transaction)).body(transaction);
     }
 
+    //транзакции не меняются: список продавца меняется, только если изменились наибольший id или самая ранняя дата.
+    //тег сверяется по этой паре до запроса страницы
     @GetMapping(Path.TRANSACTION_GET_BY_SELLER)
-    @ResponseStatus(HttpStatus.OK)
-    public Page<TransactionDTO> getAllTransactionsBySeller(@RequestParam Long sellerId, Pageable pageable) {
+    public ResponseEntity<Page<TransactionDTO>> getAllTransactionsBySeller(@RequestParam Long sellerId, Pageable pageable,
+                                                                           WebRequest webRequest) {
 
-        return transactionService.getAllBySellerId(sellerId, pageable);
+        TransactionWatermark watermark = transactionService.getWatermark(sellerId);
+        String eTag = ETags.transactions(sellerId, watermark, pageable);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        Page<TransactionDTO> transactions = transactionService.getAllBySellerId(sellerId, pageable);
+        return ResponseEntity.ok().eTag(eTag).body(transactions);
+    }
+
+    @GetMapping(Path.TRANSACTION_GET_BY_SELLER_SEEK)
+    public ResponseEntity<TransactionSliceDTO> getTransactionsBySellerAfter(
+            @RequestParam Long sellerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest webRequest) {
+
+        TransactionWatermark watermark = transactionService.getWatermark(sellerId);
+        String eTag = ETags.transactions(sellerId, watermark, cursor, size);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        TransactionSliceDTO transactions = transactionService.getAllBySellerIdAfter(sellerId, cursor, size);
+        return ResponseEntity.ok().eTag(eTag).body(transactions);
+    }
+
+    //пишем прямо в поток ответа без асинхронного StreamingResponseBody: у него таймаут запроса, а выгрузка бывает долгой
+    @GetMapping(Path.TRANSACTION_EXPORT)
+    public void exportTransactions(@RequestParam Long sellerId,
+                                   @RequestParam(required = false) String startDate,
+                                   @RequestParam(required = false) String endDate,
+                                   @RequestParam(defaultValue = "CSV") ExportFormat format,
+                                   HttpServletResponse response) throws IOException {
+
+        TransactionExport export = transactionExportService.prepare(sellerId, startDate, endDate, format);
+
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("transactions-" + sellerId + "." + format.getExtension())
+                .build()
+                .toString());
+        export.writeTo(response.getOutputStream());
     }
 
     @PostMapping(Path.TRANSACTION_POST)
@@ -38,4 +106,80 @@ public class TransactionController {
         return transactionService.create(createRequest);
     }
 
+    @PostMapping(value = Path.TRANSACTION_POST_BULK, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public TransactionBulkResultDTO createTransactions(@RequestBody List<TransactionCreateRequest> createRequests) {
+
+        return transactionService.createAll(createRequests.iterator());
+    }
+
+    //ndjson читаем потоково, не собирая все тело запроса в память. Битая строка не отменяет уже закоммиченные чанки:
+    //она и конец тела попадают в отчет ошибкой, клиент получает id созданных строк
+    @PostMapping(value = Path.TRANSACTION_POST_BULK, consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public TransactionBulkResultDTO createTransactionsFromNdjson(InputStream body) throws IOException {
+
+        try (MappingIterator<TransactionCreateRequest> values =
+                     objectMapper.readerFor(TransactionCreateRequest.class).readValues(body)) {
+            NdjsonRequests requests = new NdjsonRequests(values);
+            TransactionBulkResultDTO result = transactionService.createAll(requests);
+            return requests.error == null ? result : withMalformedLine(result, requests.error);
+        }
+    }
+
+    private static TransactionBulkResultDTO withMalformedLine(TransactionBulkResultDTO result, String error) {
+        List<TransactionBulkItemResultDTO> items = new ArrayList<>(result.items());
+        items.add(new TransactionBulkItemResultDTO(result.received(), null, ErrorMessage.MALFORMED_NDJSON + error));
+        return TransactionBulkResultDTO.builder()
+                .received(result.received() + 1)
+                .created(result.created())
+                .failed(result.failed() + 1)
+                .elapsedMillis(result.elapsedMillis())
+                .rowsPerSecond(result.rowsPerSecond())
+                .items(items)
+                .build();
+    }
+
+    //значение читается заранее в hasNext: ошибка разбора бывает и в середине объекта. На первой ошибке поток
+    //заканчивается - после синтаксической ошибки парсер не знает, где начинается следующая строка
+    private static final class NdjsonRequests implements Iterator<TransactionCreateRequest> {
+
+        private final MappingIterator<TransactionCreateRequest> values;
+        private TransactionCreateRequest next;
+        private boolean fetched;
+        private String error;
+
+        private NdjsonRequests(MappingIterator<TransactionCreateRequest> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (fetched) {
+                return true;
+            }
+            if (error != null) {
+                return false;
+            }
+            try {
+                if (values.hasNextValue()) {
+                    next = values.nextValue();
+                    fetched = true;
+                }
+            } catch (IOException e) {
+                error = e.getMessage();
+            }
+            return fetched;
+        }
+
+        @Override
+        public TransactionCreateRequest next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            fetched = false;
+            return next;
+        }
+    }
+
 }
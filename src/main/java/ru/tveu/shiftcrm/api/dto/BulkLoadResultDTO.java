@@ -0,0 +1,16 @@
+package ru.tveu.shiftcrm.api.dto;
+
+import lombok.Builder;
+
+@Builder
+public record BulkLoadResultDTO(
+
+        long sellers,
+
+        long transactions,
+
+        long elapsedMillis,
+
+        double rowsPerSecond
+) {
+}
@@ -0,0 +1,26 @@
+package ru.tveu.shiftcrm.api.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * Страница с приблизительным totalElements из статистики postgres; в ответе помечена полем totalEstimated.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private EstimatedPage(List<T> content, Slice<T> slice, long total) {
+        super(content, slice.getPageable(), total);
+    }
+
+    //оценка не может быть меньше уже увиденных строк, иначе страница потеряет признак следующей
+    public static <T> EstimatedPage<T> of(Slice<T> slice, long estimatedTotal) {
+        long seen = slice.getPageable().getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+        return new EstimatedPage<>(slice.getContent(), slice, Math.max(estimatedTotal, seen));
+    }
+
+    public boolean isTotalEstimated() {
+        return true;
+    }
+}
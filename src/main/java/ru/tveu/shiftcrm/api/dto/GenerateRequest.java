@@ -0,0 +1,39 @@
+package ru.tveu.shiftcrm.api.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Builder;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+
+import java.util.Map;
+
+/**
+ * Параметры синтетических данных. Необязательные поля: zipfExponent (по умолчанию 1.0, 0 - равномерно),
+ * paymentMix (по умолчанию поровну) и seed (по умолчанию случайный).
+ */
+@Builder
+public record GenerateRequest(
+
+        @Positive(message = "sellers must be positive")
+        @Max(value = 10_000_000, message = "sellers must be at most 10000000")
+        int sellers,
+
+        @PositiveOrZero(message = "transactions must not be negative")
+        long transactions,
+
+        @PositiveOrZero(message = "zipfExponent must not be negative")
+        Double zipfExponent,
+
+        @NotBlank(message = "start must not be blank")
+        String start,
+
+        @NotBlank(message = "end must not be blank")
+        String end,
+
+        Map<PaymentType, Integer> paymentMix,
+
+        Long seed
+) {
+}
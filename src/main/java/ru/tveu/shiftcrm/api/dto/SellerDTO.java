@@ -10,7 +10,9 @@ public record SellerDTO(
 
         String contactInfo,
 
-        String registrationDate
+        String registrationDate,
+
+        Long version
 ) {
 
 }
@@ -0,0 +1,17 @@
+package ru.tveu.shiftcrm.api.dto;
+
+import lombok.Builder;
+
+@Builder
+public record SellerPeriodDTO(
+
+        Long sellerId,
+
+        String dateStart,
+
+        String dateEnd,
+
+        long transactionCount
+
+) {
+}
@@ -0,0 +1,13 @@
+package ru.tveu.shiftcrm.api.dto;
+
+import lombok.Builder;
+
+@Builder
+public record SellerRankDTO(
+
+        Long sellerId,
+
+        double totalAmount
+
+) {
+}
@@ -0,0 +1,14 @@
+package ru.tveu.shiftcrm.api.dto;
+
+import lombok.Builder;
+
+@Builder
+public record TransactionBulkItemResultDTO(
+
+        int index,
+
+        Long id,
+
+        String error
+) {
+}
@@ -0,0 +1,22 @@
+package ru.tveu.shiftcrm.api.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record TransactionBulkResultDTO(
+
+        int received,
+
+        int created,
+
+        int failed,
+
+        long elapsedMillis,
+
+        double rowsPerSecond,
+
+        List<TransactionBulkItemResultDTO> items
+) {
+}
@@ -12,7 +12,7 @@ public record TransactionCreateRequest(
 
         double amount,
 
-        @NotBlank
+        @NotBlank(message = "paymentType must not be blank")
         String paymentType
 ) {
 }
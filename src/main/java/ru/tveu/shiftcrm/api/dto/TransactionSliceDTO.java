@@ -0,0 +1,19 @@
+package ru.tveu.shiftcrm.api.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record TransactionSliceDTO(
+
+        List<TransactionDTO> content,
+
+        int size,
+
+        boolean hasNext,
+
+        String nextCursor
+
+) {
+}
@@ -0,0 +1,333 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.core.config.CacheConfig;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.event.RemoteCacheResetEvent;
+import ru.tveu.shiftcrm.core.event.RemoteSellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.RemoteTransactionsCreatedEvent;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsDetachedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsImportedEvent;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылает изменения между узлами через NOTIFY, каждый узел держит отдельное соединение с LISTEN.
+ * Продавец сбрасывается в кэше {@link CacheConfig#SELLERS} после коммита изменения и на остальных узлах по уведомлению,
+ * где кэши лент, аналитики и лидерборда получают {@link RemoteSellerChangedEvent}.
+ * Новые транзакции копятся в очереди и раз в flush-interval-ms уходят пачкой: остальные узлы получают их как
+ * {@link RemoteTransactionsCreatedEvent} и обновляют свои кэши лент, аналитики и лидерборда. Если часть изменений
+ * могла потеряться (нет соединения, переполнена очередь) или изменений слишком много (отключение секции, загрузка через
+ * COPY), узлы получают
+ * {@link RemoteCacheResetEvent}.
+ */
+@Component
+@ConditionalOnProperty(name = "shiftcrm.seller.cache.cluster-invalidation.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class SellerCacheInvalidator implements SmartLifecycle {
+
+    private static final String NOTIFY_QUERY = "SELECT pg_notify(?, ?)";
+    private static final String PAYLOAD_SEPARATOR = ":";
+    private static final String TRANSACTIONS_TYPE = "T";
+    private static final String RESET_TYPE = "R";
+    private static final String DELETED_TYPE = "D";
+    private static final String TRANSACTION_SEPARATOR = ";";
+    private static final String FIELD_SEPARATOR = ",";
+    //предел payload у NOTIFY - 8000 байт, все поля в ASCII
+    static final int MAX_PAYLOAD_CHARS = 7900;
+
+    private final Cache cache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate notifyTransactionTemplate;
+    private final DataSource dataSource;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String channel;
+    private final int pollTimeoutMillis;
+    private final long reconnectDelayMillis;
+    private final int maxPendingTransactions;
+
+    //свои уведомления пропускаем: локально продавец уже сброшен
+    private final String nodeId = UUID.randomUUID().toString();
+
+    //транзакции, еще не разосланные другим узлам; при переполнении вместо них уйдет сброс
+    private final Queue<TransactionCreatedEvent> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outboxSize = new AtomicInteger();
+    private final AtomicBoolean resetPending = new AtomicBoolean();
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private volatile Thread listener;
+
+    public SellerCacheInvalidator(CacheManager cacheManager,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  DataSource dataSource,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${shiftcrm.seller.cache.cluster-invalidation.channel:seller_cache}") String channel,
+                                  @Value("${shiftcrm.seller.cache.cluster-invalidation.poll-timeout-ms:500}") int pollTimeoutMillis,
+                                  @Value("${shiftcrm.seller.cache.cluster-invalidation.reconnect-delay-ms:5000}") long reconnectDelayMillis,
+                                  @Value("${shiftcrm.seller.cache.cluster-invalidation.max-pending-transactions:100000}") int maxPendingTransactions) {
+        this.cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.SELLERS));
+        this.jdbcTemplate = jdbcTemplate;
+        //после коммита соединение исходной транзакции уже не коммитится: NOTIFY шлем в своей транзакции
+        this.notifyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.notifyTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.dataSource = dataSource;
+        this.eventPublisher = eventPublisher;
+        this.channel = channel;
+        this.pollTimeoutMillis = pollTimeoutMillis;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        this.maxPendingTransactions = maxPendingTransactions;
+    }
+
+    //после коммита: иначе параллельное чтение успеет положить в кэш старые данные
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSellerChanged(SellerChangedEvent event) {
+        cache.evict(event.sellerId());
+
+        try {
+            notifyTransactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.queryForList(NOTIFY_QUERY, channel, notificationPayload(event)));
+        } catch (RuntimeException e) {
+            //запись уже закоммичена; на других узлах продавец устареет не дольше expireAfterWrite
+            log.warn("Failed to notify other nodes about seller with ID {}: {}", event.sellerId(), e.getMessage());
+        }
+    }
+
+    //после коммита: получив уведомление, другой узел уже видит транзакцию в БД
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionCreated(TransactionCreatedEvent event) {
+        if (outboxSize.incrementAndGet() > maxPendingTransactions) {
+            outboxSize.decrementAndGet();
+            resetPending.set(true);
+            return;
+        }
+        outbox.add(event);
+    }
+
+    //менеджер секций включают на одном узле: остальные узнают об отключении только отсюда
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsDetached(TransactionsDetachedEvent event) {
+        resetPending.set(true);
+        flush();
+    }
+
+    //строки импорта и генератора по одной не рассылаются: другие узлы сбрасывают кэши целиком
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsImported(TransactionsImportedEvent event) {
+        resetPending.set(true);
+        flush();
+    }
+
+    //один NOTIFY на пачку транзакций вместо NOTIFY на каждую запись; все пачки уходят одной транзакцией
+    @Scheduled(fixedDelayString = "${shiftcrm.seller.cache.cluster-invalidation.flush-interval-ms:100}")
+    public void flush() {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = null;
+        TransactionCreatedEvent event;
+        while ((event = outbox.poll()) != null) {
+            outboxSize.decrementAndGet();
+            String encoded = encode(event);
+            if (payload != null && payload.length() + TRANSACTION_SEPARATOR.length() + encoded.length() > MAX_PAYLOAD_CHARS) {
+                payloads.add(payload.toString());
+                payload = null;
+            }
+            if (payload == null) {
+                payload = new StringBuilder(MAX_PAYLOAD_CHARS).append(nodeId).append(PAYLOAD_SEPARATOR)
+                        .append(TRANSACTIONS_TYPE).append(PAYLOAD_SEPARATOR).append(encoded);
+            } else {
+                payload.append(TRANSACTION_SEPARATOR).append(encoded);
+            }
+        }
+        if (payload != null) {
+            payloads.add(payload.toString());
+        }
+        //сброс покрывает и транзакции из этой же пачки
+        if (resetPending.getAndSet(false)) {
+            payloads = List.of(nodeId + PAYLOAD_SEPARATOR + RESET_TYPE);
+        }
+        if (payloads.isEmpty()) {
+            return;
+        }
+
+        List<String> notifications = payloads;
+        try {
+            notifyTransactionTemplate.executeWithoutResult(status ->
+                    notifications.forEach(notification -> jdbcTemplate.queryForList(NOTIFY_QUERY, channel, notification)));
+        } catch (RuntimeException e) {
+            //транзакции этой пачки не разосланы: при следующей удачной рассылке другие узлы сбросят кэши
+            resetPending.set(true);
+            log.warn("Failed to notify other nodes about {} payloads, cache reset is scheduled: {}",
+                    notifications.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listener = new Thread(this::listenLoop, "seller-cache-invalidator");
+        listener.setDaemon(true);
+        listener.start();
+        log.info("Listening for seller cache invalidations on channel {}", channel);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        //последние транзакции узла
+        flush();
+
+        Thread current = listener;
+        current.interrupt();
+        try {
+            current.join(pollTimeoutMillis * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Seller cache invalidator stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    //останавливаемся после буфера записи (DEFAULT_PHASE - 4096), чтобы разослать его последние транзакции
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    boolean isListening() {
+        return listening;
+    }
+
+    //изменение - "узел:id", удаление - "узел:D:id"
+    String notificationPayload(SellerChangedEvent event) {
+        return event.deleted()
+                ? nodeId + PAYLOAD_SEPARATOR + DELETED_TYPE + PAYLOAD_SEPARATOR + event.sellerId()
+                : nodeId + PAYLOAD_SEPARATOR + event.sellerId();
+    }
+
+    //id узла - UUID без ':', поэтому тип и тело сообщения - все после первого разделителя
+    void onNotification(String payload) {
+        int separator = payload.indexOf(PAYLOAD_SEPARATOR);
+        if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        String message = payload.substring(separator + 1);
+
+        try {
+            if (message.equals(RESET_TYPE)) {
+                log.info("Resetting transaction caches on notification from another node");
+                eventPublisher.publishEvent(new RemoteCacheResetEvent());
+            } else if (message.startsWith(TRANSACTIONS_TYPE + PAYLOAD_SEPARATOR)) {
+                eventPublisher.publishEvent(new RemoteTransactionsCreatedEvent(
+                        decode(message.substring(TRANSACTIONS_TYPE.length() + PAYLOAD_SEPARATOR.length()))));
+            } else {
+                boolean deleted = message.startsWith(DELETED_TYPE + PAYLOAD_SEPARATOR);
+                Long sellerId = Long.valueOf(deleted
+                        ? message.substring(DELETED_TYPE.length() + PAYLOAD_SEPARATOR.length())
+                        : message);
+                log.info("Evicting seller with ID {} on notification from another node", sellerId);
+                cache.evict(sellerId);
+                eventPublisher.publishEvent(new RemoteSellerChangedEvent(sellerId, deleted));
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            log.warn("Ignoring malformed cache notification: {}", payload);
+        }
+    }
+
+    //id,seller_id,amount,payment_type,микросекунды даты
+    private static String encode(TransactionCreatedEvent event) {
+        return event.transactionId() + FIELD_SEPARATOR + event.sellerId() + FIELD_SEPARATOR + event.amount()
+                + FIELD_SEPARATOR + event.paymentType().name() + FIELD_SEPARATOR + SellerTimeline.toMicros(event.transactionDate());
+    }
+
+    private static List<TransactionCreatedEvent> decode(String body) {
+        List<TransactionCreatedEvent> events = new ArrayList<>();
+        for (String encoded : body.split(TRANSACTION_SEPARATOR)) {
+            String[] fields = encoded.split(FIELD_SEPARATOR, -1);
+            if (fields.length != 5) {
+                throw new IllegalArgumentException("Expected 5 fields: " + encoded);
+            }
+            events.add(new TransactionCreatedEvent(Long.valueOf(fields[0]), Long.valueOf(fields[1]),
+                    Double.parseDouble(fields[2]), PaymentType.valueOf(fields[3]),
+                    SellerTimeline.fromMicros(Long.parseLong(fields[4]))));
+        }
+        return events;
+    }
+
+    private void listenLoop() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                //пока соединения не было, уведомления могли потеряться
+                cache.clear();
+                if (reconnect) {
+                    eventPublisher.publishEvent(new RemoteCacheResetEvent());
+                }
+                listening = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            onNotification(notification.getParameter());
+                        }
+                    }
+                }
+                //соединение возвращается в пул: подписку снимаем
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("UNLISTEN " + channel);
+                }
+                listening = false;
+            } catch (SQLException e) {
+                listening = false;
+                reconnect = true;
+                if (!running) {
+                    return;
+                }
+                log.warn("Seller cache invalidation listener lost connection, reconnecting in {} ms: {}",
+                        reconnectDelayMillis, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
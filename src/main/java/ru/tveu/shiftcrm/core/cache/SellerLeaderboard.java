@@ -0,0 +1,335 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.core.event.RemoteCacheResetEvent;
+import ru.tveu.shiftcrm.core.event.RemoteSellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.RemoteTransactionsCreatedEvent;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsDetachedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsImportedEvent;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Суммы продаж продавцов по часовым и дневным корзинам в памяти. Топ за период складывается из корзин,
+ * поэтому время ответа зависит от числа корзин и активных в них продавцов, а не от числа транзакций.
+ * Дневные корзины хранятся все время, часовые - hourRetentionDays дней; при старте корзины пересобираются из БД.
+ * Транзакции других узлов приходят через {@link SellerCacheInvalidator} с задержкой рассылки. Если такая транзакция
+ * попала и в снимок пересборки, и в событие, она посчитается дважды: расхождение убирает плановая пересборка по rebuild-cron.
+ */
+@Component
+@Slf4j
+public class SellerLeaderboard {
+
+    private static final long SECONDS_PER_HOUR = 3600;
+    private static final long HOURS_PER_DAY = 24;
+
+    //суммы в центах с тем же округлением каждой транзакции, что и у событий
+    static final String REBUILD_QUERY = "SELECT seller_id, date_trunc('hour', transaction_date) AS hour, " +
+            "CAST(SUM(round(CAST(amount AS numeric) * 100)) AS bigint) AS amount_cents " +
+            "FROM transaction " +
+            "GROUP BY seller_id, date_trunc('hour', transaction_date)";
+
+    static final String VISIBLE_IDS_QUERY = "SELECT id FROM transaction WHERE id IN (:ids)";
+    //событий за время пересборки может быть много: IN с тысячами параметров не держим в одном запросе
+    static final int VISIBLE_IDS_CHUNK = 1000;
+
+    private static final Comparator<Rank> BEST_FIRST = Comparator.comparingLong(Rank::amountCents).reversed()
+            .thenComparingLong(Rank::sellerId);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    private final long hourRetentionHours;
+
+    private volatile Buckets buckets;
+
+    //пересборки идут по очереди: при старте, после импорта, по сбросу с другого узла и по расписанию
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    //события, пришедшие до конца пересборки: после нее применяются только те, что не попали в снимок
+    //ReentrantLock, а не synchronized: под ним идет запрос к БД, монитор закрепил бы виртуальный поток за носителем
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private List<TransactionCreatedEvent> pending = new ArrayList<>();
+    private volatile boolean rebuilding = true;
+
+    public SellerLeaderboard(NamedParameterJdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${shiftcrm.analysis.leaderboard.hour-retention-days:7}") int hourRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setReadOnly(true);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.hourRetentionHours = hourRetentionDays * HOURS_PER_DAY;
+    }
+
+    public record Rank(long sellerId, long amountCents) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuild(LocalDateTime.now());
+    }
+
+    void rebuild(LocalDateTime now) {
+        rebuildLock.lock();
+        try {
+            rebuildSnapshot(now);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildSnapshot(LocalDateTime now) {
+        log.info("Rebuilding seller leaderboard");
+
+        pendingLock.lock();
+        try {
+            if (pending == null) {
+                pending = new ArrayList<>();
+            }
+            rebuilding = true;
+        } finally {
+            pendingLock.unlock();
+        }
+
+        Buckets rebuilt = snapshotTransactionTemplate.execute(status -> {
+            Buckets fresh = new Buckets(hourOf(now) - hourRetentionHours);
+            jdbcTemplate.query(REBUILD_QUERY, Map.of(), (RowCallbackHandler) rs -> fresh.add(
+                    rs.getLong("seller_id"),
+                    hourOf(rs.getObject("hour", LocalDateTime.class)),
+                    rs.getLong("amount_cents")));
+
+            pendingLock.lock();
+            try {
+                Set<Long> visible = visibleIds(pending);
+                for (TransactionCreatedEvent event : pending) {
+                    if (!visible.contains(event.transactionId())) {
+                        fresh.add(event);
+                    }
+                }
+                buckets = fresh;
+                pending = null;
+                rebuilding = false;
+            } finally {
+                pendingLock.unlock();
+            }
+            return fresh;
+        });
+
+        log.info("Seller leaderboard rebuilt: {} hour buckets, {} day buckets", rebuilt.hours.size(), rebuilt.days.size());
+    }
+
+    //после коммита: откатившиеся транзакции в суммы не попадают; вне транзакции - сразу
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionCreated(TransactionCreatedEvent event) {
+        if (rebuilding) {
+            pendingLock.lock();
+            try {
+                if (pending != null) {
+                    pending.add(event);
+                    return;
+                }
+            } finally {
+                pendingLock.unlock();
+            }
+        }
+        buckets.add(event);
+    }
+
+    @EventListener
+    public void onRemoteTransactionsCreated(RemoteTransactionsCreatedEvent event) {
+        event.transactions().forEach(this::onTransactionCreated);
+    }
+
+    //другой узел мог закоммитить транзакции, о которых мы не узнали: пересобираем на потоке слушателя,
+    //уведомления тем временем копятся в соединении
+    @EventListener
+    public void onRemoteCacheReset(RemoteCacheResetEvent event) {
+        rebuild();
+    }
+
+    @EventListener
+    public void onRemoteSellerChanged(RemoteSellerChangedEvent event) {
+        if (event.deleted()) {
+            evict(event.sellerId());
+        }
+    }
+
+    //суммы дополняются событиями без сверки с БД: раз в сутки пересобираем их целиком
+    @Scheduled(cron = "${shiftcrm.analysis.leaderboard.rebuild-cron:0 35 3 * * *}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    //после коммита удаления: откатившееся удаление не должно убирать продавца из рейтинга
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSellerChanged(SellerChangedEvent event) {
+        if (event.deleted()) {
+            evict(event.sellerId());
+        }
+    }
+
+    //загрузка COPY не дает событий по строкам: суммы пересобираются из БД, как при старте
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsImported(TransactionsImportedEvent event) {
+        rebuild();
+    }
+
+    //дневные корзины хранятся все время: отключенный месяц из них можно убрать только пересборкой
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsDetached(TransactionsDetachedEvent event) {
+        rebuild();
+    }
+
+    public void evict(Long sellerId) {
+        Buckets current = buckets;
+        if (current != null) {
+            current.hours.values().forEach(bucket -> bucket.remove(sellerId));
+            current.days.values().forEach(bucket -> bucket.remove(sellerId));
+        }
+    }
+
+    //часовые корзины старше срока хранения уже учтены в дневных; если пересборка не удалась - повторяем ее
+    @Scheduled(cron = "${shiftcrm.analysis.leaderboard.cron:0 5 * * * *}")
+    public void maintain() {
+        if (buckets == null) {
+            rebuild();
+            return;
+        }
+        prune(LocalDateTime.now());
+    }
+
+    void prune(LocalDateTime now) {
+        Buckets current = buckets;
+        long oldestHour = hourOf(now) - hourRetentionHours;
+        if (oldestHour > current.oldestHour) {
+            current.oldestHour = oldestHour;
+            current.hours.headMap(oldestHour).clear();
+        }
+    }
+
+    /**
+     * Топ продавцов по сумме транзакций в [start, end). Границы выровнены по часу, а раньше срока хранения часовых корзин - по дню.
+     */
+    public List<Rank> top(LocalDateTime start, LocalDateTime end, int limit) {
+        Buckets current = buckets;
+        if (current == null) {
+            throw new ServiceException(ErrorCode.SERVICE_UNAVAILABLE, ErrorMessage.LEADERBOARD_NOT_READY);
+        }
+        if (!start.truncatedTo(ChronoUnit.HOURS).equals(start) || !end.truncatedTo(ChronoUnit.HOURS).equals(end)) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.LEADERBOARD_RANGE_NOT_ALIGNED);
+        }
+        if (!start.isBefore(end)) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.LEADERBOARD_RANGE_EMPTY);
+        }
+
+        Map<Long, long[]> totals = new HashMap<>();
+        long endHour = hourOf(end);
+        long oldestHour = current.oldestHour;
+
+        for (long hour = hourOf(start); hour < endHour; ) {
+            Map<Long, LongAdder> bucket;
+            if (hour % HOURS_PER_DAY == 0 && hour + HOURS_PER_DAY <= endHour) {
+                bucket = current.days.get(Math.floorDiv(hour, HOURS_PER_DAY));
+                hour += HOURS_PER_DAY;
+            } else if (hour >= oldestHour) {
+                bucket = current.hours.get(hour);
+                hour++;
+            } else {
+                throw new ServiceException(ErrorCode.BAD_REQUEST,
+                        ErrorMessage.LEADERBOARD_HOURS_EXPIRED.formatted(fromHour(oldestHour)));
+            }
+
+            if (bucket != null) {
+                bucket.forEach((sellerId, adder) -> totals.computeIfAbsent(sellerId, id -> new long[1])[0] += adder.sum());
+            }
+        }
+
+        //куча на limit элементов: в вершине худший из лучших
+        PriorityQueue<Rank> heap = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+        totals.forEach((sellerId, total) -> {
+            heap.offer(new Rank(sellerId, total[0]));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+
+        List<Rank> ranks = new ArrayList<>(heap);
+        ranks.sort(BEST_FIRST);
+        return ranks;
+    }
+
+    private Set<Long> visibleIds(List<TransactionCreatedEvent> events) {
+        List<Long> ids = events.stream()
+                .map(TransactionCreatedEvent::transactionId)
+                .toList();
+        Set<Long> visible = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += VISIBLE_IDS_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + VISIBLE_IDS_CHUNK, ids.size()));
+            visible.addAll(jdbcTemplate.queryForList(VISIBLE_IDS_QUERY, Map.of("ids", chunk), Long.class));
+        }
+        return visible;
+    }
+
+    static long hourOf(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR);
+    }
+
+    private static LocalDateTime fromHour(long hour) {
+        return LocalDateTime.ofEpochSecond(hour * SECONDS_PER_HOUR, 0, ZoneOffset.UTC);
+    }
+
+    private static final class Buckets {
+        private final ConcurrentSkipListMap<Long, ConcurrentHashMap<Long, LongAdder>> hours = new ConcurrentSkipListMap<>();
+        private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, LongAdder>> days = new ConcurrentHashMap<>();
+        private volatile long oldestHour;
+
+        private Buckets(long oldestHour) {
+            this.oldestHour = oldestHour;
+        }
+
+        private void add(TransactionCreatedEvent event) {
+            add(event.sellerId(), hourOf(event.transactionDate()), Math.round(event.amount() * 100));
+        }
+
+        private void add(long sellerId, long hour, long amountCents) {
+            if (hour >= oldestHour) {
+                increment(hours.computeIfAbsent(hour, h -> new ConcurrentHashMap<>()), sellerId, amountCents);
+            }
+            increment(days.computeIfAbsent(Math.floorDiv(hour, HOURS_PER_DAY), d -> new ConcurrentHashMap<>()), sellerId, amountCents);
+        }
+
+        private static void increment(ConcurrentHashMap<Long, LongAdder> bucket, long sellerId, long amountCents) {
+            bucket.computeIfAbsent(sellerId, id -> new LongAdder()).add(amountCents);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отсортированные времена транзакций продавца в микросекундах эпохи (точность timestamp в postgres),
+ * сжатые как varint-разности соседних значений: обычно 1-3 байта на транзакцию вместо сущности с продавцом.
+ * Рядом лежат суммы в копейках (zigzag varint) для окон, взвешенных по выручке.
+ * <p>
+ * Экземпляр неизменяем для читателей: {@link #append} пишет только за пределами занятой части массивов
+ * и возвращает новый экземпляр, поэтому уже выданный экземпляр можно сканировать без блокировок.
+ * Дописывать нужно только в последний экземпляр.
+ */
+public final class SellerTimeline {
+
+    public static final SellerTimeline EMPTY = new SellerTimeline(new byte[0], 0, new byte[0], 0, 0, Long.MIN_VALUE);
+
+    private static final long MICROS_PER_SECOND = TimeUnit.SECONDS.toMicros(1);
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private final byte[] dates;
+    private final int datesLength;
+    private final byte[] amounts;
+    private final int amountsLength;
+    private final int count;
+    private final long last;
+
+    private SellerTimeline(byte[] dates, int datesLength, byte[] amounts, int amountsLength, int count, long last) {
+        this.dates = dates;
+        this.datesLength = datesLength;
+        this.amounts = amounts;
+        this.amountsLength = amountsLength;
+        this.count = count;
+        this.last = last;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int count() {
+        return count;
+    }
+
+    //занимаемая память для ограничения размера кэша
+    public int sizeInBytes() {
+        return dates.length + amounts.length;
+    }
+
+    /**
+     * @return новый экземпляр с добавленной транзакцией или null, если время раньше последнего (нужна перезагрузка)
+     */
+    public SellerTimeline append(LocalDateTime transactionDate, double amount) {
+        long micros = toMicros(transactionDate);
+        if (count > 0 && micros < last) {
+            return null;
+        }
+
+        byte[] targetDates = ensureCapacity(dates, datesLength);
+        byte[] targetAmounts = ensureCapacity(amounts, amountsLength);
+        int newDatesLength = writeVarint(targetDates, datesLength, count == 0 ? micros : micros - last);
+        int newAmountsLength = writeVarint(targetAmounts, amountsLength, zigzag(toCents(amount)));
+        return new SellerTimeline(targetDates, newDatesLength, targetAmounts, newAmountsLength, count + 1, micros);
+    }
+
+    /**
+     * Самое плотное окно длиной не больше window: два курсора по сжатому массиву, без аллокаций на элемент.
+     *
+     * @return границы окна или null для пустой ленты
+     */
+    public Window densestWindow(long windowMicros) {
+        Window[] windows = bestWindows(new long[]{windowMicros}, false);
+        return windows == null ? null : windows[0];
+    }
+
+    /**
+     * Лучшие окна сразу для нескольких длин за один проход: общий правый курсор и свой левый курсор на каждую длину.
+     * По числу транзакций или, при byAmount, по сумме (разность префиксных сумм поддерживается на ходу).
+     * При равенстве выигрывает окно с более ранним концом.
+     *
+     * @return окна в порядке windowMicros или null для пустой ленты
+     */
+    public Window[] bestWindows(long[] windowMicros, boolean byAmount) {
+        if (count == 0) {
+            return null;
+        }
+
+        int windowsCount = windowMicros.length;
+        Cursor end = new Cursor(this, byAmount);
+        Cursor[] starts = new Cursor[windowsCount];
+        int[] startIndexes = new int[windowsCount];
+        long[] sums = new long[windowsCount];
+        long[] bestScores = new long[windowsCount];
+        long[] bestStarts = new long[windowsCount];
+        long[] bestEnds = new long[windowsCount];
+        int[] bestCounts = new int[windowsCount];
+
+        for (int i = 0; i < windowsCount; i++) {
+            starts[i] = new Cursor(this, byAmount);
+            starts[i].next();
+            bestScores[i] = Long.MIN_VALUE;
+        }
+
+        for (int endIndex = 0; endIndex < count; endIndex++) {
+            end.next();
+
+            for (int i = 0; i < windowsCount; i++) {
+                Cursor start = starts[i];
+                sums[i] += end.amount;
+
+                while (startIndexes[i] < endIndex && end.value - start.value > windowMicros[i]) {
+                    sums[i] -= start.amount;
+                    start.next();
+                    startIndexes[i]++;
+                }
+
+                int windowCount = endIndex - startIndexes[i] + 1;
+                long score = byAmount ? sums[i] : windowCount;
+                if (score > bestScores[i]) {
+                    bestScores[i] = score;
+                    bestStarts[i] = start.value;
+                    bestEnds[i] = end.value;
+                    bestCounts[i] = windowCount;
+                }
+            }
+        }
+
+        Window[] windows = new Window[windowsCount];
+        for (int i = 0; i < windowsCount; i++) {
+            windows[i] = new Window(bestStarts[i], bestEnds[i], bestCounts[i]);
+        }
+        return windows;
+    }
+
+    public static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + dateTime.getNano() / 1_000;
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    //zigzag: небольшие отрицательные суммы (возвраты) тоже кодируются в 1-2 байта
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] ensureCapacity(byte[] data, int length) {
+        return data.length - length >= MAX_VARINT_BYTES ? data : Arrays.copyOf(data, data.length + (data.length >> 1) + MAX_VARINT_BYTES);
+    }
+
+    private static int writeVarint(byte[] target, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    public record Window(long startMicros, long endMicros, int count) {
+
+        public LocalDateTime start() {
+            return fromMicros(startMicros);
+        }
+
+        public LocalDateTime end() {
+            return fromMicros(endMicros);
+        }
+    }
+
+    private static final class Cursor {
+
+        private final byte[] dates;
+        private final byte[] amounts;
+        private final boolean withAmounts;
+        private int datesPosition;
+        private int amountsPosition;
+        private long value;
+        private long amount;
+
+        private Cursor(SellerTimeline timeline, boolean withAmounts) {
+            this.dates = timeline.dates;
+            this.amounts = timeline.amounts;
+            this.withAmounts = withAmounts;
+        }
+
+        private void next() {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = dates[datesPosition++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += delta;
+
+            if (withAmounts) {
+                long encoded = 0;
+                shift = 0;
+                do {
+                    b = amounts[amountsPosition++];
+                    encoded |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                amount = unzigzag(encoded);
+            }
+        }
+    }
+
+    /**
+     * Сборка ленты из уже отсортированного потока транзакций: пишет в растущие массивы без промежуточных экземпляров.
+     */
+    public static final class Builder {
+
+        private byte[] dates = new byte[64];
+        private int datesLength;
+        private byte[] amounts = new byte[32];
+        private int amountsLength;
+        private int count;
+        private long last;
+
+        private Builder() {
+        }
+
+        //для окон только по числу транзакций
+        public Builder add(LocalDateTime transactionDate) {
+            return add(transactionDate, 0);
+        }
+
+        public Builder add(LocalDateTime transactionDate, double amount) {
+            long micros = toMicros(transactionDate);
+            if (count > 0 && micros < last) {
+                throw new IllegalArgumentException("Transaction dates must be sorted: " + transactionDate);
+            }
+
+            dates = ensureCapacity(dates, datesLength);
+            amounts = ensureCapacity(amounts, amountsLength);
+            datesLength = writeVarint(dates, datesLength, count == 0 ? micros : micros - last);
+            amountsLength = writeVarint(amounts, amountsLength, zigzag(toCents(amount)));
+            count++;
+            last = micros;
+            return this;
+        }
+
+        //обрезаем запас, оставляя место под одно дописывание
+        public SellerTimeline build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            return new SellerTimeline(Arrays.copyOf(dates, datesLength + MAX_VARINT_BYTES), datesLength,
+                    Arrays.copyOf(amounts, amountsLength + MAX_VARINT_BYTES), amountsLength, count, last);
+        }
+    }
+}
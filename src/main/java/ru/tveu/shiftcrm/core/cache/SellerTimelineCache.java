@@ -0,0 +1,243 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.core.event.RemoteCacheResetEvent;
+import ru.tveu.shiftcrm.core.event.RemoteSellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.RemoteTransactionsCreatedEvent;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsDetachedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsImportedEvent;
+import ru.tveu.shiftcrm.core.repository.TransactionRepository;
+import ru.tveu.shiftcrm.core.repository.projection.TimelineEntry;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * LRU-кэш лент {@link SellerTimeline} по продавцам, ограниченный суммарным размером сжатых массивов.
+ * Лента грузится один раз проекцией только по transaction_date и дальше дописывается событиями о новых транзакциях.
+ * Транзакции других узлов приходят через {@link SellerCacheInvalidator} и сбрасывают ленты своих продавцов.
+ */
+@Component
+@Slf4j
+public class SellerTimelineCache {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final long maxBytes;
+    //строк транзакций на одну загрузку ленты: столько читает промах кэша
+    private final DistributionSummary loadedRows;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, SellerTimeline> timelines = new LinkedHashMap<>(16, 0.75f, true);
+    //загрузки в процессе: событие во время загрузки помечает ее устаревшей, такую ленту не кладем в кэш
+    private final Map<Long, LoadTicket> loading = new HashMap<>();
+    private long totalBytes;
+
+    public SellerTimelineCache(TransactionRepository transactionRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${shiftcrm.analysis.timeline.max-bytes:67108864}") long maxBytes) {
+        this.transactionRepository = transactionRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.maxBytes = maxBytes;
+        this.loadedRows = DistributionSummary.builder("seller.timeline.rows")
+                .description("Transactions read per seller timeline load")
+                .baseUnit("rows")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public SellerTimeline get(Long sellerId) {
+        LoadTicket ticket;
+        lock.lock();
+        try {
+            SellerTimeline cached = timelines.get(sellerId);
+            if (cached != null) {
+                return cached;
+            }
+            ticket = loading.computeIfAbsent(sellerId, id -> new LoadTicket());
+            ticket.loaders++;
+        } finally {
+            lock.unlock();
+        }
+
+        SellerTimeline loaded;
+        try {
+            loaded = load(sellerId);
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                release(sellerId, ticket);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            release(sellerId, ticket);
+            if (!ticket.stale && !timelines.containsKey(sellerId)) {
+                put(sellerId, loaded);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loaded;
+    }
+
+    public void evict(Long sellerId) {
+        lock.lock();
+        try {
+            markLoadStale(sellerId);
+            SellerTimeline removed = timelines.remove(sellerId);
+            if (removed != null) {
+                totalBytes -= removed.sizeInBytes();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            loading.values().forEach(ticket -> ticket.stale = true);
+            timelines.clear();
+            totalBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Seller timeline cache cleared");
+    }
+
+    //после коммита удаления: раньше параллельная загрузка успела бы положить ленту обратно, а откат удалил бы живую
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSellerChanged(SellerChangedEvent event) {
+        if (event.deleted()) {
+            evict(event.sellerId());
+        }
+    }
+
+    //строки COPY приходят не по порядку дат: ленты затронутых продавцов перечитываются при следующем запросе
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsImported(TransactionsImportedEvent event) {
+        event.sellerIds().forEach(this::evict);
+    }
+
+    //продавцов отключенного месяца не знаем: ленты перечитываются при следующем запросе уже без него
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsDetached(TransactionsDetachedEvent event) {
+        clear();
+    }
+
+    //чужая транзакция приходит с задержкой и могла уже попасть в ленту, загруженную после ее коммита:
+    //дописывать нельзя, продавец перечитывается при следующем запросе
+    @EventListener
+    public void onRemoteTransactionsCreated(RemoteTransactionsCreatedEvent event) {
+        event.transactions().stream()
+                .map(TransactionCreatedEvent::sellerId)
+                .distinct()
+                .forEach(this::evict);
+    }
+
+    @EventListener
+    public void onRemoteCacheReset(RemoteCacheResetEvent event) {
+        clear();
+    }
+
+    @EventListener
+    public void onRemoteSellerChanged(RemoteSellerChangedEvent event) {
+        if (event.deleted()) {
+            evict(event.sellerId());
+        }
+    }
+
+    //после коммита: откатившиеся транзакции в ленту не попадают; вне транзакции - сразу
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionCreated(TransactionCreatedEvent event) {
+        lock.lock();
+        try {
+            markLoadStale(event.sellerId());
+
+            SellerTimeline current = timelines.get(event.sellerId());
+            if (current == null) {
+                return;
+            }
+
+            SellerTimeline appended = current.append(event.transactionDate(), event.amount());
+            timelines.remove(event.sellerId());
+            totalBytes -= current.sizeInBytes();
+            //вставка не по порядку (параллельные коммиты): проще перечитать ленту при следующем запросе
+            if (appended != null) {
+                put(event.sellerId(), appended);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SellerTimeline load(Long sellerId) {
+        log.info("Loading transaction timeline for seller with ID: {}", sellerId);
+
+        SellerTimeline timeline = readOnlyTransactionTemplate.execute(status -> {
+            SellerTimeline.Builder builder = SellerTimeline.builder();
+            try (Stream<TimelineEntry> entries = transactionRepository.streamTimelineBySellerId(sellerId)) {
+                entries.forEach(entry -> builder.add(entry.transactionDate(), entry.amount()));
+            }
+            return builder.build();
+        });
+
+        loadedRows.record(timeline.count());
+        log.info("Timeline for seller with ID {} loaded: {} transactions, {} bytes", sellerId, timeline.count(), timeline.sizeInBytes());
+        return timeline;
+    }
+
+    private void put(Long sellerId, SellerTimeline timeline) {
+        if (timeline.sizeInBytes() > maxBytes) {
+            return;
+        }
+
+        timelines.put(sellerId, timeline);
+        totalBytes += timeline.sizeInBytes();
+
+        Iterator<SellerTimeline> eldest = timelines.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().sizeInBytes();
+            eldest.remove();
+        }
+    }
+
+    private void release(Long sellerId, LoadTicket ticket) {
+        if (--ticket.loaders == 0) {
+            loading.remove(sellerId);
+        }
+    }
+
+    private void markLoadStale(Long sellerId) {
+        LoadTicket ticket = loading.get(sellerId);
+        if (ticket != null) {
+            ticket.stale = true;
+        }
+    }
+
+    private static final class LoadTicket {
+        private int loaders;
+        private boolean stale;
+    }
+}
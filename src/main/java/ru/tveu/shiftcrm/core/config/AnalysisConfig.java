@@ -0,0 +1,25 @@
+package ru.tveu.shiftcrm.core.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.tveu.shiftcrm.core.service.AnalysisService;
+import ru.tveu.shiftcrm.core.service.CachingAnalysisService;
+import ru.tveu.shiftcrm.core.service.CoalescingAnalysisService;
+
+/**
+ * Слои аналитики: {@link CachingAnalysisService} -> {@link CoalescingAnalysisService} -> SlidingWindowAnalysisService.
+ * При включенном кэше основной AnalysisService - кэш, без него - слой склейки, чтобы одинаковые запросы
+ * не считались параллельно и при shiftcrm.analysis.cache.enabled=false.
+ */
+@Configuration
+public class AnalysisConfig {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "shiftcrm.analysis.cache.enabled", havingValue = "false")
+    public AnalysisService uncachedAnalysisService(CoalescingAnalysisService coalescingAnalysisService) {
+        return coalescingAnalysisService;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.tveu.shiftcrm.core.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Кэши Spring Cache. Размер, время жизни и статистика задаются в spring.cache.caffeine.spec.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String SELLERS = "sellers";
+
+    /**
+     * На виртуальных потоках кэш переводится в асинхронный режим. В синхронном Caffeine загрузка при промахе
+     * (sync = true) идет внутри ConcurrentHashMap.compute под монитором, и запрос к БД закрепляет носитель;
+     * в асинхронном под монитором только кладется future, а сама загрузка идет в отдельном виртуальном потоке.
+     */
+    @Bean
+    @ConditionalOnClass(Caffeine.class)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public CacheManagerCustomizer<CaffeineCacheManager> virtualThreadCacheCustomizer(CacheProperties cacheProperties) {
+        return cacheManager -> {
+            String spec = cacheProperties.getCaffeine().getSpec();
+            Caffeine<Object, Object> caffeine = StringUtils.hasText(spec) ? Caffeine.from(spec) : Caffeine.newBuilder();
+            cacheManager.setCaffeine(caffeine.executor(Executors.newVirtualThreadPerTaskExecutor()));
+            cacheManager.setAsyncCacheMode(true);
+        };
+    }
+}
@@ -6,10 +6,12 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -36,4 +38,10 @@ public class Seller {
     @CreationTimestamp
     @Column(name = "registration_date", nullable = false)
     private LocalDateTime registrationDate;
+
+    //увеличивается при каждом изменении: по ней строятся ETag продавца
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 }
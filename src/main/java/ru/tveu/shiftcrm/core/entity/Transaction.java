@@ -5,16 +5,21 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -27,12 +32,20 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Transaction {
 
+    public static final String SELLER_FOREIGN_KEY = "fk_seller";
+
+    //пул из последовательности, чтобы hibernate мог батчить вставки (IDENTITY это запрещает)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_id_seq")
+    @SequenceGenerator(name = "transaction_id_seq", sequenceName = "transaction_id_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
-    @JoinColumn(name = "seller_id", referencedColumnName = "id", nullable = false)
+    //LAZY: на чтении нужен только seller_id, а он есть в прокси без загрузки продавца
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JoinColumn(name = "seller_id", referencedColumnName = "id", nullable = false,
+            foreignKey = @ForeignKey(name = SELLER_FOREIGN_KEY))
     private Seller seller;
 
     @Column(nullable = false)
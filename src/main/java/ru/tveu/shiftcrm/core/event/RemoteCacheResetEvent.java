@@ -0,0 +1,8 @@
+package ru.tveu.shiftcrm.core.event;
+
+/**
+ * Изменения других узлов могли пройти мимо этого узла: потеряно соединение с LISTEN, другой узел не смог
+ * разослать свои транзакции или загрузил данные через COPY. Кэши с данными транзакций сбрасываются целиком.
+ */
+public record RemoteCacheResetEvent() {
+}
@@ -0,0 +1,8 @@
+package ru.tveu.shiftcrm.core.event;
+
+/**
+ * Продавец изменен или удален на другом узле: приходит через NOTIFY (см. SellerCacheInvalidator) после коммита.
+ * Кэш продавцов сбрасывается самим SellerCacheInvalidator, остальные кэши сбрасывают данные продавца по этому событию.
+ */
+public record RemoteSellerChangedEvent(Long sellerId, boolean deleted) {
+}
@@ -0,0 +1,13 @@
+package ru.tveu.shiftcrm.core.event;
+
+import java.util.List;
+
+/**
+ * Транзакции, закоммиченные на другом узле: приходят пачкой через NOTIFY (см. SellerCacheInvalidator)
+ * с задержкой до интервала рассылки. Локальный {@link TransactionCreatedEvent} по ним не публикуется,
+ * чтобы метрики и прочие слушатели записи не учитывали чужие транзакции.
+ */
+public record RemoteTransactionsCreatedEvent(
+        List<TransactionCreatedEvent> transactions
+) {
+}
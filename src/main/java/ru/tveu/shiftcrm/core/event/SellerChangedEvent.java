@@ -0,0 +1,16 @@
+package ru.tveu.shiftcrm.core.event;
+
+/**
+ * Публикуется после изменения или удаления продавца: по нему сбрасываются кэшированные данные продавца.
+ * Ленты и суммы транзакций сбрасываются только при удалении - изменение имени или контактов их не трогает.
+ */
+public record SellerChangedEvent(Long sellerId, boolean deleted) {
+
+    public static SellerChangedEvent updated(Long sellerId) {
+        return new SellerChangedEvent(sellerId, false);
+    }
+
+    public static SellerChangedEvent deleted(Long sellerId) {
+        return new SellerChangedEvent(sellerId, true);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.tveu.shiftcrm.core.event;
+
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Transaction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Публикуется после сохранения транзакции любым путем записи (одиночный, bulk, group commit).
+ */
+public record TransactionCreatedEvent(
+        Long transactionId,
+        Long sellerId,
+        double amount,
+        PaymentType paymentType,
+        LocalDateTime transactionDate
+) {
+
+    public static TransactionCreatedEvent of(Transaction transaction) {
+        return new TransactionCreatedEvent(transaction.getId(), transaction.getSeller().getId(), transaction.getAmount(),
+                transaction.getPaymentType(), transaction.getTransactionDate());
+    }
+}
@@ -0,0 +1,13 @@
+package ru.tveu.shiftcrm.core.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Публикуется после отключения секции transaction за [start, end) вместе с ее агрегатами seller_daily_stats:
+ * кэши, которые держат суммы или ленты с этими транзакциями, должны их забыть.
+ */
+public record TransactionsDetachedEvent(
+        LocalDateTime start,
+        LocalDateTime end
+) {
+}
@@ -0,0 +1,13 @@
+package ru.tveu.shiftcrm.core.event;
+
+import java.util.Set;
+
+/**
+ * Публикуется после загрузки транзакций через COPY (генератор, импорт CSV). TransactionCreatedEvent по каждой строке
+ * при этом не публикуются, поэтому кэши по нему перечитывают затронутых продавцов целиком.
+ */
+public record TransactionsImportedEvent(
+        Set<Long> sellerIds,
+        long count
+) {
+}
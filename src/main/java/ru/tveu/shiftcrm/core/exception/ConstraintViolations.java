@@ -0,0 +1,16 @@
+package ru.tveu.shiftcrm.core.exception;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+public class ConstraintViolations {
+
+    public static boolean isViolationOf(Throwable exception, String constraintName) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && constraintName.equalsIgnoreCase(violation.getConstraintName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -7,7 +7,9 @@ import org.springframework.http.HttpStatus;
 public enum ErrorCode {
 
     OBJECT_NOT_FOUND(HttpStatus.NOT_FOUND),
-    BAD_REQUEST(HttpStatus.BAD_REQUEST);
+    BAD_REQUEST(HttpStatus.BAD_REQUEST),
+    TOO_MANY_REQUESTS(HttpStatus.TOO_MANY_REQUESTS),
+    SERVICE_UNAVAILABLE(HttpStatus.SERVICE_UNAVAILABLE);
 
     private final HttpStatus httpStatus;
 
@@ -5,4 +5,56 @@ public class ErrorMessage {
     public static final String SELLER_NOT_FOUND = "Seller not found with id: ";
 
     public static final String TRANSACTION_NOT_FOUND = "Transaction not found with id: ";
+
+    public static final String SELLER_ID_NULL = "sellerId must not be null";
+
+    public static final String UNKNOWN_PAYMENT_TYPE = "Unknown payment type: ";
+
+    public static final String BULK_CHUNK_ROLLED_BACK = "Chunk rolled back: ";
+
+    public static final String MALFORMED_NDJSON = "Malformed NDJSON line, the rest of the body was not read: ";
+
+    public static final String INGEST_QUEUE_FULL = "Transaction ingest queue is full, retry later";
+
+    public static final String INGEST_UNAVAILABLE = "Transaction ingest is not available";
+
+    public static final String INGEST_TIMEOUT = "Transaction was not committed in time";
+
+    public static final String DURATIONS_EMPTY = "durationInDays must contain at least one value";
+
+    public static final String TOO_MANY_DURATIONS = "durationInDays must contain at most %d values";
+
+    public static final String NEGATIVE_DURATION = "durationInDays must not be negative: ";
+
+    public static final String INVALID_CURSOR = "Malformed cursor: ";
+
+    public static final String INVALID_DATE = "Malformed date, expected ISO date-time: ";
+
+    public static final String EXPORT_RANGE_EMPTY = "startDate must not be after endDate";
+
+    public static final String PAGE_SIZE = "size must be between 1 and %d";
+
+    public static final String LEADERBOARD_LIMIT = "limit must be between 1 and %d";
+
+    public static final String LEADERBOARD_NOT_READY = "Seller leaderboard is still loading, retry later";
+
+    public static final String LEADERBOARD_RANGE_NOT_ALIGNED = "startDate and endDate must be aligned to a full hour";
+
+    public static final String LEADERBOARD_RANGE_EMPTY = "startDate must be before endDate";
+
+    public static final String LEADERBOARD_HOURS_EXPIRED = "Hourly totals are kept since %s, earlier bounds must be aligned to a day";
+
+    public static final String IMPORT_HEADER = "CSV header must be: ";
+
+    public static final String IMPORT_INVALID_ROW = "Invalid CSV row %d: %s";
+
+    public static final String IMPORT_REJECTED = "Import rejected by the database: ";
+
+    public static final String GENERATE_RANGE_EMPTY = "start must be before end";
+
+    public static final String GENERATE_PAYMENT_MIX = "paymentMix must have at least one positive weight";
+
+    public static final String GENERATOR_DISABLED = "Synthetic data generator is disabled, set shiftcrm.bulk-load.generator.enabled";
+
+    public static final String IMPORT_DISABLED = "Transaction import is disabled, set shiftcrm.bulk-load.import.enabled";
 }
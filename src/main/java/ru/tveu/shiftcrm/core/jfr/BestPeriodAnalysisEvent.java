@@ -0,0 +1,49 @@
+package ru.tveu.shiftcrm.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import lombok.Setter;
+
+/**
+ * Поиск лучших периодов продавца. Длительность события - весь вызов движка, внутри него отдельно время загрузки
+ * ленты (промах кэша или запрос) и время расчета окон. Поля кроме времен заполняются только при записи события.
+ */
+@Name(BestPeriodAnalysisEvent.NAME)
+@Label("Best Period Analysis")
+@Category({"ShiftCRM", "Analysis"})
+@Description("Best transaction period search for a seller")
+@StackTrace(false)
+@Setter
+public class BestPeriodAnalysisEvent extends Event {
+
+    public static final String NAME = "ru.tveu.shiftcrm.BestPeriodAnalysis";
+
+    @Label("Seller Id")
+    private long sellerId;
+
+    @Label("Durations")
+    @Description("Window lengths in days")
+    private String durations;
+
+    @Label("Weight")
+    private String weight;
+
+    @Label("Rows Scanned")
+    private long rowsScanned;
+
+    @Label("Load Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long loadTime;
+
+    @Label("Compute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long computeTime;
+
+    @Label("Result")
+    private String result;
+}
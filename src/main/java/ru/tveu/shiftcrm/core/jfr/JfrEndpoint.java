@@ -0,0 +1,172 @@
+package ru.tveu.shiftcrm.core.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * /actuator/jfr: одна запись Flight Recorder на узел. GET - состояние, POST - старт с настройками
+ * default или profile, DELETE - остановка и выгрузка .jfr (409 при повторном старте, 404 без записи).
+ * События приложения включаются при любых настройках. Запись пишется на диск и ограничена по размеру и возрасту,
+ * старые чанки отбрасываются. Эндпоинт не открыт в web по умолчанию: выгрузка отдает стеки и данные запросов.
+ */
+@Component
+@Endpoint(id = "jfr")
+@Slf4j
+public class JfrEndpoint {
+
+    private static final String RECORDING_NAME = "shiftcrm";
+    private static final String DEFAULT_SETTINGS = "default";
+    private static final String JFR_CONTENT_TYPE = "application/octet-stream";
+    //переменные окружения, системные свойства и аргументы JVM: в них пароль БД и другие секреты
+    static final List<String> SECRET_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation");
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long maxSizeBytes;
+    private final Duration maxAge;
+    private Recording recording;
+
+    public JfrEndpoint(@Value("${shiftcrm.jfr.max-size-bytes:268435456}") long maxSizeBytes,
+                       @Value("${shiftcrm.jfr.max-age-ms:3600000}") long maxAgeMillis) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxAge = Duration.ofMillis(maxAgeMillis);
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        lock.lock();
+        try {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", recording != null);
+            if (recording != null) {
+                status.put("name", recording.getName());
+                status.put("startTime", recording.getStartTime().toString());
+                status.put("sizeBytes", recording.getSize());
+                status.put("maxSizeBytes", recording.getMaxSize());
+                status.put("maxAge", recording.getMaxAge().toString());
+            }
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param settings имя встроенных настроек JFR: default (около 1% накладных расходов) или profile
+     */
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> start(@Nullable String settings) {
+        String name = settings == null ? DEFAULT_SETTINGS : settings;
+        lock.lock();
+        try {
+            if (recording != null) {
+                return new WebEndpointResponse<>(status(), HttpStatus.CONFLICT.value());
+            }
+
+            Configuration configuration;
+            try {
+                configuration = Configuration.getConfiguration(name);
+            } catch (IOException | ParseException e) {
+                return new WebEndpointResponse<>(Map.of("error", "unknown settings: " + name), WebEndpointResponse.STATUS_BAD_REQUEST);
+            }
+
+            Recording started = new Recording(configuration);
+            started.setName(RECORDING_NAME);
+            started.enable(BestPeriodAnalysisEvent.class);
+            started.enable(TransactionCreateEvent.class);
+            SECRET_EVENTS.forEach(started::disable);
+            started.setToDisk(true);
+            started.setMaxSize(maxSizeBytes);
+            started.setMaxAge(maxAge);
+            started.start();
+            recording = started;
+
+            log.info("JFR recording started with {} settings", name);
+            return new WebEndpointResponse<>(status());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @DeleteOperation(produces = JFR_CONTENT_TYPE)
+    public WebEndpointResponse<Resource> stop() throws IOException {
+        Recording stopped;
+        lock.lock();
+        try {
+            if (recording == null) {
+                return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+            }
+            stopped = recording;
+            recording = null;
+        } finally {
+            lock.unlock();
+        }
+
+        //выгрузка на диск идет без блокировки: новую запись можно запускать сразу
+        try (stopped) {
+            if (stopped.getState() == RecordingState.RUNNING) {
+                stopped.stop();
+            }
+            Path dump = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+            stopped.dump(dump);
+            log.info("JFR recording dumped, {} bytes", Files.size(dump));
+            return new WebEndpointResponse<>(new TemporaryFileResource(dump.toFile()));
+        }
+    }
+
+    //файл удаляется, как только контейнер дочитал его в ответ
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        private TemporaryFileResource(File file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            //иначе файл может уйти zero-copy в обход getInputStream и остаться на диске
+            return false;
+        }
+    }
+}
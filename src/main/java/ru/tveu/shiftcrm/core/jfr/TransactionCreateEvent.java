@@ -0,0 +1,75 @@
+package ru.tveu.shiftcrm.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+
+import java.util.function.Supplier;
+
+/**
+ * Одиночное создание транзакции: вставка и публикация события, в режиме buffered - вместе с ожиданием group commit.
+ * outcome - CREATED, код ErrorCode или имя класса исключения.
+ */
+@Name(TransactionCreateEvent.NAME)
+@Label("Transaction Create")
+@Category({"ShiftCRM", "Transactions"})
+@Description("Single transaction insert")
+@StackTrace(false)
+@Setter
+public class TransactionCreateEvent extends Event {
+
+    public static final String NAME = "ru.tveu.shiftcrm.TransactionCreate";
+    public static final String CREATED = "CREATED";
+
+    @Label("Seller Id")
+    private long sellerId;
+
+    @Label("Transaction Id")
+    private long transactionId;
+
+    @Label("Amount")
+    private double amount;
+
+    @Label("Payment Type")
+    private String paymentType;
+
+    @Label("Outcome")
+    private String outcome;
+
+    //общая обертка для прямой и буферизованной записи: время создания видно в записи при любом режиме
+    public static TransactionDTO record(TransactionCreateRequest createRequest, Supplier<TransactionDTO> create) {
+        TransactionCreateEvent event = new TransactionCreateEvent();
+        event.begin();
+        String outcome = CREATED;
+        Long transactionId = null;
+        try {
+            TransactionDTO created = create.get();
+            transactionId = created.id();
+            return created;
+        } catch (ServiceException e) {
+            outcome = e.getErrorCode().name();
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                //-1 вместо null: у полей событий JFR нет пустых чисел
+                event.setSellerId(createRequest.sellerId() == null ? -1 : createRequest.sellerId());
+                event.setTransactionId(transactionId == null ? -1 : transactionId);
+                event.setAmount(createRequest.amount());
+                event.setPaymentType(createRequest.paymentType());
+                event.setOutcome(outcome);
+                event.commit();
+            }
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package ru.tveu.shiftcrm.core.mapper;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
 import ru.tveu.shiftcrm.api.dto.SellerCreateRequest;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
 import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.repository.projection.SellerView;
 
 @Component
 public class SellerMapper {
@@ -24,10 +26,26 @@ public class SellerMapper {
                 .name(seller.getName())
                 .contactInfo(seller.getContactInfo())
                 .registrationDate(seller.getRegistrationDate().toString())
+                .version(seller.getVersion())
+                .build();
+    }
+
+    public SellerDTO map(SellerView seller) {
+
+        return SellerDTO.builder()
+                .id(seller.id())
+                .name(seller.name())
+                .contactInfo(seller.contactInfo())
+                .registrationDate(seller.registrationDate().toString())
+                .version(seller.version())
                 .build();
     }
 
     public Page<SellerDTO> map(Page<Seller> sellers) {
         return sellers.map(this::map);
     }
+
+    public Slice<SellerDTO> map(Slice<Seller> sellers) {
+        return sellers.map(this::map);
+    }
 }
@@ -8,10 +8,8 @@ import ru.tveu.shiftcrm.api.dto.TransactionDTO;
 import ru.tveu.shiftcrm.core.entity.PaymentType;
 import ru.tveu.shiftcrm.core.entity.Seller;
 import ru.tveu.shiftcrm.core.entity.Transaction;
-import ru.tveu.shiftcrm.core.exception.ErrorCode;
-import ru.tveu.shiftcrm.core.exception.ErrorMessage;
-import ru.tveu.shiftcrm.core.exception.ServiceException;
 import ru.tveu.shiftcrm.core.repository.SellerRepository;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionView;
 
 @Component
 @RequiredArgsConstructor
@@ -21,9 +19,13 @@ public class TransactionMapper {
 
     public Transaction map(TransactionCreateRequest createRequest) {
 
-        Seller seller = sellerRepository.findById(createRequest.sellerId())
-                .orElseThrow(() -> new ServiceException(ErrorCode.OBJECT_NOT_FOUND,
-                        ErrorMessage.SELLER_NOT_FOUND + createRequest.sellerId()));
+        //без SELECT'а продавца: существование проверит fk_seller при вставке
+        Seller seller = sellerRepository.getReferenceById(createRequest.sellerId());
+
+        return map(createRequest, seller);
+    }
+
+    public Transaction map(TransactionCreateRequest createRequest, Seller seller) {
 
         return Transaction.builder()
                 .seller(seller)
@@ -43,6 +45,17 @@ public class TransactionMapper {
                 .build();
     }
 
+    public TransactionDTO map(TransactionView transaction) {
+
+        return TransactionDTO.builder()
+                .id(transaction.id())
+                .sellerId(transaction.sellerId())
+                .amount(transaction.amount())
+                .paymentType(transaction.paymentType())
+                .transactionDate(transaction.transactionDate().toString())
+                .build();
+    }
+
     public Page<TransactionDTO> map(Page<Transaction> transactions) {
         return transactions.map(this::map);
     }
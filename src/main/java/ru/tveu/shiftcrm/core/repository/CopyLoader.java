@@ -0,0 +1,182 @@
+package ru.tveu.shiftcrm.core.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Загрузка строк через COPY FROM STDIN (pgjdbc CopyManager) в формате CSV: без разбора SQL и плана на каждую строку,
+ * в разы быстрее батчей INSERT. Каждый вызов copy - один оператор COPY в своей транзакции; statement-level триггер
+ * дневных агрегатов срабатывает на него один раз.
+ */
+@Component
+public class CopyLoader {
+
+    public static final String SELLER_COLUMNS = "seller (id, name, contact_info, registration_date, version)";
+    public static final String TRANSACTION_COLUMNS = "transaction (seller_id, amount, payment_type, transaction_date)";
+
+    private static final String COPY_SQL = "COPY %s FROM STDIN WITH (FORMAT csv)";
+    //id берутся из той же последовательности, что и у INSERT через JPA
+    private static final String RESERVE_SELLER_IDS = "SELECT nextval(pg_get_serial_sequence('seller', 'id')) FROM generate_series(1, ?)";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+    private static final String DATA_EXCEPTION_CLASS = "22";
+    private static final int FLUSH_CHARS = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CopyLoader(DataSource dataSource, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @FunctionalInterface
+    public interface RowProducer {
+
+        void produce(Rows rows) throws SQLException;
+    }
+
+    public List<Long> reserveSellerIds(int count) {
+        return jdbcTemplate.queryForList(RESERVE_SELLER_IDS, Long.class, count);
+    }
+
+    /**
+     * @param table таблица со списком колонок, например {@link #TRANSACTION_COLUMNS}
+     * @return число загруженных строк
+     */
+    public long copy(String table, RowProducer producer) {
+        String sql = COPY_SQL.formatted(table);
+        Long copied = transactionTemplate.execute(status -> {
+            //соединение текущей транзакции: при исключении она откатится вместе с уже переданными строками
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+                try {
+                    Rows rows = new Rows(copyIn);
+                    producer.produce(rows);
+                    rows.flush();
+                    return copyIn.endCopy();
+                } finally {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                }
+            } catch (SQLException e) {
+                throw translate(sql, e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    //ошибки в данных - ошибка клиента, остальное как у JdbcTemplate
+    private static RuntimeException translate(String sql, SQLException e) {
+        String sqlState = e.getSQLState();
+        if (FOREIGN_KEY_VIOLATION.equals(sqlState)) {
+            return new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.IMPORT_REJECTED + e.getMessage());
+        }
+        if (sqlState != null && sqlState.startsWith(DATA_EXCEPTION_CLASS)) {
+            return new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.IMPORT_REJECTED + e.getMessage());
+        }
+        return new SQLStateSQLExceptionTranslator().translate("COPY", sql, e);
+    }
+
+    /**
+     * Строки CSV, которые копятся в буфере и уходят в COPY порциями по {@value #FLUSH_CHARS} символов.
+     * Поля пишутся подряд через {@code field}, строка закрывается {@link #endRow()}.
+     */
+    public static final class Rows {
+
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 1024);
+        private boolean rowStarted;
+
+        private Rows(CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        public Rows field(long value) {
+            separator().append(value);
+            return this;
+        }
+
+        public Rows field(BigDecimal value) {
+            separator().append(value.toPlainString());
+            return this;
+        }
+
+        //ISO с 'T' postgres разбирает сам
+        public Rows field(LocalDateTime value) {
+            separator().append(value);
+            return this;
+        }
+
+        public Rows field(String value) {
+            StringBuilder target = separator();
+            if (needsQuotes(value)) {
+                target.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                target.append(value);
+            }
+            return this;
+        }
+
+        public void endRow() throws SQLException {
+            buffer.append('\n');
+            rowStarted = false;
+            if (buffer.length() >= FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        private StringBuilder separator() {
+            if (rowStarted) {
+                buffer.append(',');
+            }
+            rowStarted = true;
+            return buffer;
+        }
+
+        private void flush() throws SQLException {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        //пустая строка без кавычек в CSV-режиме COPY означает NULL
+        private static boolean needsQuotes(String value) {
+            if (value.isEmpty()) {
+                return true;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.tveu.shiftcrm.core.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Разбиение периода [start, end] на целые дни [fullDaysFrom, fullDaysTo), которые читаются из seller_daily_stats,
+ * и неполные крайние куски [start, rawHeadEnd) и [rawTailStart, end], которые читаются из transaction.
+ */
+public record RollupRange(
+        LocalDateTime start,
+        LocalDateTime end,
+        LocalDate fullDaysFrom,
+        LocalDate fullDaysTo,
+        LocalDateTime rawHeadEnd,
+        LocalDateTime rawTailStart
+) {
+
+    public static RollupRange of(LocalDateTime start, LocalDateTime end) {
+        LocalDate fullDaysFrom = start.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? start.toLocalDate()
+                : start.toLocalDate().plusDays(1);
+        //конец периода включительный, поэтому его день всегда неполный
+        LocalDate fullDaysTo = end.toLocalDate();
+
+        if (!fullDaysFrom.isBefore(fullDaysTo)) {
+            //целых дней нет: весь период читается из сырой таблицы
+            return new RollupRange(start, end, fullDaysFrom, fullDaysFrom, start, start);
+        }
+        return new RollupRange(start, end, fullDaysFrom, fullDaysTo,
+                fullDaysFrom.atStartOfDay(), fullDaysTo.atStartOfDay());
+    }
+
+    //именованные параметры SellerRepository.SELLER_TOTALS для запросов в обход репозитория
+    public Map<String, Object> parameters() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("startDate", start);
+        parameters.put("endDate", end);
+        parameters.put("fullDaysFrom", fullDaysFrom);
+        parameters.put("fullDaysTo", fullDaysTo);
+        parameters.put("rawHeadEnd", rawHeadEnd);
+        parameters.put("rawTailStart", rawTailStart);
+        return parameters;
+    }
+}
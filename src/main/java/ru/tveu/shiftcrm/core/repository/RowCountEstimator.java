@@ -0,0 +1,42 @@
+package ru.tveu.shiftcrm.core.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Приблизительное число строк без COUNT(*): reltuples из pg_class для таблицы целиком
+ * и оценка планировщика (EXPLAIN) для запроса. Точность зависит от свежести ANALYZE.
+ */
+@Component
+@RequiredArgsConstructor
+public class RowCountEstimator {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public long estimateTable(String table) {
+        Double reltuples = jdbcTemplate.queryForObject("SELECT reltuples FROM pg_class WHERE oid = CAST(:table AS regclass)",
+                Map.of("table", table), Double.class);
+
+        //-1: таблицу еще не анализировали, остается оценка планировщика по числу страниц
+        if (reltuples == null || reltuples < 0) {
+            return estimateRows("SELECT * FROM " + table, Map.of());
+        }
+        return reltuples.longValue();
+    }
+
+    public long estimateRows(String sql, Map<String, ?> parameters) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, parameters, String.class);
+
+        try {
+            return objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows").asLong();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unexpected EXPLAIN output: " + plan, e);
+        }
+    }
+}
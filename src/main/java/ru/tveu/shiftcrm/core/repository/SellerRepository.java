@@ -1,7 +1,115 @@
 package ru.tveu.shiftcrm.core.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.repository.projection.SellerView;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
 
 public interface SellerRepository extends JpaRepository<Seller, Long> {
+
+    //суммы продавцов за период: целые дни из seller_daily_stats, крайние неполные дни из transaction
+    String SELLER_TOTALS = "SELECT u.seller_id, SUM(u.amount) AS total FROM (" +
+            "SELECT d.seller_id, d.cash_amount + d.card_amount + d.transfer_amount AS amount " +
+            "FROM seller_daily_stats d " +
+            "WHERE d.day >= :fullDaysFrom AND d.day < :fullDaysTo " +
+            "UNION ALL " +
+            "SELECT t.seller_id, t.amount " +
+            "FROM transaction t " +
+            "WHERE (t.transaction_date >= :startDate AND t.transaction_date < :rawHeadEnd) " +
+            "OR (t.transaction_date >= :rawTailStart AND t.transaction_date <= :endDate)" +
+            ") u GROUP BY u.seller_id";
+
+    String SELLERS_BELOW_THRESHOLD = "SELECT s.* FROM seller s " +
+            "JOIN (" + SELLER_TOTALS + ") totals ON totals.seller_id = s.id " +
+            "WHERE totals.total < :threshold";
+
+    @Query("SELECT s.id FROM Seller s WHERE s.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    String SELLER_VIEW = "SELECT new ru.tveu.shiftcrm.core.repository.projection.SellerView(" +
+            "s.id, s.name, s.contactInfo, s.registrationDate, s.version) FROM Seller s";
+
+    @Query(SELLER_VIEW + " WHERE s.id = :id")
+    Optional<SellerView> findViewById(@Param("id") Long id);
+
+    @Query("SELECT s.version FROM Seller s WHERE s.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query(value = SELLER_VIEW, countQuery = "SELECT COUNT(s) FROM Seller s")
+    Page<SellerView> findAllViews(Pageable pageable);
+
+    //Slice: size + 1 строка вместо отдельного COUNT(*)
+    @Query(SELLER_VIEW)
+    Slice<SellerView> findViewSlice(Pageable pageable);
+
+    default Optional<Seller> findMostProductiveSeller(LocalDateTime startDate, LocalDateTime endDate) {
+        RollupRange range = RollupRange.of(startDate, endDate);
+        return findMostProductiveSeller(range.start(), range.end(), range.fullDaysFrom(), range.fullDaysTo(),
+                range.rawHeadEnd(), range.rawTailStart());
+    }
+
+    default Page<Seller> findSellersWithTransactionsBelowThreshold(LocalDateTime startDate, LocalDateTime endDate,
+                                                                   double threshold, Pageable pageable) {
+        RollupRange range = RollupRange.of(startDate, endDate);
+        return findSellersWithTransactionsBelowThreshold(range.start(), range.end(), range.fullDaysFrom(), range.fullDaysTo(),
+                range.rawHeadEnd(), range.rawTailStart(), threshold, pageable);
+    }
+
+    default Slice<Seller> findSliceOfSellersWithTransactionsBelowThreshold(LocalDateTime startDate, LocalDateTime endDate,
+                                                                          double threshold, Pageable pageable) {
+        RollupRange range = RollupRange.of(startDate, endDate);
+        return findSliceOfSellersWithTransactionsBelowThreshold(range.start(), range.end(), range.fullDaysFrom(), range.fullDaysTo(),
+                range.rawHeadEnd(), range.rawTailStart(), threshold, pageable);
+    }
+
+    @Query(value = "SELECT s.* FROM seller s " +
+            "JOIN (" + SELLER_TOTALS + ") totals ON totals.seller_id = s.id " +
+            "ORDER BY totals.total DESC, s.id " +
+            "LIMIT 1",
+            nativeQuery = true)
+    Optional<Seller> findMostProductiveSeller(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("fullDaysFrom") LocalDate fullDaysFrom,
+            @Param("fullDaysTo") LocalDate fullDaysTo,
+            @Param("rawHeadEnd") LocalDateTime rawHeadEnd,
+            @Param("rawTailStart") LocalDateTime rawTailStart
+    );
+
+
+    @Query(value = SELLERS_BELOW_THRESHOLD,
+            countQuery = "SELECT COUNT(*) FROM (" + SELLER_TOTALS + ") totals WHERE totals.total < :threshold",
+            nativeQuery = true)
+    Page<Seller> findSellersWithTransactionsBelowThreshold(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("fullDaysFrom") LocalDate fullDaysFrom,
+            @Param("fullDaysTo") LocalDate fullDaysTo,
+            @Param("rawHeadEnd") LocalDateTime rawHeadEnd,
+            @Param("rawTailStart") LocalDateTime rawTailStart,
+            @Param("threshold") double threshold,
+            Pageable pageable
+    );
+
+    @Query(value = SELLERS_BELOW_THRESHOLD, nativeQuery = true)
+    Slice<Seller> findSliceOfSellersWithTransactionsBelowThreshold(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("fullDaysFrom") LocalDate fullDaysFrom,
+            @Param("fullDaysTo") LocalDate fullDaysTo,
+            @Param("rawHeadEnd") LocalDateTime rawHeadEnd,
+            @Param("rawTailStart") LocalDateTime rawTailStart,
+            @Param("threshold") double threshold,
+            Pageable pageable
+    );
 }
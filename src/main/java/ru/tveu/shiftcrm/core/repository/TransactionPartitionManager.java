@@ -0,0 +1,126 @@
+package ru.tveu.shiftcrm.core.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.core.event.TransactionsDetachedEvent;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживает помесячные секции transaction (см. V1.6): заранее создает секции на monthsAhead месяцев вперед,
+ * чтобы вставки не попадали в default, и отключает секции старше retentionMonths (0 - хранить все).
+ * Отключенная секция остается отдельной таблицей для архивации; агрегаты seller_daily_stats за ее месяц удаляются
+ * в той же транзакции, что и DETACH, чтобы аналитика и лидерборд не учитывали отключенные строки.
+ */
+@Component
+@ConditionalOnProperty(name = "shiftcrm.transaction.partitioning.enabled", havingValue = "true")
+@Slf4j
+public class TransactionPartitionManager {
+
+    static final String PARENT_TABLE = "transaction";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("transaction_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    static final String DELETE_DAILY_STATS = "DELETE FROM seller_daily_stats WHERE day >= ? AND day < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public TransactionPartitionManager(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       ApplicationEventPublisher eventPublisher,
+                                       @Value("${shiftcrm.transaction.partitioning.months-ahead:3}") int monthsAhead,
+                                       @Value("${shiftcrm.transaction.partitioning.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${shiftcrm.transaction.partitioning.cron:0 0 3 * * *}")
+    public void maintain() {
+        maintain(LocalDate.now());
+    }
+
+    void maintain(LocalDate today) {
+        YearMonth current = YearMonth.from(today);
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            try {
+                createPartition(current.plusMonths(i));
+            } catch (DataAccessException e) {
+                //например, в default уже есть строки этого месяца: их нужно перенести вручную
+                log.warn("Could not create transaction partition for {}: {}", current.plusMonths(i), e.getMessage());
+            }
+        }
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (String partition : findPartitions()) {
+                Matcher matcher = PARTITION_NAME.matcher(partition);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                if (month.isBefore(oldestKept)) {
+                    detachPartition(month);
+                }
+            }
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + PARENT_TABLE +
+                " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        log.info("Transaction partition {} is present", name);
+    }
+
+    private void detachPartition(YearMonth month) {
+        String name = partitionName(month);
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.plusMonths(1).atDay(1);
+
+        //CONCURRENTLY недоступен, пока у таблицы есть default-секция; он же не работает внутри транзакции
+        Integer deletedStats = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + name);
+            return jdbcTemplate.update(DELETE_DAILY_STATS, start, end);
+        });
+        log.info("Transaction partition {} detached, {} daily stats rows deleted", name, deletedStats);
+
+        //после коммита: кэши и лидерборд пересобираются уже без отключенного месяца
+        eventPublisher.publishEvent(new TransactionsDetachedEvent(start.atStartOfDay(), end.atStartOfDay()));
+    }
+
+    private List<String> findPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = ? ORDER BY c.relname", String.class, PARENT_TABLE);
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARENT_TABLE + "_" + month.format(PARTITION_SUFFIX);
+    }
+}
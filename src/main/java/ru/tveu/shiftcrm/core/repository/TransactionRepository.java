@@ -1,41 +1,66 @@
 package ru.tveu.shiftcrm.core.repository;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.tveu.shiftcrm.core.entity.Seller;
 import ru.tveu.shiftcrm.core.entity.Transaction;
+import ru.tveu.shiftcrm.core.repository.projection.TimelineEntry;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionView;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     Page<Transaction> findAllBySeller(Seller seller, Pageable pageable);
     List<Transaction> findAllBySellerOrderByTransactionDateAsc(Seller seller);
 
-    @Query("SELECT t.seller FROM Transaction t " +
-            "WHERE t.transactionDate >= :startDate AND t.transactionDate <= :endDate " +
-            "GROUP BY t.seller " +
-            "ORDER BY SUM(t.amount) DESC " +
-            "LIMIT 1")
-    Optional<Seller> findMostProductiveSeller(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate
-    );
-
-
-    @Query("SELECT t.seller FROM Transaction t " +
-            "WHERE t.transactionDate >= :startDate AND t.transactionDate <= :endDate " +
-            "GROUP BY t.seller " +
-            "HAVING SUM(t.amount) < :threshold")
-    Page<Seller> findSellersWithTransactionsBelowThreshold(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            @Param("threshold") double threshold,
-            Pageable pageable
-    );
+    //чтение для API сразу в TransactionView: без сущностей в persistence context и без загрузки продавца
+    String TRANSACTION_VIEW = "SELECT new ru.tveu.shiftcrm.core.repository.projection.TransactionView(" +
+            "t.id, t.seller.id, t.amount, t.paymentType, t.transactionDate) FROM Transaction t ";
+
+    @Query(TRANSACTION_VIEW + "WHERE t.id = :id")
+    Optional<TransactionView> findViewById(@Param("id") Long id);
+
+    @Query(value = TRANSACTION_VIEW + "WHERE t.seller.id = :sellerId",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.seller.id = :sellerId")
+    Page<TransactionView> findViewsBySellerId(@Param("sellerId") Long sellerId, Pageable pageable);
+
+    //keyset-пагинация по (transaction_date, id): Slice берет size + 1 строку вместо COUNT(*),
+    //а условие transaction_date >= :transactionDate дает границу для спуска по (seller_id, transaction_date)
+    @Query(TRANSACTION_VIEW + "WHERE t.seller.id = :sellerId ORDER BY t.transactionDate, t.id")
+    Slice<TransactionView> findViewsBySellerIdFirst(@Param("sellerId") Long sellerId, Pageable pageable);
+
+    @Query(TRANSACTION_VIEW + "WHERE t.seller.id = :sellerId " +
+            "AND t.transactionDate >= :transactionDate " +
+            "AND (t.transactionDate > :transactionDate OR t.id > :id) " +
+            "ORDER BY t.transactionDate, t.id")
+    Slice<TransactionView> findViewsBySellerIdAfter(@Param("sellerId") Long sellerId,
+                                                    @Param("transactionDate") LocalDateTime transactionDate,
+                                                    @Param("id") Long id,
+                                                    Pageable pageable);
+
+    //валидатор условного GET списков продавца: без продавца строки нет, у продавца без транзакций - (null, null).
+    //отдельные подзапросы без GROUP BY postgres сводит к одной записи с края индексов (seller_id, id) и
+    //(seller_id, transaction_date) в каждой секции, без COUNT по всем транзакциям продавца
+    @Query("SELECT new ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark(" +
+            "(SELECT MAX(t.id) FROM Transaction t WHERE t.seller.id = s.id), " +
+            "(SELECT MIN(t.transactionDate) FROM Transaction t WHERE t.seller.id = s.id)) " +
+            "FROM Seller s WHERE s.id = :sellerId")
+    Optional<TransactionWatermark> findWatermarkBySellerId(@Param("sellerId") Long sellerId);
+
+    //только дата и сумма, курсором по fetch size: для SellerTimeline не нужны ни сущности, ни продавец
+    @Query("SELECT new ru.tveu.shiftcrm.core.repository.projection.TimelineEntry(t.transactionDate, t.amount) " +
+            "FROM Transaction t WHERE t.seller.id = :sellerId ORDER BY t.transactionDate")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "10000"))
+    Stream<TimelineEntry> streamTimelineBySellerId(@Param("sellerId") Long sellerId);
 }
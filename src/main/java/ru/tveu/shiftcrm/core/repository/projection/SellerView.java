@@ -0,0 +1,6 @@
+package ru.tveu.shiftcrm.core.repository.projection;
+
+import java.time.LocalDateTime;
+
+public record SellerView(Long id, String name, String contactInfo, LocalDateTime registrationDate, Long version) {
+}
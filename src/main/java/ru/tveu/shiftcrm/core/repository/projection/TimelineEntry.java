@@ -0,0 +1,6 @@
+package ru.tveu.shiftcrm.core.repository.projection;
+
+import java.time.LocalDateTime;
+
+public record TimelineEntry(LocalDateTime transactionDate, double amount) {
+}
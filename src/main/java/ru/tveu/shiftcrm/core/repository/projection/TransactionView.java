@@ -0,0 +1,9 @@
+package ru.tveu.shiftcrm.core.repository.projection;
+
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+
+import java.time.LocalDateTime;
+
+//строка transaction без сущности: seller_id берется из внешнего ключа, продавец не загружается
+public record TransactionView(Long id, Long sellerId, double amount, PaymentType paymentType, LocalDateTime transactionDate) {
+}
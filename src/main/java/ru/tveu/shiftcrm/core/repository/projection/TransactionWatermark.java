@@ -0,0 +1,11 @@
+package ru.tveu.shiftcrm.core.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Максимальный id и самая ранняя дата транзакций продавца. Транзакции не меняются после создания, новая получает
+ * id больше всех прежних, а уходят они только вместе с продавцом или отключенной секцией старого месяца - то есть
+ * с начала по датам. Поэтому любое изменение списка продавца меняет хотя бы одно из полей.
+ */
+public record TransactionWatermark(Long maxId, LocalDateTime oldestDate) {
+}
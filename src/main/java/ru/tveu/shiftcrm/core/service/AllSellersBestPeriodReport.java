@@ -0,0 +1,122 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.core.cache.SellerTimeline;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лучшее окно для всех продавцов за один проход курсором по (seller_id, transaction_date):
+ * поток чтения собирает ленту очередного продавца и сразу отдает ее в ForkJoinPool, пока читает следующего.
+ * Кэш лент при этом не трогается, чтобы отчет не вытеснял горячих продавцов.
+ */
+@Component
+@Slf4j
+public class AllSellersBestPeriodReport implements DisposableBean {
+
+    private static final String TIMELINES_QUERY = "SELECT t.seller_id, t.transaction_date FROM transaction t " +
+            "ORDER BY t.seller_id, t.transaction_date";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ForkJoinPool pool;
+    private final int fetchSize;
+
+    public AllSellersBestPeriodReport(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${shiftcrm.analysis.report.parallelism:0}") int parallelism,
+                                      @Value("${shiftcrm.analysis.report.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return окна по продавцам в порядке seller_id; продавцы без транзакций в отчет не попадают
+     */
+    public Map<Long, BestPeriod> run(long durationInDays) {
+        return run(durationInDays, pool);
+    }
+
+    Map<Long, BestPeriod> run(long durationInDays, ForkJoinPool pool) {
+        log.info("Computing best {}-day periods for all sellers, parallelism {}", durationInDays, pool.getParallelism());
+        long startedAt = System.nanoTime();
+
+        var splitter = new SellerSplitter(TimeUnit.DAYS.toMicros(durationInDays), pool);
+        //курсор с fetch size в postgres работает только внутри транзакции
+        readOnlyTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(TIMELINES_QUERY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, splitter));
+        splitter.submitCurrent();
+
+        Map<Long, BestPeriod> periods = new LinkedHashMap<>();
+        splitter.tasks.forEach((sellerId, task) -> periods.put(sellerId, task.join()));
+
+        log.info("Best periods computed for {} sellers in {} ms", periods.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        return periods;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private static final class SellerSplitter implements RowCallbackHandler {
+
+        private final long windowMicros;
+        private final ForkJoinPool pool;
+        private final Map<Long, ForkJoinTask<BestPeriod>> tasks = new LinkedHashMap<>();
+
+        private long currentSellerId;
+        private SellerTimeline.Builder current;
+
+        private SellerSplitter(long windowMicros, ForkJoinPool pool) {
+            this.windowMicros = windowMicros;
+            this.pool = pool;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long sellerId = rs.getLong(1);
+            if (current == null || sellerId != currentSellerId) {
+                submitCurrent();
+                currentSellerId = sellerId;
+                current = SellerTimeline.builder();
+            }
+            current.add(rs.getObject(2, LocalDateTime.class));
+        }
+
+        private void submitCurrent() {
+            if (current == null) {
+                return;
+            }
+
+            SellerTimeline timeline = current.build();
+            tasks.put(currentSellerId, pool.submit(() -> {
+                SellerTimeline.Window window = timeline.densestWindow(windowMicros);
+                return new BestPeriod(window.start(), window.end(), window.count());
+            }));
+            current = null;
+        }
+    }
+}
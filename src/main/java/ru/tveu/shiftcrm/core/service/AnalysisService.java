@@ -2,8 +2,14 @@ package ru.tveu.shiftcrm.core.service;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import ru.tveu.shiftcrm.api.dto.PeriodDTO;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.SellerPeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerRankDTO;
+
+import java.util.List;
+import java.util.Map;
 
 public interface AnalysisService {
 
@@ -11,5 +17,14 @@ public interface AnalysisService {
 
     Page<SellerDTO> getSellersWithTransactionsBelowThreshold(String startDate, String endDate, double txSum, Pageable pageable);
 
-    PeriodDTO findBestTransactionPeriod(long durationInDays, Long sellerId);
+    Slice<SellerDTO> getSellersWithTransactionsBelowThreshold(String startDate, String endDate, double txSum, Pageable pageable,
+                                                              CountMode countMode);
+
+    PeriodDTO findBestTransactionPeriod(long durationInDays, Long sellerId, PeriodWeight weight);
+
+    List<SellerPeriodDTO> findBestTransactionPeriodForAllSellers(long durationInDays);
+
+    Map<Long, PeriodDTO> findBestTransactionPeriods(List<Long> durationsInDays, Long sellerId, PeriodWeight weight);
+
+    List<SellerRankDTO> getLeaderboard(String startDate, String endDate, int limit);
 }
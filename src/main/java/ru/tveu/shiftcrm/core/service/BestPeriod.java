@@ -0,0 +1,9 @@
+package ru.tveu.shiftcrm.core.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Самое плотное окно продавца: первая и последняя транзакция окна и их число.
+ */
+public record BestPeriod(LocalDateTime start, LocalDateTime end, long transactionCount) {
+}
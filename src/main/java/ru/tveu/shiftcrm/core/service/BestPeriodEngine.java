@@ -0,0 +1,34 @@
+package ru.tveu.shiftcrm.core.service;
+
+import ru.tveu.shiftcrm.core.jfr.BestPeriodAnalysisEvent;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск окна длиной не больше durationInDays с наибольшим числом (или суммой) транзакций продавца.
+ * Реализация выбирается свойством shiftcrm.analysis.best-period.engine: timeline (по умолчанию) или sql.
+ */
+public interface BestPeriodEngine {
+
+    /**
+     * @return окно по каждой длине в порядке durationsInDays или пустая карта, если у продавца нет транзакций
+     */
+    Map<Long, BestPeriod> find(Long sellerId, List<Long> durationsInDays, PeriodWeight weight);
+
+    /**
+     * То же, с заполнением в event времени загрузки, времени расчета и числа просмотренных строк.
+     * Движок, который не разделяет эти фазы, оставляет их нулевыми.
+     */
+    default Map<Long, BestPeriod> find(Long sellerId, List<Long> durationsInDays, PeriodWeight weight,
+                                       BestPeriodAnalysisEvent event) {
+        return find(sellerId, durationsInDays, weight);
+    }
+
+    /**
+     * @return окно или null, если у продавца нет транзакций
+     */
+    default BestPeriod find(Long sellerId, long durationInDays) {
+        return find(sellerId, List.of(durationInDays), PeriodWeight.COUNT).get(durationInDays);
+    }
+}
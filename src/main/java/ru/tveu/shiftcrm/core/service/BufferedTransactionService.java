@@ -0,0 +1,61 @@
+package ru.tveu.shiftcrm.core.service;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkResultDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionSliceDTO;
+import ru.tveu.shiftcrm.core.jfr.TransactionCreateEvent;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark;
+
+import java.util.Iterator;
+
+@Service
+@Timed(value = "transaction.service", histogram = true)
+@Primary
+@ConditionalOnProperty(name = "shiftcrm.transaction.ingest.mode", havingValue = "buffered")
+@RequiredArgsConstructor
+@Slf4j
+public class BufferedTransactionService implements TransactionService {
+
+    private final TransactionServiceImpl transactionService;
+    private final TransactionWriteBuffer writeBuffer;
+
+    @Override
+    public TransactionDTO create(TransactionCreateRequest createRequest) {
+        log.debug("Queueing a new transaction for group commit");
+        return TransactionCreateEvent.record(createRequest, () -> writeBuffer.write(createRequest));
+    }
+
+    @Override
+    public TransactionBulkResultDTO createAll(Iterator<TransactionCreateRequest> createRequests) {
+        return transactionService.createAll(createRequests);
+    }
+
+    @Override
+    public TransactionDTO get(Long id) {
+        return transactionService.get(id);
+    }
+
+    @Override
+    public Page<TransactionDTO> getAllBySellerId(Long sellerId, Pageable pageable) {
+        return transactionService.getAllBySellerId(sellerId, pageable);
+    }
+
+    @Override
+    public TransactionSliceDTO getAllBySellerIdAfter(Long sellerId, String cursor, int size) {
+        return transactionService.getAllBySellerIdAfter(sellerId, cursor, size);
+    }
+
+    @Override
+    public TransactionWatermark getWatermark(Long sellerId) {
+        return transactionService.getWatermark(sellerId);
+    }
+}
@@ -0,0 +1,372 @@
+package ru.tveu.shiftcrm.core.service;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.tveu.shiftcrm.api.dto.PeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.SellerPeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerRankDTO;
+import ru.tveu.shiftcrm.core.event.RemoteCacheResetEvent;
+import ru.tveu.shiftcrm.core.event.RemoteSellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.RemoteTransactionsCreatedEvent;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsDetachedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsImportedEvent;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов аналитики за период [start, end] поверх {@link CoalescingAnalysisService}.
+ * Результат меняется только от транзакции с датой внутри периода, поэтому новая транзакция сбрасывает лишь
+ * покрывающие ее записи: закрытые прошлые периоды остаются в кэше, пока их не вытеснит LRU по пределу памяти.
+ * Промахи с одинаковыми параметрами склеивает нижний слой: тяжелый агрегат считается один раз.
+ * Транзакции других узлов приходят через SellerCacheInvalidator и сбрасывают записи так же; на случай потерянного
+ * уведомления запись живет не дольше maxAgeMillis.
+ */
+@Service
+@Timed(value = "analysis.service", histogram = true)
+@Primary
+@ConditionalOnProperty(name = "shiftcrm.analysis.cache.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class CachingAnalysisService implements AnalysisService {
+
+    private static final String CACHE_NAME = "analysis";
+
+    //грубая оценка памяти: заголовки объектов и ссылки плюс символы строк
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+    private static final long SELLER_OVERHEAD_BYTES = 96;
+
+    private final CoalescingAnalysisService delegate;
+    private final long maxBytes;
+    private final long maxAgeNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<RangeKey, CachedResult> results = new LinkedHashMap<>(16, 0.75f, true);
+    //ключи по концу периода: транзакция задевает только периоды с концом не раньше ее даты,
+    //а новые транзакции приходят с текущей датой - закрытые периоды при сбросе даже не просматриваются
+    private final TreeMap<LocalDateTime, Set<RangeKey>> keysByEnd = new TreeMap<>();
+    //загрузки в процессе: транзакция внутри периода помечает загрузку устаревшей, такой результат не кладем в кэш
+    private final Map<RangeKey, LoadTicket> loading = new HashMap<>();
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidations;
+
+    public CachingAnalysisService(CoalescingAnalysisService delegate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${shiftcrm.analysis.cache.max-bytes:16777216}") long maxBytes,
+                                  @Value("${shiftcrm.analysis.cache.max-age-ms:3600000}") long maxAgeMillis) {
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        this.invalidations = Counter.builder("cache.invalidations").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, CachingAnalysisService::size).tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.bytes", this, CachingAnalysisService::bytes).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    @Override
+    public SellerDTO getMostProductiveSeller(String startDate, String endDate) {
+        RangeKey key = RangeKey.of("most-productive", startDate, endDate, List.of());
+        return cached(key, () -> delegate.getMostProductiveSeller(startDate, endDate));
+    }
+
+    @Override
+    public Page<SellerDTO> getSellersWithTransactionsBelowThreshold(String startDate, String endDate, double txSum, Pageable pageable) {
+        RangeKey key = RangeKey.of("below-threshold", startDate, endDate, List.of(txSum, pageable));
+        return cached(key, () -> delegate.getSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable));
+    }
+
+    @Override
+    public Slice<SellerDTO> getSellersWithTransactionsBelowThreshold(String startDate, String endDate, double txSum, Pageable pageable,
+                                                                     CountMode countMode) {
+        if (countMode == CountMode.EXACT) {
+            return getSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable);
+        }
+
+        RangeKey key = RangeKey.of("below-threshold-" + countMode, startDate, endDate, List.of(txSum, pageable));
+        Supplier<Slice<SellerDTO>> query =
+                () -> delegate.getSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable, countMode);
+        //оценка берется из статистики postgres и меняется без новых транзакций в периоде: не кэшируем, склеивает delegate
+        return countMode == CountMode.ESTIMATE ? query.get() : cached(key, query);
+    }
+
+    @Override
+    public PeriodDTO findBestTransactionPeriod(long durationInDays, Long sellerId, PeriodWeight weight) {
+        return delegate.findBestTransactionPeriod(durationInDays, sellerId, weight);
+    }
+
+    @Override
+    public List<SellerPeriodDTO> findBestTransactionPeriodForAllSellers(long durationInDays) {
+        return delegate.findBestTransactionPeriodForAllSellers(durationInDays);
+    }
+
+    @Override
+    public Map<Long, PeriodDTO> findBestTransactionPeriods(List<Long> durationsInDays, Long sellerId, PeriodWeight weight) {
+        return delegate.findBestTransactionPeriods(durationsInDays, sellerId, weight);
+    }
+
+    @Override
+    public List<SellerRankDTO> getLeaderboard(String startDate, String endDate, int limit) {
+        return delegate.getLeaderboard(startDate, endDate, limit);
+    }
+
+    //после коммита: откатившиеся транзакции результатов не меняют; вне транзакции - сразу
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionCreated(TransactionCreatedEvent event) {
+        lock.lock();
+        try {
+            invalidate(event.transactionDate());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onRemoteTransactionsCreated(RemoteTransactionsCreatedEvent event) {
+        lock.lock();
+        try {
+            event.transactions().forEach(transaction -> invalidate(transaction.transactionDate()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onRemoteCacheReset(RemoteCacheResetEvent event) {
+        clear();
+    }
+
+    //в результатах лежат DTO продавцов: после переименования или удаления проще сбросить все
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSellerChanged(SellerChangedEvent event) {
+        clear();
+    }
+
+    @EventListener
+    public void onRemoteSellerChanged(RemoteSellerChangedEvent event) {
+        clear();
+    }
+
+    //даты загруженных строк не перебираем: импорт редкий, дешевле сбросить все
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsImported(TransactionsImportedEvent event) {
+        clear();
+    }
+
+    //отключение секции бывает раз в месяц: сбрасываем все, а не только периоды, задевающие отключенный месяц
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsDetached(TransactionsDetachedEvent event) {
+        clear();
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            loading.values().forEach(ticket -> ticket.stale = true);
+            invalidations.increment(results.size());
+            results.clear();
+            keysByEnd.clear();
+            totalBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Analysis cache cleared");
+    }
+
+    //вызывается под lock
+    private void invalidate(LocalDateTime transactionDate) {
+        loading.forEach((key, ticket) -> {
+            if (key.covers(transactionDate)) {
+                ticket.stale = true;
+            }
+        });
+
+        Iterator<Set<RangeKey>> byEnd = keysByEnd.tailMap(transactionDate, true).values().iterator();
+        while (byEnd.hasNext()) {
+            Set<RangeKey> keys = byEnd.next();
+            Iterator<RangeKey> candidates = keys.iterator();
+            while (candidates.hasNext()) {
+                RangeKey key = candidates.next();
+                if (key.covers(transactionDate)) {
+                    candidates.remove();
+                    totalBytes -= results.remove(key).sizeInBytes();
+                    invalidations.increment();
+                }
+            }
+            if (keys.isEmpty()) {
+                byEnd.remove();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(RangeKey key, Supplier<T> loader) {
+        LoadTicket ticket;
+        lock.lock();
+        try {
+            CachedResult cachedResult = results.get(key);
+            //уведомление о транзакции другого узла могло потеряться: старый результат пересчитываем
+            if (cachedResult != null && System.nanoTime() - cachedResult.loadedAtNanos() >= maxAgeNanos) {
+                results.remove(key);
+                totalBytes -= cachedResult.sizeInBytes();
+                unindex(key);
+                evictions.increment();
+                cachedResult = null;
+            }
+            if (cachedResult != null) {
+                hits.increment();
+                return (T) cachedResult.value();
+            }
+            misses.increment();
+            ticket = loading.computeIfAbsent(key, k -> new LoadTicket());
+            ticket.loaders++;
+        } finally {
+            lock.unlock();
+        }
+
+        T value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                release(key, ticket);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            release(key, ticket);
+            if (!ticket.stale && !results.containsKey(key)) {
+                put(key, new CachedResult(value, sizeOf(value), System.nanoTime()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    private void put(RangeKey key, CachedResult cachedResult) {
+        if (cachedResult.sizeInBytes() > maxBytes) {
+            return;
+        }
+
+        results.put(key, cachedResult);
+        keysByEnd.computeIfAbsent(key.end(), end -> new HashSet<>()).add(key);
+        totalBytes += cachedResult.sizeInBytes();
+
+        Iterator<Map.Entry<RangeKey, CachedResult>> eldest = results.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<RangeKey, CachedResult> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue().sizeInBytes();
+            unindex(entry.getKey());
+            evictions.increment();
+        }
+    }
+
+    private void unindex(RangeKey key) {
+        Set<RangeKey> keys = keysByEnd.get(key.end());
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByEnd.remove(key.end());
+        }
+    }
+
+    private void release(RangeKey key, LoadTicket ticket) {
+        if (--ticket.loaders == 0) {
+            loading.remove(key, ticket);
+        }
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return results.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long bytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static long sizeOf(Object value) {
+        long size = ENTRY_OVERHEAD_BYTES;
+        if (value instanceof SellerDTO seller) {
+            size += sizeOf(seller);
+        } else if (value instanceof Slice<?> slice) {
+            for (Object seller : slice.getContent()) {
+                size += sizeOf((SellerDTO) seller);
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOf(SellerDTO seller) {
+        return SELLER_OVERHEAD_BYTES
+                + 2L * (length(seller.name()) + length(seller.contactInfo()) + length(seller.registrationDate()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    //границы периода включительные, как в запросах SellerRepository
+    record RangeKey(String query, LocalDateTime start, LocalDateTime end, List<Object> parameters) {
+
+        static RangeKey of(String query, String startDate, String endDate, List<Object> parameters) {
+            return new RangeKey(query, LocalDateTime.parse(startDate), LocalDateTime.parse(endDate), parameters);
+        }
+
+        boolean covers(LocalDateTime transactionDate) {
+            return !transactionDate.isBefore(start) && !transactionDate.isAfter(end);
+        }
+    }
+
+    private record CachedResult(Object value, long sizeInBytes, long loadedAtNanos) {
+    }
+
+    private static final class LoadTicket {
+        private int loaders;
+        private boolean stale;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.tveu.shiftcrm.core.service;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import ru.tveu.shiftcrm.api.dto.PeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.SellerPeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerRankDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Склейка одинаковых одновременных запросов аналитики поверх {@link SlidingWindowAnalysisService} через
+ * {@link SingleFlight}: тяжелый агрегат считается один раз, остальные вызовы ждут его результат. Работает и без кэша
+ * результатов; при включенном кэше {@link CachingAnalysisService} стоит над этим слоем и склеивает свои промахи.
+ */
+@Service
+@Timed(value = "analysis.service", histogram = true)
+public class CoalescingAnalysisService implements AnalysisService {
+
+    private final SlidingWindowAnalysisService delegate;
+    private final SingleFlight singleFlight;
+
+    public CoalescingAnalysisService(SlidingWindowAnalysisService delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.singleFlight = new SingleFlight(Counter.builder("analysis.requests.coalesced").register(meterRegistry));
+    }
+
+    @Override
+    public SellerDTO getMostProductiveSeller(String startDate, String endDate) {
+        return singleFlight.execute(List.of("most-productive", startDate, endDate),
+                () -> delegate.getMostProductiveSeller(startDate, endDate));
+    }
+
+    @Override
+    public Page<SellerDTO> getSellersWithTransactionsBelowThreshold(String startDate, String endDate, double txSum, Pageable pageable) {
+        return singleFlight.execute(List.of("below-threshold", startDate, endDate, txSum, pageable),
+                () -> delegate.getSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable));
+    }
+
+    @Override
+    public Slice<SellerDTO> getSellersWithTransactionsBelowThreshold(String startDate, String endDate, double txSum, Pageable pageable,
+                                                                     CountMode countMode) {
+        if (countMode == CountMode.EXACT) {
+            return getSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable);
+        }
+        return singleFlight.execute(List.of("below-threshold-" + countMode, startDate, endDate, txSum, pageable),
+                () -> delegate.getSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable, countMode));
+    }
+
+    @Override
+    public PeriodDTO findBestTransactionPeriod(long durationInDays, Long sellerId, PeriodWeight weight) {
+        return delegate.findBestTransactionPeriod(durationInDays, sellerId, weight);
+    }
+
+    @Override
+    public List<SellerPeriodDTO> findBestTransactionPeriodForAllSellers(long durationInDays) {
+        return delegate.findBestTransactionPeriodForAllSellers(durationInDays);
+    }
+
+    @Override
+    public Map<Long, PeriodDTO> findBestTransactionPeriods(List<Long> durationsInDays, Long sellerId, PeriodWeight weight) {
+        return delegate.findBestTransactionPeriods(durationsInDays, sellerId, weight);
+    }
+
+    @Override
+    public List<SellerRankDTO> getLeaderboard(String startDate, String endDate, int limit) {
+        return delegate.getLeaderboard(startDate, endDate, limit);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.tveu.shiftcrm.core.service;
+
+/**
+ * Как считать общее число строк в постраничных списках.
+ */
+public enum CountMode {
+    //отдельный COUNT(*), ответ - Page
+    EXACT,
+    //без подсчета: берется size + 1 строка, ответ - Slice с признаком следующей страницы
+    NONE,
+    //как NONE, плюс оценка планировщика postgres вместо COUNT(*)
+    ESTIMATE
+}
@@ -0,0 +1,22 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.Getter;
+
+/**
+ * Формат выгрузки транзакций продавца.
+ */
+@Getter
+public enum ExportFormat {
+    //заголовок и строка на транзакцию, поля как в TransactionDTO
+    CSV("text/csv;charset=UTF-8", "csv"),
+    //по объекту TransactionDTO на строку
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.tveu.shiftcrm.core.service;
+
+/**
+ * Что максимизирует лучший период: число транзакций или их сумму.
+ */
+public enum PeriodWeight {
+    COUNT,
+    AMOUNT
+}
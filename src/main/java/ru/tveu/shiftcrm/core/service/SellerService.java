@@ -2,6 +2,7 @@ package ru.tveu.shiftcrm.core.service;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import ru.tveu.shiftcrm.api.dto.SellerCreateRequest;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
 import ru.tveu.shiftcrm.api.dto.SellerUpdateRequest;
@@ -14,7 +15,11 @@ public interface SellerService {
 
     SellerDTO get(Long id);
 
+    long getVersion(Long id);
+
     Page<SellerDTO> getAll(Pageable pageable);
 
+    Slice<SellerDTO> getAll(Pageable pageable, CountMode countMode);
+
     void delete(Long id);
 }
@@ -1,27 +1,43 @@
 package ru.tveu.shiftcrm.core.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.tveu.shiftcrm.api.dto.EstimatedPage;
 import ru.tveu.shiftcrm.api.dto.SellerCreateRequest;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
 import ru.tveu.shiftcrm.api.dto.SellerUpdateRequest;
+import ru.tveu.shiftcrm.core.config.CacheConfig;
 import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
 import ru.tveu.shiftcrm.core.exception.ErrorCode;
 import ru.tveu.shiftcrm.core.exception.ErrorMessage;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
 import ru.tveu.shiftcrm.core.mapper.SellerMapper;
+import ru.tveu.shiftcrm.core.repository.RowCountEstimator;
 import ru.tveu.shiftcrm.core.repository.SellerRepository;
+import ru.tveu.shiftcrm.core.repository.projection.SellerView;
 
 @Service
+@Timed(value = "seller.service", histogram = true)
 @RequiredArgsConstructor
 @Slf4j
 public class SellerServiceImpl implements SellerService {
 
+    private static final String SELLER_TABLE = "seller";
+
     private final SellerRepository sellerRepository;
     private final SellerMapper sellerMapper;
+    private final RowCountEstimator rowCountEstimator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ServiceMetrics serviceMetrics;
 
     @Override
     public SellerDTO create(SellerCreateRequest createRequest) {
@@ -29,12 +45,14 @@ public class SellerServiceImpl implements SellerService {
 
         Seller seller = sellerMapper.map(createRequest);
         Seller savedSeller = sellerRepository.save(seller);
+        serviceMetrics.sellerCreated();
 
         log.info("Seller created with ID: {}", savedSeller.getId());
         return sellerMapper.map(savedSeller);
     }
 
     @Override
+    @Transactional
     public SellerDTO update(SellerUpdateRequest updateRequest) {
         log.info("Updating seller with id: {}", updateRequest.id());
 
@@ -56,31 +74,59 @@ public class SellerServiceImpl implements SellerService {
         }
 
         //старасюсь не выполнять дополнитьные sql запросы, если нет изменений
+        //flush сразу: версия увеличивается при flush, а в ответе нужна уже новая
         if (hasChanges) {
-            seller = sellerRepository.save(seller);
+            seller = sellerRepository.saveAndFlush(seller);
+            eventPublisher.publishEvent(SellerChangedEvent.updated(seller.getId()));
             log.info("Seller updated successfully with id: {}", seller.getId());
         }
 
         return sellerMapper.map(seller);
     }
 
+    //sync: при промахе продавца грузит один поток, остальные ждут его результат
     @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.SELLERS, key = "#id", sync = true)
     public SellerDTO get(Long id) {
         log.info("Fetching seller with id: {}", id);
 
-        Seller seller = sellerRepository.findById(id)
+        SellerView seller = sellerRepository.findViewById(id)
                 .orElseThrow(() -> new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND + id));
 
         return sellerMapper.map(seller);
     }
 
+    //для ETag до загрузки продавца: одно поле по первичному ключу
+    @Override
+    @Transactional(readOnly = true)
+    public long getVersion(Long id) {
+        return sellerRepository.findVersionById(id)
+                .orElseThrow(() -> new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND + id));
+    }
+
     @Override
+    @Transactional(readOnly = true)
     public Page<SellerDTO> getAll(Pageable pageable) {
         log.info("Fetching all sellers with pagination");
-        return sellerMapper.map(sellerRepository.findAll(pageable));
+        return sellerRepository.findAllViews(pageable).map(sellerMapper::map);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<SellerDTO> getAll(Pageable pageable, CountMode countMode) {
+        log.info("Fetching all sellers with pagination, count mode: {}", countMode);
+
+        return switch (countMode) {
+            case EXACT -> getAll(pageable);
+            case NONE -> sellerRepository.findViewSlice(pageable).map(sellerMapper::map);
+            case ESTIMATE -> EstimatedPage.of(sellerRepository.findViewSlice(pageable).map(sellerMapper::map),
+                    rowCountEstimator.estimateTable(SELLER_TABLE));
+        };
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
         log.info("Deleting seller with id: {}", id);
 
@@ -89,6 +135,8 @@ public class SellerServiceImpl implements SellerService {
         }
 
         sellerRepository.deleteById(id);
+        //транзакции удалены каскадом; ленту и лидерборд сбрасывают слушатели после коммита
+        eventPublisher.publishEvent(SellerChangedEvent.deleted(id));
         log.info("Seller deleted successfully with id: {}", id);
     }
 }
@@ -0,0 +1,58 @@
+package ru.tveu.shiftcrm.core.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsImportedEvent;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Счетчики созданных продавцов и транзакций и ошибок сервисов по кодам. Транзакции считаются по событию
+ * после коммита, поэтому одиночная вставка, пакетная загрузка, group commit и COPY учитываются одинаково.
+ */
+@Component
+public class ServiceMetrics {
+
+    private final Counter sellersCreated;
+    private final Counter transactionsCreated;
+    //все коды регистрируются сразу: нулевые серии видны в prometheus до первой ошибки
+    private final Map<ErrorCode, Counter> errors = new EnumMap<>(ErrorCode.class);
+
+    public ServiceMetrics(MeterRegistry meterRegistry) {
+        this.sellersCreated = Counter.builder("seller.created")
+                .description("Sellers created")
+                .register(meterRegistry);
+        this.transactionsCreated = Counter.builder("transaction.created")
+                .description("Transactions committed")
+                .register(meterRegistry);
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            errors.put(errorCode, Counter.builder("service.errors")
+                    .description("Service errors returned to clients")
+                    .tag("code", errorCode.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    public void sellerCreated() {
+        sellersCreated.increment();
+    }
+
+    public void error(ErrorCode errorCode) {
+        errors.get(errorCode).increment();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionCreated(TransactionCreatedEvent event) {
+        transactionsCreated.increment();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsImported(TransactionsImportedEvent event) {
+        transactionsCreated.increment(event.count());
+    }
+}
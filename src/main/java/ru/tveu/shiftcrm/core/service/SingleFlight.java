@@ -0,0 +1,57 @@
+package ru.tveu.shiftcrm.core.service;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Склейка одинаковых одновременных вызовов: пока вычисление по ключу идет, остальные вызовы с тем же ключом
+ * ждут его и получают тот же результат или то же исключение. Завершенные вычисления не запоминаются.
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public SingleFlight(Counter coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> call) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return (T) await(existing);
+        }
+
+        try {
+            T value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
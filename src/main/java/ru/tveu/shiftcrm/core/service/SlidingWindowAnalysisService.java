@@ -1,42 +1,61 @@
 package ru.tveu.shiftcrm.core.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.tveu.shiftcrm.api.dto.EstimatedPage;
 import ru.tveu.shiftcrm.api.dto.PeriodDTO;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.SellerPeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerRankDTO;
+import ru.tveu.shiftcrm.core.cache.SellerLeaderboard;
 import ru.tveu.shiftcrm.core.entity.Seller;
-import ru.tveu.shiftcrm.core.entity.Transaction;
 import ru.tveu.shiftcrm.core.exception.ErrorCode;
 import ru.tveu.shiftcrm.core.exception.ErrorMessage;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.jfr.BestPeriodAnalysisEvent;
 import ru.tveu.shiftcrm.core.mapper.SellerMapper;
+import ru.tveu.shiftcrm.core.repository.RollupRange;
+import ru.tveu.shiftcrm.core.repository.RowCountEstimator;
 import ru.tveu.shiftcrm.core.repository.SellerRepository;
-import ru.tveu.shiftcrm.core.repository.TransactionRepository;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "analysis.service", histogram = true)
 @RequiredArgsConstructor
 @Slf4j
 public class SlidingWindowAnalysisService implements AnalysisService {
 
-    private final TransactionRepository transactionRepository;
+    //у каждой длины окна свой указатель начала, поэтому их число ограничено
+    private static final int MAX_DURATIONS = 32;
+    private static final int MAX_LEADERBOARD_LIMIT = 1000;
+
     private final SellerMapper sellerMapper;
     private final SellerRepository sellerRepository;
+    private final BestPeriodEngine bestPeriodEngine;
+    private final AllSellersBestPeriodReport allSellersBestPeriodReport;
+    private final SellerLeaderboard sellerLeaderboard;
+    private final RowCountEstimator rowCountEstimator;
 
     @Override
+    @Transactional(readOnly = true)
     public SellerDTO getMostProductiveSeller(String startDate, String endDate) {
         log.info("Getting most productive seller");
 
         LocalDateTime startTime = LocalDateTime.parse(startDate);
         LocalDateTime endTime = LocalDateTime.parse(endDate);
 
-        Seller seller = transactionRepository.findMostProductiveSeller(startTime, endTime)
+        Seller seller = sellerRepository.findMostProductiveSeller(startTime, endTime)
                 .orElseThrow(() -> new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "there is no sellers in this period"));
 
 
@@ -45,60 +64,146 @@ public class SlidingWindowAnalysisService implements AnalysisService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<SellerDTO> getSellersWithTransactionsBelowThreshold(String startDate, String endDate, double txSum, Pageable pageable) {
         log.info("Getting sellers with below threshold");
 
         LocalDateTime startTime = LocalDateTime.parse(startDate);
         LocalDateTime endTime = LocalDateTime.parse(endDate);
 
-        Page<Seller> sellers = transactionRepository.findSellersWithTransactionsBelowThreshold(startTime, endTime, txSum, pageable);
+        Page<Seller> sellers = sellerRepository.findSellersWithTransactionsBelowThreshold(startTime, endTime, txSum, pageable);
 
         log.info("Got sellers with below threshold");
         return sellerMapper.map(sellers);
     }
 
     @Override
-    public PeriodDTO findBestTransactionPeriod(long durationInDays, Long sellerId) {
-        log.info("Getting best transaction period");
+    @Transactional(readOnly = true)
+    public Slice<SellerDTO> getSellersWithTransactionsBelowThreshold(String startDate, String endDate, double txSum, Pageable pageable,
+                                                                     CountMode countMode) {
+        if (countMode == CountMode.EXACT) {
+            return getSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable);
+        }
+        log.info("Getting sellers with below threshold, count mode: {}", countMode);
+
+        LocalDateTime startTime = LocalDateTime.parse(startDate);
+        LocalDateTime endTime = LocalDateTime.parse(endDate);
+
+        Slice<SellerDTO> sellers = sellerMapper.map(
+                sellerRepository.findSliceOfSellersWithTransactionsBelowThreshold(startTime, endTime, txSum, pageable));
+        if (countMode == CountMode.NONE) {
+            return sellers;
+        }
 
-        Seller seller = sellerRepository.findById(sellerId)
-                .orElseThrow(() -> new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND));
+        Map<String, Object> parameters = RollupRange.of(startTime, endTime).parameters();
+        parameters.put("threshold", txSum);
+        return EstimatedPage.of(sellers, rowCountEstimator.estimateRows(SellerRepository.SELLERS_BELOW_THRESHOLD, parameters));
+    }
+
+    @Override
+    public PeriodDTO findBestTransactionPeriod(long durationInDays, Long sellerId, PeriodWeight weight) {
+        log.info("Getting best transaction period by {}", weight);
 
-        List<Transaction> sellerTransactions = transactionRepository.findAllBySellerOrderByTransactionDateAsc(seller);
+        checkDuration(durationInDays);
+        BestPeriod period = findPeriods(sellerId, List.of(durationInDays), weight).get(durationInDays);
 
-        if (sellerTransactions.isEmpty()) {
-            throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "No transactions found for seller with id: " + sellerId);
+        if (period == null) {
+            throw noTransactions(sellerId);
         }
 
-        var duration = Duration.ofDays(durationInDays);
+        return new PeriodDTO(period.start().toString(), period.end().toString());
+    }
+
+    @Override
+    public Map<Long, PeriodDTO> findBestTransactionPeriods(List<Long> durationsInDays, Long sellerId, PeriodWeight weight) {
+        log.info("Getting best transaction periods for {} durations by {}", durationsInDays.size(), weight);
+
+        if (durationsInDays.isEmpty()) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.DURATIONS_EMPTY);
+        }
+        if (durationsInDays.size() > MAX_DURATIONS) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.TOO_MANY_DURATIONS.formatted(MAX_DURATIONS));
+        }
+        durationsInDays.forEach(SlidingWindowAnalysisService::checkDuration);
 
-        LocalDateTime bestStart = null;
-        LocalDateTime bestEnd = null;
-        int maxTransactions = 0;
+        Map<Long, BestPeriod> periods = findPeriods(sellerId, durationsInDays, weight);
 
-        int start = 0;
-        for (int end = 0; end < sellerTransactions.size(); end++) {
-            Transaction endTransaction = sellerTransactions.get(end);
-            LocalDateTime endTime = endTransaction.getTransactionDate();
+        if (periods.isEmpty()) {
+            throw noTransactions(sellerId);
+        }
 
+        Map<Long, PeriodDTO> result = new LinkedHashMap<>();
+        periods.forEach((duration, period) -> result.put(duration, new PeriodDTO(period.start().toString(), period.end().toString())));
+        return result;
+    }
 
-            while (start < end && Duration.between(sellerTransactions.get(start).getTransactionDate(), endTime).compareTo(duration) > 0) {
-                start++;
-            }
+    @Override
+    public List<SellerPeriodDTO> findBestTransactionPeriodForAllSellers(long durationInDays) {
+        log.info("Getting best transaction periods for all sellers");
+
+        checkDuration(durationInDays);
+
+        List<SellerPeriodDTO> periods = allSellersBestPeriodReport.run(durationInDays).entrySet().stream()
+                .map(entry -> SellerPeriodDTO.builder()
+                        .sellerId(entry.getKey())
+                        .dateStart(entry.getValue().start().toString())
+                        .dateEnd(entry.getValue().end().toString())
+                        .transactionCount(entry.getValue().transactionCount())
+                        .build())
+                .toList();
+
+        log.info("Got best transaction periods for {} sellers", periods.size());
+        return periods;
+    }
 
-            int currentTransactionCount = end - start + 1;
+    @Override
+    public List<SellerRankDTO> getLeaderboard(String startDate, String endDate, int limit) {
+        log.info("Getting top {} sellers from leaderboard", limit);
 
-            if (currentTransactionCount > maxTransactions) {
-                maxTransactions = currentTransactionCount;
-                bestStart = sellerTransactions.get(start).getTransactionDate();
-                bestEnd = endTime;
-            }
+        if (limit < 1 || limit > MAX_LEADERBOARD_LIMIT) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.LEADERBOARD_LIMIT.formatted(MAX_LEADERBOARD_LIMIT));
         }
 
-        if (bestStart == null || bestEnd == null)
-            throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "There is no such period");
+        return sellerLeaderboard.top(LocalDateTime.parse(startDate), LocalDateTime.parse(endDate), limit).stream()
+                .map(rank -> SellerRankDTO.builder()
+                        .sellerId(rank.sellerId())
+                        .totalAmount(rank.amountCents() / 100.0)
+                        .build())
+                .toList();
+    }
 
+    //движки по-разному обходятся с отрицательной длиной (sql зажимает в 0, лента считает окно назад): отсекаем до них
+    private static void checkDuration(long durationInDays) {
+        if (durationInDays < 0) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.NEGATIVE_DURATION + durationInDays);
+        }
+    }
 
-        return new PeriodDTO(bestStart.toString(), bestEnd.toString());
+    //событие JFR: строки для него собираются, только если запись включена и порог пройден
+    private Map<Long, BestPeriod> findPeriods(Long sellerId, List<Long> durationsInDays, PeriodWeight weight) {
+        BestPeriodAnalysisEvent event = new BestPeriodAnalysisEvent();
+        event.begin();
+
+        Map<Long, BestPeriod> periods = bestPeriodEngine.find(sellerId, durationsInDays, weight, event);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setSellerId(sellerId);
+            event.setDurations(durationsInDays.toString());
+            event.setWeight(weight.name());
+            event.setResult(periods.isEmpty() ? "no transactions" : periods.entrySet().stream()
+                    .map(entry -> entry.getKey() + "d: " + entry.getValue().start() + ".." + entry.getValue().end()
+                            + " (" + entry.getValue().transactionCount() + ")")
+                    .collect(Collectors.joining("; ")));
+            event.commit();
+        }
+        return periods;
+    }
+
+    private ServiceException noTransactions(Long sellerId) {
+        if (!sellerRepository.existsById(sellerId)) {
+            return new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND + sellerId);
+        }
+        return new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "No transactions found for seller with id: " + sellerId);
     }
 }
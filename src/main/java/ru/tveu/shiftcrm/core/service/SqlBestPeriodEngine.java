@@ -0,0 +1,69 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Окно считается в postgres оконными функциями по индексу (seller_id, transaction_date): в приложение приходит одна строка.
+ * Рамка RANGE включает все транзакции не раньше чем за duration до текущей, как и левый указатель в {@link TimelineBestPeriodEngine};
+ * при равном числе берется окно с самым ранним концом - тот же выбор, что у строгого сравнения в два указателя.
+ */
+@Component
+@ConditionalOnProperty(name = "shiftcrm.analysis.best-period.engine", havingValue = "sql")
+@RequiredArgsConstructor
+public class SqlBestPeriodEngine implements BestPeriodEngine {
+
+    private static final String BEST_PERIOD_QUERY = "SELECT w.window_start, w.transaction_date AS window_end, w.transaction_count " +
+            "FROM (" +
+            "SELECT t.transaction_date, " +
+            "COUNT(*) OVER sliding AS transaction_count, " +
+            "SUM(t.amount) OVER sliding AS amount_sum, " +
+            "MIN(t.transaction_date) OVER sliding AS window_start " +
+            "FROM transaction t " +
+            "WHERE t.seller_id = :sellerId " +
+            "WINDOW sliding AS (ORDER BY t.transaction_date " +
+            "RANGE BETWEEN make_interval(days => :days) PRECEDING AND CURRENT ROW)" +
+            ") w " +
+            "ORDER BY w.%s DESC, w.transaction_date " +
+            "LIMIT 1";
+
+    private static final String BY_COUNT_QUERY = BEST_PERIOD_QUERY.formatted("transaction_count");
+    private static final String BY_AMOUNT_QUERY = BEST_PERIOD_QUERY.formatted("amount_sum");
+
+    //окно длиннее ~2700 лет покрывает любые данные, а make_interval и вычитание из timestamp не переполняются
+    private static final long MAX_DAYS = 1_000_000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    //по запросу на каждую длину окна: каждый идет по индексу (seller_id, transaction_date) и возвращает одну строку
+    @Override
+    public Map<Long, BestPeriod> find(Long sellerId, List<Long> durationsInDays, PeriodWeight weight) {
+        String query = weight == PeriodWeight.AMOUNT ? BY_AMOUNT_QUERY : BY_COUNT_QUERY;
+        Map<Long, BestPeriod> periods = new LinkedHashMap<>();
+
+        for (Long durationInDays : durationsInDays) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("sellerId", sellerId)
+                    .addValue("days", (int) Math.min(Math.max(durationInDays, 0), MAX_DAYS));
+
+            List<BestPeriod> found = jdbcTemplate.query(query, parameters, (rs, rowNum) -> new BestPeriod(
+                    rs.getObject("window_start", LocalDateTime.class),
+                    rs.getObject("window_end", LocalDateTime.class),
+                    rs.getLong("transaction_count")));
+
+            if (found.isEmpty()) {
+                return Map.of();
+            }
+            periods.put(durationInDays, found.get(0));
+        }
+        return periods;
+    }
+}
@@ -0,0 +1,185 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import ru.tveu.shiftcrm.api.dto.BulkLoadResultDTO;
+import ru.tveu.shiftcrm.api.dto.GenerateRequest;
+import ru.tveu.shiftcrm.core.cache.SellerTimeline;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.event.TransactionsImportedEvent;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.CopyLoader;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Синтетические продавцы и транзакции через COPY. Число транзакций продавца распределено по Zipf: продавец
+ * ранга k получает долю, пропорциональную 1/k^s; ранги раздаются продавцам в случайном порядке. Даты равномерны
+ * в [start, end), суммы логнормальные, тип оплаты по весам. Транзакции грузятся порциями по batchRows строк,
+ * каждая в своей транзакции, поэтому после сбоя уже загруженные порции остаются.
+ */
+@Service
+@ConditionalOnProperty(name = "shiftcrm.bulk-load.generator.enabled", havingValue = "true")
+@Slf4j
+public class SyntheticDataGenerator {
+
+    private static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+    //медиана суммы 1000, хвост редких крупных чеков
+    private static final double AMOUNT_LOG_MEDIAN = Math.log(100_000);
+    private static final double AMOUNT_LOG_SIGMA = 1.0;
+    //DECIMAL(10, 2)
+    private static final long MAX_AMOUNT_CENTS = 9_999_999_999L;
+
+    private final CopyLoader copyLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long batchRows;
+
+    public SyntheticDataGenerator(CopyLoader copyLoader,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${shiftcrm.bulk-load.batch-rows:1000000}") long batchRows) {
+        this.copyLoader = copyLoader;
+        this.eventPublisher = eventPublisher;
+        this.batchRows = batchRows;
+    }
+
+    public BulkLoadResultDTO generate(GenerateRequest request) {
+        LocalDateTime start = parseDate(request.start());
+        LocalDateTime end = parseDate(request.end());
+        if (!start.isBefore(end)) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.GENERATE_RANGE_EMPTY);
+        }
+        PaymentType[] paymentTypes = weightedPaymentTypes(request.paymentMix());
+        double exponent = request.zipfExponent() == null ? DEFAULT_ZIPF_EXPONENT : request.zipfExponent();
+        long seed = request.seed() == null ? ThreadLocalRandom.current().nextLong() : request.seed();
+
+        log.info("Generating {} sellers and {} transactions, zipf exponent {}, seed {}",
+                request.sellers(), request.transactions(), exponent, seed);
+        long startedAt = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+
+        List<Long> sellerIds = copyLoader.reserveSellerIds(request.sellers());
+        copyLoader.copy(CopyLoader.SELLER_COLUMNS, rows -> {
+            for (Long sellerId : sellerIds) {
+                rows.field(sellerId)
+                        .field("Seller " + sellerId)
+                        .field("seller" + sellerId + "@example.com")
+                        .field(start)
+                        .field(0L)
+                        .endRow();
+            }
+        });
+
+        long[] sellersByRank = shuffle(sellerIds, random);
+        ZipfSampler zipf = new ZipfSampler(sellersByRank.length, exponent);
+        long startMicros = SellerTimeline.toMicros(start);
+        long rangeMicros = SellerTimeline.toMicros(end) - startMicros;
+
+        long loaded = 0;
+        while (loaded < request.transactions()) {
+            long batch = Math.min(batchRows, request.transactions() - loaded);
+            loaded += copyLoader.copy(CopyLoader.TRANSACTION_COLUMNS, rows -> {
+                for (long i = 0; i < batch; i++) {
+                    rows.field(sellersByRank[zipf.sample(random)])
+                            .field(amount(random))
+                            .field(paymentTypes[random.nextInt(paymentTypes.length)].name())
+                            .field(SellerTimeline.fromMicros(startMicros + random.nextLong(rangeMicros)))
+                            .endRow();
+                }
+            });
+            log.info("Generated {} of {} transactions", loaded, request.transactions());
+        }
+
+        eventPublisher.publishEvent(new TransactionsImportedEvent(Set.copyOf(sellerIds), loaded));
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        long rows = sellerIds.size() + loaded;
+        double rowsPerSecond = elapsedNanos == 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        log.info("Generated {} sellers and {} transactions, {} rows/sec", sellerIds.size(), loaded, (long) rowsPerSecond);
+        return BulkLoadResultDTO.builder()
+                .sellers(sellerIds.size())
+                .transactions(loaded)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .rowsPerSecond(rowsPerSecond)
+                .build();
+    }
+
+    private static BigDecimal amount(SplittableRandom random) {
+        long cents = Math.round(Math.exp(AMOUNT_LOG_MEDIAN + AMOUNT_LOG_SIGMA * random.nextGaussian()));
+        return BigDecimal.valueOf(Math.max(1, Math.min(cents, MAX_AMOUNT_CENTS)), 2);
+    }
+
+    //тип повторен по своему весу: выбор - один случайный индекс
+    private static PaymentType[] weightedPaymentTypes(Map<PaymentType, Integer> mix) {
+        if (mix == null || mix.isEmpty()) {
+            return PaymentType.values();
+        }
+        List<PaymentType> weighted = new ArrayList<>();
+        mix.forEach((paymentType, weight) -> {
+            for (int i = 0; weight != null && i < weight; i++) {
+                weighted.add(paymentType);
+            }
+        });
+        if (weighted.isEmpty()) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.GENERATE_PAYMENT_MIX);
+        }
+        return weighted.toArray(PaymentType[]::new);
+    }
+
+    private static long[] shuffle(List<Long> ids, SplittableRandom random) {
+        long[] shuffled = ids.stream().mapToLong(Long::longValue).toArray();
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        return shuffled;
+    }
+
+    private static LocalDateTime parseDate(String date) {
+        try {
+            return LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.INVALID_DATE + date);
+        }
+    }
+
+    /**
+     * Ранг по закону Zipf: бинарный поиск по накопленным весам 1/k^s, O(log n) на выборку.
+     */
+    static final class ZipfSampler {
+
+        private final double[] cumulative;
+
+        ZipfSampler(int size, double exponent) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 1; rank <= size; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, target);
+            int rank = index >= 0 ? index : -index - 1;
+            return Math.min(rank, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.tveu.shiftcrm.core.cache.SellerTimeline;
+import ru.tveu.shiftcrm.core.cache.SellerTimelineCache;
+import ru.tveu.shiftcrm.core.jfr.BestPeriodAnalysisEvent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//два указателя по закэшированной ленте в памяти приложения, все длины окна за один проход
+@Component
+@ConditionalOnProperty(name = "shiftcrm.analysis.best-period.engine", havingValue = "timeline", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TimelineBestPeriodEngine implements BestPeriodEngine {
+
+    private final SellerTimelineCache sellerTimelineCache;
+
+    @Override
+    public Map<Long, BestPeriod> find(Long sellerId, List<Long> durationsInDays, PeriodWeight weight) {
+        return find(sellerId, durationsInDays, weight, new BestPeriodAnalysisEvent());
+    }
+
+    @Override
+    public Map<Long, BestPeriod> find(Long sellerId, List<Long> durationsInDays, PeriodWeight weight,
+                                      BestPeriodAnalysisEvent event) {
+        long[] windowsMicros = durationsInDays.stream().mapToLong(TimeUnit.DAYS::toMicros).toArray();
+        long startedAt = System.nanoTime();
+        SellerTimeline timeline = sellerTimelineCache.get(sellerId);
+        long loadedAt = System.nanoTime();
+        SellerTimeline.Window[] windows = timeline.bestWindows(windowsMicros, weight == PeriodWeight.AMOUNT);
+
+        event.setLoadTime(loadedAt - startedAt);
+        event.setComputeTime(System.nanoTime() - loadedAt);
+        event.setRowsScanned(timeline.count());
+
+        if (windows == null) {
+            return Map.of();
+        }
+
+        Map<Long, BestPeriod> periods = new LinkedHashMap<>();
+        for (int i = 0; i < windows.length; i++) {
+            periods.put(durationsInDays.get(i), new BestPeriod(windows[i].start(), windows[i].end(), windows[i].count()));
+        }
+        return periods;
+    }
+}
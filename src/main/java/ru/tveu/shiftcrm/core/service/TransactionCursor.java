@@ -0,0 +1,43 @@
+package ru.tveu.shiftcrm.core.service;
+
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция keyset-пагинации транзакций продавца: последняя отданная пара (transaction_date, id).
+ * Клиенту уходит непрозрачной base64url-строкой.
+ */
+public record TransactionCursor(LocalDateTime transactionDate, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static TransactionCursor of(TransactionView transaction) {
+        return new TransactionCursor(transaction.transactionDate(), transaction.id());
+    }
+
+    public String encode() {
+        String value = transactionDate.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.INVALID_CURSOR + token);
+            }
+            return new TransactionCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.INVALID_CURSOR + token);
+        }
+    }
+}
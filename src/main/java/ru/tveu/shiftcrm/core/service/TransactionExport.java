@@ -0,0 +1,14 @@
+package ru.tveu.shiftcrm.core.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Проверенная выгрузка, готовая к записи. Ошибки параметров и отсутствие продавца выясняются до нее,
+ * пока статус ответа еще можно поменять.
+ */
+@FunctionalInterface
+public interface TransactionExport {
+
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,229 @@
+package ru.tveu.shiftcrm.core.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выгрузка всех транзакций продавца (при необходимости за период) в CSV или NDJSON. Строки читаются
+ * серверным курсором по fetchSize и сразу пишутся в поток ответа, поэтому память не зависит от их числа.
+ */
+@Service
+@Slf4j
+public class TransactionExportService {
+
+    private static final String EXPORT_QUERY = "SELECT t.id, t.seller_id, t.amount, t.payment_type, t.transaction_date " +
+            "FROM transaction t WHERE t.seller_id = ?";
+    private static final String START_CONDITION = " AND t.transaction_date >= ?";
+    private static final String END_CONDITION = " AND t.transaction_date <= ?";
+    //порядок как у /transaction/seek: идет по idx_transaction_seller_date
+    private static final String EXPORT_ORDER = " ORDER BY t.transaction_date, t.id";
+
+    static final String CSV_HEADER = "id,seller_id,amount,payment_type,transaction_date";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final SellerRepository sellerRepository;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public TransactionExportService(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    SellerRepository sellerRepository,
+                                    ObjectMapper objectMapper,
+                                    @Value("${shiftcrm.transaction.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.sellerRepository = sellerRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @param startDate начало периода включительно или null
+     * @param endDate   конец периода включительно или null
+     */
+    public TransactionExport prepare(Long sellerId, String startDate, String endDate, ExportFormat format) {
+        LocalDateTime start = parseDate(startDate);
+        LocalDateTime end = parseDate(endDate);
+        if (start != null && end != null && start.isAfter(end)) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.EXPORT_RANGE_EMPTY);
+        }
+
+        if (!sellerRepository.existsById(sellerId)) {
+            throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND + sellerId);
+        }
+
+        return out -> write(sellerId, start, end, format, out);
+    }
+
+    private void write(Long sellerId, LocalDateTime start, LocalDateTime end, ExportFormat format, OutputStream out)
+            throws IOException {
+        log.info("Exporting transactions for seller with ID: {} as {}", sellerId, format);
+        long startedAt = System.nanoTime();
+
+        //поток ответа не закрываем: это делает контейнер
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        RowWriter rows = switch (format) {
+            case CSV -> new CsvRowWriter(writer);
+            //объекты разделяем переводом строки сами, без пробела-разделителя корневых значений
+            case NDJSON -> new NdjsonRowWriter(objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null));
+        };
+
+        long count;
+        try {
+            rows.start();
+            //курсор с fetch size в postgres работает только внутри транзакции
+            count = readOnlyTransactionTemplate.execute(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(exportQuery(start, end));
+                statement.setFetchSize(fetchSize);
+                int index = 1;
+                statement.setLong(index++, sellerId);
+                if (start != null) {
+                    statement.setObject(index++, start);
+                }
+                if (end != null) {
+                    statement.setObject(index, end);
+                }
+                return statement;
+            }, (ResultSetExtractor<Long>) rs -> writeRows(rs, rows)));
+            rows.finish();
+        } catch (UncheckedIOException e) {
+            //клиент оборвал загрузку: курсор закрыт, транзакция откатилась
+            throw e.getCause();
+        }
+
+        log.info("Exported {} transactions for seller with ID: {} in {} ms", count, sellerId,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    private static long writeRows(ResultSet rs, RowWriter rows) throws SQLException {
+        long count = 0;
+        while (rs.next()) {
+            TransactionDTO transaction = TransactionDTO.builder()
+                    .id(rs.getLong(1))
+                    .sellerId(rs.getLong(2))
+                    .amount(rs.getDouble(3))
+                    .paymentType(PaymentType.valueOf(rs.getString(4)))
+                    .transactionDate(rs.getObject(5, LocalDateTime.class).toString())
+                    .build();
+            try {
+                rows.write(transaction);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static String exportQuery(LocalDateTime start, LocalDateTime end) {
+        StringBuilder query = new StringBuilder(EXPORT_QUERY);
+        if (start != null) {
+            query.append(START_CONDITION);
+        }
+        if (end != null) {
+            query.append(END_CONDITION);
+        }
+        return query.append(EXPORT_ORDER).toString();
+    }
+
+    private static LocalDateTime parseDate(String date) {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.INVALID_DATE + date);
+        }
+    }
+
+    private interface RowWriter {
+
+        void start() throws IOException;
+
+        void write(TransactionDTO transaction) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private record CsvRowWriter(Writer writer) implements RowWriter {
+
+        @Override
+        public void start() throws IOException {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        //значения без запятых и кавычек: числа, имя перечисления и дата ISO, экранирование не нужно
+        @Override
+        public void write(TransactionDTO transaction) throws IOException {
+            writer.write(String.valueOf(transaction.id()));
+            writer.write(',');
+            writer.write(String.valueOf(transaction.sellerId()));
+            writer.write(',');
+            writer.write(BigDecimal.valueOf(transaction.amount()).toPlainString());
+            writer.write(',');
+            writer.write(transaction.paymentType().name());
+            writer.write(',');
+            writer.write(transaction.transactionDate());
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private record NdjsonRowWriter(JsonGenerator generator) implements RowWriter {
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void write(TransactionDTO transaction) throws IOException {
+            generator.writeObject(transaction);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
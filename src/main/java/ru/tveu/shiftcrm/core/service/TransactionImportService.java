@@ -0,0 +1,144 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import ru.tveu.shiftcrm.api.dto.BulkLoadResultDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.event.TransactionsImportedEvent;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.CopyLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Импорт транзакций из CSV одним COPY: строки проверяются и передаются в postgres по мере чтения тела запроса,
+ * файл целиком в памяти не держится. Принимается и формат выгрузки /transaction/export - колонка id
+ * пропускается, id выдает последовательность. Любая ошибка откатывает весь файл. Включается свойством, как и генератор.
+ */
+@Service
+@ConditionalOnProperty(name = "shiftcrm.bulk-load.import.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionImportService {
+
+    static final String CSV_HEADER = "seller_id,amount,payment_type,transaction_date";
+
+    private static final int READ_BUFFER_CHARS = 64 * 1024;
+
+    private final CopyLoader copyLoader;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BulkLoadResultDTO importCsv(InputStream csv) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8), READ_BUFFER_CHARS);
+        String header = reader.readLine();
+        header = header == null ? "" : header.strip();
+        boolean withId = TransactionExportService.CSV_HEADER.equals(header);
+        if (!withId && !CSV_HEADER.equals(header)) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.IMPORT_HEADER + CSV_HEADER);
+        }
+
+        long startedAt = System.nanoTime();
+        Set<Long> sellerIds = new HashSet<>();
+        long imported;
+        try {
+            imported = copyLoader.copy(CopyLoader.TRANSACTION_COLUMNS, rows -> {
+                long lineNumber = 1;
+                String line;
+                while ((line = readLine(reader)) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    String[] fields = line.strip().split(",", -1);
+                    int offset = withId ? 1 : 0;
+                    if (fields.length != offset + 4) {
+                        throw invalidRow(lineNumber, "expected " + (offset + 4) + " fields");
+                    }
+                    long sellerId = parseSellerId(fields[offset], lineNumber);
+                    sellerIds.add(sellerId);
+                    rows.field(sellerId)
+                            .field(parseAmount(fields[offset + 1], lineNumber))
+                            .field(parsePaymentType(fields[offset + 2], lineNumber).name())
+                            .field(parseDate(fields[offset + 3], lineNumber))
+                            .endRow();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (imported > 0) {
+            eventPublisher.publishEvent(new TransactionsImportedEvent(Set.copyOf(sellerIds), imported));
+        }
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        double rowsPerSecond = elapsedNanos == 0 ? 0 : imported * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        log.info("Imported {} transactions of {} sellers, {} rows/sec", imported, sellerIds.size(), (long) rowsPerSecond);
+        return BulkLoadResultDTO.builder()
+                .sellers(sellerIds.size())
+                .transactions(imported)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .rowsPerSecond(rowsPerSecond)
+                .build();
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long parseSellerId(String value, long lineNumber) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw invalidRow(lineNumber, "seller_id " + value);
+        }
+    }
+
+    private static BigDecimal parseAmount(String value, long lineNumber) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw invalidRow(lineNumber, "amount " + value);
+        }
+    }
+
+    private static PaymentType parsePaymentType(String value, long lineNumber) {
+        try {
+            return PaymentType.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw invalidRow(lineNumber, ErrorMessage.UNKNOWN_PAYMENT_TYPE + value);
+        }
+    }
+
+    private static LocalDateTime parseDate(String value, long lineNumber) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw invalidRow(lineNumber, ErrorMessage.INVALID_DATE + value);
+        }
+    }
+
+    private static ServiceException invalidRow(long lineNumber, String reason) {
+        return new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.IMPORT_INVALID_ROW.formatted(lineNumber, reason));
+    }
+}
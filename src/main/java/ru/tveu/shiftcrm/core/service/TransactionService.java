@@ -2,15 +2,26 @@ package ru.tveu.shiftcrm.core.service;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkResultDTO;
 import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
 import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionSliceDTO;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark;
+
+import java.util.Iterator;
 
 public interface TransactionService {
 
     TransactionDTO create(TransactionCreateRequest createRequest);
 
+    TransactionBulkResultDTO createAll(Iterator<TransactionCreateRequest> createRequests);
+
     TransactionDTO get(Long id);
 
     Page<TransactionDTO> getAllBySellerId(Long sellerId, Pageable pageable);
 
+    TransactionSliceDTO getAllBySellerIdAfter(Long sellerId, String cursor, int size);
+
+    TransactionWatermark getWatermark(Long sellerId);
+
 }
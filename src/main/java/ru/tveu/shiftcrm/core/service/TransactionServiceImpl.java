@@ -1,46 +1,231 @@
 package ru.tveu.shiftcrm.core.service;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkItemResultDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkResultDTO;
 import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
 import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionSliceDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
 import ru.tveu.shiftcrm.core.entity.Seller;
 import ru.tveu.shiftcrm.core.entity.Transaction;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.exception.ConstraintViolations;
 import ru.tveu.shiftcrm.core.exception.ErrorCode;
 import ru.tveu.shiftcrm.core.exception.ErrorMessage;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.jfr.TransactionCreateEvent;
 import ru.tveu.shiftcrm.core.mapper.TransactionMapper;
 import ru.tveu.shiftcrm.core.repository.SellerRepository;
 import ru.tveu.shiftcrm.core.repository.TransactionRepository;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionView;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "transaction.service", histogram = true)
 @RequiredArgsConstructor
 @Slf4j
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final int MAX_SLICE_SIZE = 1000;
+
     private final TransactionRepository transactionRepository;
     private final TransactionMapper transactionMapper;
     private final SellerRepository sellerRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final Validator validator;
+
+    @Value("${shiftcrm.transaction.bulk.chunk-size:500}")
+    private int bulkChunkSize;
 
     @Override
     public TransactionDTO create(TransactionCreateRequest createRequest) {
+        return TransactionCreateEvent.record(createRequest, () -> save(createRequest));
+    }
+
+    private TransactionDTO save(TransactionCreateRequest createRequest) {
         log.info("Creating a new transaction");
 
         var transaction = transactionMapper.map(createRequest);
-        var savedTransaction = transactionRepository.save(transaction);
+        Transaction savedTransaction;
+        try {
+            savedTransaction = transactionRepository.save(transaction);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isViolationOf(e, Transaction.SELLER_FOREIGN_KEY)) {
+                throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND + createRequest.sellerId());
+            }
+            throw e;
+        }
+
+        eventPublisher.publishEvent(TransactionCreatedEvent.of(savedTransaction));
 
         log.info("Transaction created successfully with ID: {}", savedTransaction.getId());
         return transactionMapper.map(savedTransaction);
     }
 
+    //каждый чанк в своей транзакции: сбой БД откатывает только его, созданные раньше строки остаются созданными
     @Override
+    public TransactionBulkResultDTO createAll(Iterator<TransactionCreateRequest> createRequests) {
+        log.info("Creating transactions in bulk");
+        long startedAt = System.nanoTime();
+
+        TransactionTemplate chunkTransactionTemplate = new TransactionTemplate(transactionManager);
+        List<TransactionBulkItemResultDTO> items = new ArrayList<>();
+        List<TransactionCreateRequest> chunk = new ArrayList<>(bulkChunkSize);
+
+        while (createRequests.hasNext()) {
+            chunk.add(createRequests.next());
+
+            if (chunk.size() == bulkChunkSize) {
+                saveChunk(chunkTransactionTemplate, chunk, items);
+                chunk.clear();
+            }
+        }
+        saveChunk(chunkTransactionTemplate, chunk, items);
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        int created = (int) items.stream().filter(item -> item.error() == null).count();
+        double rowsPerSecond = elapsedNanos == 0 ? 0 : created * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+
+        log.info("Bulk insert finished: {} of {} transactions created, {} rows/sec", created, items.size(), (long) rowsPerSecond);
+        return TransactionBulkResultDTO.builder()
+                .received(items.size())
+                .created(created)
+                .failed(items.size() - created)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .rowsPerSecond(rowsPerSecond)
+                .items(items)
+                .build();
+    }
+
+    private void saveChunk(TransactionTemplate chunkTransactionTemplate, List<TransactionCreateRequest> chunk,
+                           List<TransactionBulkItemResultDTO> items) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        int firstIndex = items.size();
+        //flush() у EntityManager не переводит ошибки в DataAccessException: FK, check и секции приходят как PersistenceException
+        try {
+            chunkTransactionTemplate.executeWithoutResult(status -> saveChunk(chunk, items));
+        } catch (DataAccessException | TransactionException | PersistenceException e) {
+            String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            log.warn("Bulk chunk of {} transactions rolled back: {}", chunk.size(), cause);
+
+            //строки чанка, уже получившие id, тоже откатились; ошибки проверки оставляем как были
+            List<TransactionBulkItemResultDTO> chunkItems = items.subList(firstIndex, items.size());
+            List<TransactionBulkItemResultDTO> failed = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                TransactionBulkItemResultDTO item = i < chunkItems.size() ? chunkItems.get(i) : null;
+                failed.add(item != null && item.error() != null ? item
+                        : new TransactionBulkItemResultDTO(firstIndex + i, null, ErrorMessage.BULK_CHUNK_ROLLED_BACK + cause));
+            }
+            chunkItems.clear();
+            items.addAll(failed);
+        }
+    }
+
+    //один запрос на проверку продавцов чанка, дальше только ссылки без SELECT'ов
+    private void saveChunk(List<TransactionCreateRequest> chunk, List<TransactionBulkItemResultDTO> items) {
+        Set<Long> sellerIds = chunk.stream()
+                .map(TransactionCreateRequest::sellerId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingSellerIds = sellerIds.isEmpty() ? Set.of() : sellerRepository.findExistingIds(sellerIds);
+
+        int firstIndex = items.size();
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        List<Integer> transactionIndexes = new ArrayList<>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            TransactionCreateRequest createRequest = chunk.get(i);
+            String error = validate(createRequest, existingSellerIds);
+
+            if (error != null) {
+                items.add(new TransactionBulkItemResultDTO(firstIndex + i, null, error));
+                continue;
+            }
+
+            Seller seller = sellerRepository.getReferenceById(createRequest.sellerId());
+            transactions.add(transactionMapper.map(createRequest, seller));
+            transactionIndexes.add(firstIndex + i);
+            items.add(null);
+        }
+
+        transactionRepository.saveAll(transactions);
+        entityManager.flush();
+        entityManager.clear();
+
+        for (int i = 0; i < transactions.size(); i++) {
+            int index = transactionIndexes.get(i);
+            items.set(index, new TransactionBulkItemResultDTO(index, transactions.get(i).getId(), null));
+            eventPublisher.publishEvent(TransactionCreatedEvent.of(transactions.get(i)));
+        }
+    }
+
+    //те же ограничения DTO, что у одиночного POST с @Valid, плюс проверки, которым нужна БД
+    private String validate(TransactionCreateRequest createRequest, Set<Long> existingSellerIds) {
+        Set<ConstraintViolation<TransactionCreateRequest>> violations = validator.validate(createRequest);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+
+        if (createRequest.sellerId() == null) {
+            return ErrorMessage.SELLER_ID_NULL;
+        }
+
+        if (!existingSellerIds.contains(createRequest.sellerId())) {
+            return ErrorMessage.SELLER_NOT_FOUND + createRequest.sellerId();
+        }
+
+        try {
+            PaymentType.valueOf(Objects.requireNonNull(createRequest.paymentType()));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return ErrorMessage.UNKNOWN_PAYMENT_TYPE + createRequest.paymentType();
+        }
+
+        return null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public TransactionDTO get(Long id) {
         log.info("Fetching transaction with ID: {}", id);
 
-        var transaction = transactionRepository.findById(id)
+        var transaction = transactionRepository.findViewById(id)
                 .orElseThrow(() -> new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.TRANSACTION_NOT_FOUND + id));
 
         log.info("Transaction with ID {} retrieved successfully", id);
@@ -48,16 +233,60 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<TransactionDTO> getAllBySellerId(Long sellerId, Pageable pageable) {
         log.info("Fetching transactions for seller with ID: {}", sellerId);
 
-        Seller seller = sellerRepository.findById(sellerId)
-                .orElseThrow(() -> new ServiceException(ErrorCode.OBJECT_NOT_FOUND,
-                        ErrorMessage.SELLER_NOT_FOUND + sellerId));
+        Page<TransactionView> transactions = transactionRepository.findViewsBySellerId(sellerId, pageable);
 
-        Page<Transaction> transactions = transactionRepository.findAllBySeller(seller, pageable);
+        //продавца проверяем только когда отдать нечего, чтобы не тратить запрос на каждую страницу
+        if (!transactions.hasContent() && !sellerRepository.existsById(sellerId)) {
+            throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND + sellerId);
+        }
 
         log.info("Transactions for seller with ID {} retrieved successfully, total: {}", sellerId, transactions.getTotalElements());
-        return transactionMapper.map(transactions);
+        return transactions.map(transactionMapper::map);
+    }
+
+    //для ETag списков до их загрузки: края индексов продавца вместо COUNT и страницы
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionWatermark getWatermark(Long sellerId) {
+        return transactionRepository.findWatermarkBySellerId(sellerId)
+                .orElseThrow(() -> new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND + sellerId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionSliceDTO getAllBySellerIdAfter(Long sellerId, String cursor, int size) {
+        log.info("Fetching transactions for seller with ID: {} after cursor", sellerId);
+
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new ServiceException(ErrorCode.BAD_REQUEST, ErrorMessage.PAGE_SIZE.formatted(MAX_SLICE_SIZE));
+        }
+
+        Pageable pageable = PageRequest.ofSize(size);
+        Slice<TransactionView> transactions;
+        if (cursor == null || cursor.isEmpty()) {
+            transactions = transactionRepository.findViewsBySellerIdFirst(sellerId, pageable);
+        } else {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            transactions = transactionRepository.findViewsBySellerIdAfter(sellerId, position.transactionDate(), position.id(), pageable);
+        }
+
+        if (!transactions.hasContent() && !sellerRepository.existsById(sellerId)) {
+            throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, ErrorMessage.SELLER_NOT_FOUND + sellerId);
+        }
+
+        List<TransactionView> content = transactions.getContent();
+        String nextCursor = transactions.hasNext() ? TransactionCursor.of(content.get(content.size() - 1)).encode() : null;
+
+        log.info("Transactions for seller with ID {} retrieved successfully, slice: {}", sellerId, content.size());
+        return TransactionSliceDTO.builder()
+                .content(content.stream().map(transactionMapper::map).toList())
+                .size(content.size())
+                .hasNext(transactions.hasNext())
+                .nextCursor(nextCursor)
+                .build();
     }
 }
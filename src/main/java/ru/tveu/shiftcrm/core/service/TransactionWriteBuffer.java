@@ -0,0 +1,238 @@
+package ru.tveu.shiftcrm.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.entity.Transaction;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.exception.ConstraintViolations;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.mapper.TransactionMapper;
+import ru.tveu.shiftcrm.core.repository.TransactionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group commit для POST /transaction: запросы копятся в ограниченной lock-free очереди,
+ * отдельный поток пишет их батчами в одной транзакции каждые batchSize строк или maxDelay мс.
+ */
+@Component
+@ConditionalOnProperty(name = "shiftcrm.transaction.ingest.mode", havingValue = "buffered")
+@Slf4j
+public class TransactionWriteBuffer implements SmartLifecycle {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionMapper transactionMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int capacity;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long commitTimeoutMillis;
+
+    private final Queue<PendingTransaction> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private volatile Thread writer;
+
+    public TransactionWriteBuffer(TransactionRepository transactionRepository,
+                                  TransactionMapper transactionMapper,
+                                  TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${shiftcrm.transaction.ingest.queue-capacity:10000}") int capacity,
+                                  @Value("${shiftcrm.transaction.ingest.batch-size:500}") int batchSize,
+                                  @Value("${shiftcrm.transaction.ingest.max-delay-ms:10}") long maxDelayMillis,
+                                  @Value("${shiftcrm.transaction.ingest.commit-timeout-ms:30000}") long commitTimeoutMillis) {
+        this.transactionRepository = transactionRepository;
+        this.transactionMapper = transactionMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.commitTimeoutMillis = commitTimeoutMillis;
+    }
+
+    public TransactionDTO write(TransactionCreateRequest createRequest) {
+        try {
+            return submit(createRequest).get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceException(ErrorCode.SERVICE_UNAVAILABLE, ErrorMessage.INGEST_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(ErrorCode.SERVICE_UNAVAILABLE, ErrorMessage.INGEST_UNAVAILABLE);
+        }
+    }
+
+    public CompletableFuture<TransactionDTO> submit(TransactionCreateRequest createRequest) {
+        if (!accepting) {
+            throw new ServiceException(ErrorCode.SERVICE_UNAVAILABLE, ErrorMessage.INGEST_UNAVAILABLE);
+        }
+
+        int queued;
+        do {
+            queued = size.get();
+            if (queued >= capacity) {
+                throw new ServiceException(ErrorCode.TOO_MANY_REQUESTS, ErrorMessage.INGEST_QUEUE_FULL);
+            }
+        } while (!size.compareAndSet(queued, queued + 1));
+
+        var pending = new PendingTransaction(createRequest, new CompletableFuture<>());
+        queue.offer(pending);
+
+        //остановка могла начаться между проверкой и offer: если писатель запись не забрал, отказываем сами
+        if (!accepting && queue.remove(pending)) {
+            size.decrementAndGet();
+            throw new ServiceException(ErrorCode.SERVICE_UNAVAILABLE, ErrorMessage.INGEST_UNAVAILABLE);
+        }
+
+        if (queued + 1 >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return pending.result();
+    }
+
+    @Override
+    public void start() {
+        accepting = true;
+        running = true;
+        writer = new Thread(this::writeLoop, "transaction-write-buffer");
+        writer.start();
+        log.info("Buffered transaction ingest started: batch size {}, max delay {} ms", batchSize, TimeUnit.NANOSECONDS.toMillis(maxDelayNanos));
+    }
+
+    @Override
+    public void stop() {
+        log.info("Draining transaction write buffer, {} pending", size.get());
+        accepting = false;
+        running = false;
+
+        Thread current = writer;
+        LockSupport.unpark(current);
+        try {
+            current.join(commitTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        PendingTransaction pending;
+        while ((pending = queue.poll()) != null) {
+            size.decrementAndGet();
+            pending.result().completeExceptionally(
+                    new ServiceException(ErrorCode.SERVICE_UNAVAILABLE, ErrorMessage.INGEST_UNAVAILABLE));
+        }
+        log.info("Transaction write buffer stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    //останавливаемся после graceful shutdown веб-сервера (server.shutdown: graceful), чтобы успеть закоммитить ждущие запросы
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void writeLoop() {
+        List<PendingTransaction> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            if (running && size.get() < batchSize) {
+                LockSupport.parkNanos(this, maxDelayNanos);
+            }
+
+            PendingTransaction pending;
+            while (batch.size() < batchSize && (pending = queue.poll()) != null) {
+                size.decrementAndGet();
+                batch.add(pending);
+            }
+
+            if (!batch.isEmpty()) {
+                try {
+                    flush(batch);
+                } catch (RuntimeException e) {
+                    //поток писателя один на узел: его смерть оставила бы очередь без разбора до рестарта
+                    log.error("Transaction write buffer failed to flush a batch of {}", batch.size(), e);
+                    batch.forEach(failed -> failed.result().completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingTransaction> batch) {
+        List<Transaction> saved;
+        try {
+            saved = transactionTemplate.execute(status -> transactionRepository.saveAll(
+                    batch.stream().map(pending -> transactionMapper.map(pending.request())).toList()));
+        } catch (RuntimeException e) {
+            //одна плохая запись не должна ронять весь батч: повторяем поштучно
+            log.warn("Batch of {} transactions failed, retrying one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::flushSingle);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            publish(saved.get(i));
+            batch.get(i).result().complete(transactionMapper.map(saved.get(i)));
+        }
+    }
+
+    private void flushSingle(PendingTransaction pending) {
+        try {
+            Transaction saved = transactionTemplate.execute(status ->
+                    transactionRepository.save(transactionMapper.map(pending.request())));
+            publish(saved);
+            pending.result().complete(transactionMapper.map(saved));
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isViolationOf(e, Transaction.SELLER_FOREIGN_KEY)) {
+                pending.result().completeExceptionally(new ServiceException(ErrorCode.OBJECT_NOT_FOUND,
+                        ErrorMessage.SELLER_NOT_FOUND + pending.request().sellerId()));
+            } else {
+                pending.result().completeExceptionally(e);
+            }
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    //транзакция уже закоммичена: сбой слушателя (кэши, лидерборд) не отменяет ответ и не останавливает писателя
+    private void publish(Transaction saved) {
+        try {
+            eventPublisher.publishEvent(TransactionCreatedEvent.of(saved));
+        } catch (RuntimeException e) {
+            log.warn("Listener of transaction {} failed: {}", saved.getId(), e.getMessage(), e);
+        }
+    }
+
+    private record PendingTransaction(TransactionCreateRequest request, CompletableFuture<TransactionDTO> result) {
+    }
+}
@@ -0,0 +1,3 @@
+-- id транзакций выдаются hibernate пулами по 50 (pooled optimizer),
+-- шаг последовательности должен совпадать с allocationSize в @SequenceGenerator
+ALTER SEQUENCE transaction_id_seq INCREMENT BY 50;
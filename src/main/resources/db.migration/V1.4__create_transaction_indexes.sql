@@ -0,0 +1,12 @@
+-- индексы строятся CONCURRENTLY, чтобы не блокировать вставки на большой таблице
+-- (flyway сам выполняет такие миграции вне транзакции)
+
+-- findAllBySeller / findAllBySellerOrderByTransactionDateAsc: поиск по продавцу сразу в порядке дат
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_seller_date
+    ON transaction (seller_id, transaction_date);
+
+-- аналитика по периоду (most-productive, below-threshold): index-only scan по диапазону дат
+-- без обращения к таблице. BRIN на transaction_date меньше по размеру, но не умеет index-only scan
+-- и на узких диапазонах проигрывает, поэтому обычный B-tree с INCLUDE
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_date_seller_amount
+    ON transaction (transaction_date) INCLUDE (seller_id, amount);
@@ -0,0 +1,61 @@
+-- дневные агрегаты по продавцу: аналитика по периоду читает целые дни отсюда,
+-- а сырую таблицу transaction только для неполных крайних дней
+CREATE TABLE seller_daily_stats
+(
+    seller_id       BIGINT         NOT NULL,
+    day             DATE           NOT NULL,
+    tx_count        BIGINT         NOT NULL,
+    cash_amount     DECIMAL(18, 2) NOT NULL,
+    card_amount     DECIMAL(18, 2) NOT NULL,
+    transfer_amount DECIMAL(18, 2) NOT NULL,
+    CONSTRAINT pk_seller_daily_stats PRIMARY KEY (seller_id, day),
+    CONSTRAINT fk_seller_daily_stats_seller FOREIGN KEY (seller_id) REFERENCES seller (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_seller_daily_stats_day
+    ON seller_daily_stats (day) INCLUDE (seller_id, cash_amount, card_amount, transfer_amount);
+
+-- агрегаты обновляются в той же транзакции, что и вставка: statement-level триггер
+-- группирует все строки оператора (батч, COPY) и делает один upsert на (продавец, день)
+CREATE FUNCTION seller_daily_stats_on_insert() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO seller_daily_stats AS s (seller_id, day, tx_count, cash_amount, card_amount, transfer_amount)
+    SELECT n.seller_id,
+           CAST(n.transaction_date AS DATE),
+           COUNT(*),
+           COALESCE(SUM(n.amount) FILTER (WHERE n.payment_type = 'CASH'), 0),
+           COALESCE(SUM(n.amount) FILTER (WHERE n.payment_type = 'CARD'), 0),
+           COALESCE(SUM(n.amount) FILTER (WHERE n.payment_type = 'TRANSFER'), 0)
+    FROM new_transactions n
+    GROUP BY n.seller_id, CAST(n.transaction_date AS DATE)
+    -- единый порядок блокировок строк агрегатов, чтобы параллельные вставки не ловили deadlock
+    ORDER BY n.seller_id, CAST(n.transaction_date AS DATE)
+    ON CONFLICT (seller_id, day) DO UPDATE
+        SET tx_count        = s.tx_count + EXCLUDED.tx_count,
+            cash_amount     = s.cash_amount + EXCLUDED.cash_amount,
+            card_amount     = s.card_amount + EXCLUDED.card_amount,
+            transfer_amount = s.transfer_amount + EXCLUDED.transfer_amount;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- на время заполнения не даем вставлять, чтобы не потерять строки между backfill и триггером
+LOCK TABLE transaction IN SHARE MODE;
+
+INSERT INTO seller_daily_stats (seller_id, day, tx_count, cash_amount, card_amount, transfer_amount)
+SELECT t.seller_id,
+       CAST(t.transaction_date AS DATE),
+       COUNT(*),
+       COALESCE(SUM(t.amount) FILTER (WHERE t.payment_type = 'CASH'), 0),
+       COALESCE(SUM(t.amount) FILTER (WHERE t.payment_type = 'CARD'), 0),
+       COALESCE(SUM(t.amount) FILTER (WHERE t.payment_type = 'TRANSFER'), 0)
+FROM transaction t
+GROUP BY t.seller_id, CAST(t.transaction_date AS DATE);
+
+CREATE TRIGGER trg_transaction_daily_stats
+    AFTER INSERT
+    ON transaction
+    REFERENCING NEW TABLE AS new_transactions
+    FOR EACH STATEMENT
+EXECUTE FUNCTION seller_daily_stats_on_insert();
@@ -0,0 +1,65 @@
+-- transaction разбивается по месяцам transaction_date: запросы по периоду читают только нужные секции,
+-- vacuum идет по небольшим секциям, старые месяцы отключаются через DETACH PARTITION без DELETE.
+-- будущие секции заранее создает TransactionPartitionManager, default ловит то, на что секции еще нет
+LOCK TABLE transaction IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE transaction RENAME TO transaction_old;
+ALTER TABLE transaction_old RENAME CONSTRAINT transaction_pkey TO transaction_old_pkey;
+-- последовательность переживает удаление старой таблицы
+ALTER SEQUENCE transaction_id_seq OWNED BY NONE;
+
+-- ключ секционирования обязан входить в первичный ключ; уникальность id обеспечивает последовательность
+CREATE TABLE transaction
+(
+    id               BIGINT                              NOT NULL DEFAULT nextval('transaction_id_seq'),
+    seller_id        BIGINT                              NOT NULL,
+    amount           DECIMAL(10, 2)                      NOT NULL,
+    payment_type     VARCHAR(20)                         NOT NULL,
+    transaction_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    CONSTRAINT transaction_pkey PRIMARY KEY (id, transaction_date),
+    CONSTRAINT fk_seller FOREIGN KEY (seller_id) REFERENCES seller (id) ON DELETE CASCADE
+) PARTITION BY RANGE (transaction_date);
+
+ALTER SEQUENCE transaction_id_seq OWNED BY transaction.id;
+
+CREATE TABLE transaction_default PARTITION OF transaction DEFAULT;
+
+-- секции с месяца самой старой транзакции и на три месяца вперед
+DO
+$$
+DECLARE
+    month TIMESTAMP;
+BEGIN
+    FOR month IN
+        SELECT generate_series(date_trunc('month', COALESCE((SELECT min(transaction_date) FROM transaction_old), now())),
+                               date_trunc('month', now()) + INTERVAL '3 months',
+                               INTERVAL '1 month')
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF transaction FOR VALUES FROM (%L) TO (%L)',
+                       'transaction_' || to_char(month, 'YYYY_MM'), month, month + INTERVAL '1 month');
+    END LOOP;
+END
+$$;
+
+-- триггер агрегатов вешается после копирования, иначе seller_daily_stats посчитает строки второй раз
+INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date)
+SELECT id, seller_id, amount, payment_type, transaction_date
+FROM transaction_old;
+
+DROP TABLE transaction_old;
+
+-- индексы на родительской таблице создаются на каждой секции, в том числе на будущих
+CREATE INDEX idx_transaction_seller_date
+    ON transaction (seller_id, transaction_date);
+
+CREATE INDEX idx_transaction_date_seller_amount
+    ON transaction (transaction_date) INCLUDE (seller_id, amount);
+
+CREATE TRIGGER trg_transaction_daily_stats
+    AFTER INSERT
+    ON transaction
+    REFERENCING NEW TABLE AS new_transactions
+    FOR EACH STATEMENT
+EXECUTE FUNCTION seller_daily_stats_on_insert();
+
+ANALYZE transaction;
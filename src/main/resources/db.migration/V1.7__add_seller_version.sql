@@ -0,0 +1,2 @@
+-- версия продавца для оптимистической блокировки и ETag; растет при каждом изменении
+ALTER TABLE seller ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
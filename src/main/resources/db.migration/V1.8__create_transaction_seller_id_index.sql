@@ -0,0 +1,5 @@
+-- валидатор условного GET списков продавца (findWatermarkBySellerId): MAX(id) продавца - одна запись с конца
+-- индекса в каждой секции вместо COUNT по всем его транзакциям; MIN(transaction_date) берется из idx_transaction_seller_date.
+-- на секционированной таблице CONCURRENTLY недоступен: индекс строится на каждой секции под блокировкой вставок
+CREATE INDEX IF NOT EXISTS idx_transaction_seller_id
+    ON transaction (seller_id, id);
@@ -0,0 +1,54 @@
+package ru.tveu.shiftcrm.api.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.tveu.shiftcrm.api.Path;
+import ru.tveu.shiftcrm.api.dto.SellerCreateRequest;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.core.service.SellerService;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Метрики сервисов в формате prometheus: гистограммы @Timed, счетчики и метрики пула/hibernate.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class PrometheusMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SellerService sellerService;
+
+    @Test
+    void testServiceMetricsAreExported() throws Exception {
+        SellerDTO seller = sellerService.create(new SellerCreateRequest("Metrics Seller", "metrics@example.com"));
+        try {
+            mockMvc.perform(get(Path.SELLER_GET, seller.id())).andExpect(status().isOk());
+            mockMvc.perform(get(Path.SELLER_GET, -1L)).andExpect(status().isNotFound());
+
+            mockMvc.perform(get("/actuator/prometheus"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(containsString("seller_service_seconds_bucket{")))
+                    .andExpect(content().string(containsString("method=\"get\"")))
+                    .andExpect(content().string(containsString("seller_created_total")))
+                    .andExpect(content().string(containsString("service_errors_total{application=\"shift-crm\",code=\"OBJECT_NOT_FOUND\"}")))
+                    .andExpect(content().string(containsString("hikaricp_connections_active")))
+                    .andExpect(content().string(containsString("hibernate_statements_total")));
+        } finally {
+            sellerService.delete(seller.id());
+        }
+    }
+}
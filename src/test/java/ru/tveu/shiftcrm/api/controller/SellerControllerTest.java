@@ -10,20 +10,32 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.tveu.shiftcrm.api.Path;
+import ru.tveu.shiftcrm.api.dto.EstimatedPage;
 import ru.tveu.shiftcrm.api.dto.PeriodDTO;
 import ru.tveu.shiftcrm.api.dto.SellerCreateRequest;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.SellerPeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerRankDTO;
 import ru.tveu.shiftcrm.api.dto.SellerUpdateRequest;
+import ru.tveu.shiftcrm.core.entity.Seller;
 import ru.tveu.shiftcrm.core.exception.ErrorCode;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
 import ru.tveu.shiftcrm.core.service.AnalysisService;
+import ru.tveu.shiftcrm.core.service.CountMode;
+import ru.tveu.shiftcrm.core.service.PeriodWeight;
 import ru.tveu.shiftcrm.core.service.SellerService;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -58,6 +70,7 @@ class SellerControllerTest {
                 .name("Test Seller")
                 .contactInfo("test@example.com")
                 .registrationDate("2024-10-20")
+                .version(0L)
                 .build();
 
         createRequest = SellerCreateRequest.builder()
@@ -70,6 +83,8 @@ class SellerControllerTest {
                 .name("Updated Seller")
                 .contactInfo("updated@example.com")
                 .build();
+
+        when(sellerService.getVersion(1L)).thenReturn(0L);
     }
 
     @Test
@@ -85,21 +100,57 @@ class SellerControllerTest {
         verify(sellerService, times(1)).get(1L);
     }
 
+    @Test
+    void testGetSellerById_ETag() throws Exception {
+        when(sellerService.get(1L)).thenReturn(sellerDTO);
+
+        mockMvc.perform(get(Path.SELLER_GET, 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"seller-1-0\""));
+
+        mockMvc.perform(get(Path.SELLER_GET, 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"seller-1-0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        //304 проверяется по версии, продавец загружался только для первого ответа
+        verify(sellerService, times(1)).get(1L);
+    }
+
+    @Test
+    void testGetSellerById_ChangedVersionIsNotCached() throws Exception {
+        SellerDTO updated = SellerDTO.builder()
+                .id(1L)
+                .name("Updated Seller")
+                .contactInfo("test@example.com")
+                .registrationDate("2024-10-20")
+                .version(1L)
+                .build();
+        when(sellerService.getVersion(1L)).thenReturn(1L);
+        when(sellerService.get(1L)).thenReturn(updated);
+
+        mockMvc.perform(get(Path.SELLER_GET, 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"seller-1-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"seller-1-1\""))
+                .andExpect(jsonPath("$.name").value("Updated Seller"));
+    }
+
     @Test
     void testGetSellerById_NotFound() throws Exception {
-        when(sellerService.get(1L)).thenThrow(new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "Seller not found"));
+        when(sellerService.getVersion(1L)).thenThrow(new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "Seller not found"));
 
         mockMvc.perform(get(Path.SELLER_GET, 1L))
                 .andExpect(status().isNotFound())
                 .andExpect(content().string("Seller not found"));
 
-        verify(sellerService, times(1)).get(1L);
+        verify(sellerService, never()).get(1L);
     }
 
     @Test
     void testGetAllSellers_Success() throws Exception {
         Page<SellerDTO> sellerPage = new PageImpl<>(List.of(sellerDTO));
-        when(sellerService.getAll(any(PageRequest.class))).thenReturn(sellerPage);
+        when(sellerService.getAll(any(PageRequest.class), eq(CountMode.EXACT))).thenReturn(sellerPage);
 
         mockMvc.perform(get(Path.SELLER_GET_ALL)
                         .param("page", "0")
@@ -109,7 +160,36 @@ class SellerControllerTest {
                 .andExpect(jsonPath("$.totalElements").value(sellerPage.getTotalElements()))
                 .andExpect(jsonPath("$.content[0].id").value(sellerDTO.id()));
 
-        verify(sellerService, times(1)).getAll(any(PageRequest.class));
+        verify(sellerService, times(1)).getAll(any(PageRequest.class), eq(CountMode.EXACT));
+    }
+
+    @Test
+    void testGetAllSellers_WithoutCount() throws Exception {
+        Slice<SellerDTO> sellerSlice = new SliceImpl<>(List.of(sellerDTO), PageRequest.of(0, 10), true);
+        when(sellerService.getAll(PageRequest.of(0, 10), CountMode.NONE)).thenReturn(sellerSlice);
+
+        mockMvc.perform(get(Path.SELLER_GET_ALL)
+                        .param("page", "0")
+                        .param("size", "10")
+                        .param("count", "NONE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(sellerDTO.id()))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void testGetAllSellers_EstimatedCount() throws Exception {
+        Slice<SellerDTO> sellerSlice = new SliceImpl<>(List.of(sellerDTO), PageRequest.of(0, 10), true);
+        when(sellerService.getAll(PageRequest.of(0, 10), CountMode.ESTIMATE)).thenReturn(EstimatedPage.of(sellerSlice, 5000));
+
+        mockMvc.perform(get(Path.SELLER_GET_ALL)
+                        .param("page", "0")
+                        .param("size", "10")
+                        .param("count", "ESTIMATE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(5000))
+                .andExpect(jsonPath("$.totalEstimated").value(true));
     }
 
     @Test
@@ -155,6 +235,17 @@ class SellerControllerTest {
         verify(sellerService, times(1)).update(any(SellerUpdateRequest.class));
     }
 
+    @Test
+    void testUpdateSeller_ConcurrentUpdateIsConflict() throws Exception {
+        when(sellerService.update(any(SellerUpdateRequest.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Seller.class, 1L));
+
+        mockMvc.perform(put(Path.SELLER_PUT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequest)))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void testDeleteSeller_Success() throws Exception {
         mockMvc.perform(delete(Path.SELLER_DELETE, 1L))
@@ -180,7 +271,7 @@ class SellerControllerTest {
     @Test
     void testGetSellersWithTransactionsBelowThreshold_Success() throws Exception {
         Page<SellerDTO> sellerPage = new PageImpl<>(List.of(sellerDTO));
-        when(analysisService.getSellersWithTransactionsBelowThreshold(anyString(), anyString(), anyDouble(), any(PageRequest.class)))
+        when(analysisService.getSellersWithTransactionsBelowThreshold(anyString(), anyString(), anyDouble(), any(PageRequest.class), eq(CountMode.EXACT)))
                 .thenReturn(sellerPage);
 
         mockMvc.perform(get(Path.SELLER_GET_WITH_TX_BELOW_THRESHOLD)
@@ -193,13 +284,35 @@ class SellerControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.totalElements").value(sellerPage.getTotalElements()));
 
-        verify(analysisService, times(1)).getSellersWithTransactionsBelowThreshold(anyString(), anyString(), anyDouble(), any(PageRequest.class));
+        verify(analysisService, times(1)).getSellersWithTransactionsBelowThreshold(anyString(), anyString(), anyDouble(), any(PageRequest.class), eq(CountMode.EXACT));
+    }
+
+    @Test
+    void testGetSellersWithTransactionsBelowThreshold_NotModified() throws Exception {
+        Page<SellerDTO> sellerPage = new PageImpl<>(List.of(sellerDTO));
+        when(analysisService.getSellersWithTransactionsBelowThreshold(anyString(), anyString(), anyDouble(), any(PageRequest.class), eq(CountMode.EXACT)))
+                .thenReturn(sellerPage);
+
+        String eTag = mockMvc.perform(get(Path.SELLER_GET_WITH_TX_BELOW_THRESHOLD)
+                        .param("startDate", "2024-01-01")
+                        .param("endDate", "2024-10-20")
+                        .param("threshold", "50.0"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(Path.SELLER_GET_WITH_TX_BELOW_THRESHOLD)
+                        .param("startDate", "2024-01-01")
+                        .param("endDate", "2024-10-20")
+                        .param("threshold", "50.0")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
     }
 
     @Test
     void testGetBestTransactionPeriod_Success() throws Exception {
         PeriodDTO periodDTO = new PeriodDTO("2024-01-01", "2024-10-20");
-        when(analysisService.findBestTransactionPeriod(anyLong(), anyLong())).thenReturn(periodDTO);
+        when(analysisService.findBestTransactionPeriod(anyLong(), anyLong(), eq(PeriodWeight.COUNT))).thenReturn(periodDTO);
 
         mockMvc.perform(get(Path.SELLER_GET_BEST_PERIOD)
                         .param("durationInDays", "30")
@@ -209,6 +322,98 @@ class SellerControllerTest {
                 .andExpect(jsonPath("$.dateStart").value(periodDTO.dateStart()))
                 .andExpect(jsonPath("$.dateEnd").value(periodDTO.dateEnd()));
 
-        verify(analysisService, times(1)).findBestTransactionPeriod(anyLong(), anyLong());
+        verify(analysisService, times(1)).findBestTransactionPeriod(anyLong(), anyLong(), eq(PeriodWeight.COUNT));
+    }
+
+    @Test
+    void testGetBestTransactionPeriod_ByAmount() throws Exception {
+        when(analysisService.findBestTransactionPeriod(30, 1L, PeriodWeight.AMOUNT))
+                .thenReturn(new PeriodDTO("2024-01-01T00:00", "2024-01-31T00:00"));
+
+        mockMvc.perform(get(Path.SELLER_GET_BEST_PERIOD)
+                        .param("durationInDays", "30")
+                        .param("sellerId", "1")
+                        .param("weight", "AMOUNT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dateEnd").value("2024-01-31T00:00"));
+    }
+
+    @Test
+    void getBestTransactionPeriodForAllSellers_ShouldReturnPeriodPerSeller() throws Exception {
+        List<SellerPeriodDTO> periods = List.of(
+                new SellerPeriodDTO(1L, "2024-01-01T00:00", "2024-01-05T00:00", 12),
+                new SellerPeriodDTO(2L, "2024-02-01T00:00", "2024-02-02T00:00", 3));
+
+        when(analysisService.findBestTransactionPeriodForAllSellers(30)).thenReturn(periods);
+
+        mockMvc.perform(get(Path.SELLER_GET_BEST_PERIOD_ALL)
+                        .param("durationInDays", "30"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].sellerId").value(1))
+                .andExpect(jsonPath("$[0].transactionCount").value(12))
+                .andExpect(jsonPath("$[1].dateEnd").value("2024-02-02T00:00"));
+
+        verify(analysisService, times(1)).findBestTransactionPeriodForAllSellers(30);
+    }
+
+    @Test
+    void getBestTransactionPeriods_ShouldReturnPeriodPerDuration() throws Exception {
+        Map<Long, PeriodDTO> periods = new LinkedHashMap<>();
+        periods.put(1L, new PeriodDTO("2024-01-01T00:00", "2024-01-02T00:00"));
+        periods.put(7L, new PeriodDTO("2024-01-01T00:00", "2024-01-07T00:00"));
+
+        when(analysisService.findBestTransactionPeriods(List.of(1L, 7L), 1L, PeriodWeight.AMOUNT)).thenReturn(periods);
+
+        mockMvc.perform(get(Path.SELLER_GET_BEST_PERIODS)
+                        .param("durationInDays", "1", "7")
+                        .param("sellerId", "1")
+                        .param("weight", "AMOUNT"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$['1'].dateEnd").value("2024-01-02T00:00"))
+                .andExpect(jsonPath("$['7'].dateEnd").value("2024-01-07T00:00"));
+
+        verify(analysisService, times(1)).findBestTransactionPeriods(List.of(1L, 7L), 1L, PeriodWeight.AMOUNT);
+    }
+
+    @Test
+    void getBestTransactionPeriods_ShouldWeightByCountByDefault() throws Exception {
+        when(analysisService.findBestTransactionPeriods(List.of(3L, 30L), 1L, PeriodWeight.COUNT)).thenReturn(Map.of());
+
+        mockMvc.perform(get(Path.SELLER_GET_BEST_PERIODS)
+                        .param("durationInDays", "3,30")
+                        .param("sellerId", "1"))
+                .andExpect(status().isOk());
+
+        verify(analysisService, times(1)).findBestTransactionPeriods(List.of(3L, 30L), 1L, PeriodWeight.COUNT);
+    }
+
+    @Test
+    void getLeaderboard_ShouldReturnTopSellers() throws Exception {
+        when(analysisService.getLeaderboard("2024-01-01T00:00", "2024-01-08T00:00", 10))
+                .thenReturn(List.of(new SellerRankDTO(2L, 1500.5), new SellerRankDTO(1L, 99.0)));
+
+        mockMvc.perform(get(Path.SELLER_GET_LEADERBOARD)
+                        .param("startDate", "2024-01-01T00:00")
+                        .param("endDate", "2024-01-08T00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].sellerId").value(2))
+                .andExpect(jsonPath("$[0].totalAmount").value(1500.5));
+
+        verify(analysisService, times(1)).getLeaderboard("2024-01-01T00:00", "2024-01-08T00:00", 10);
+    }
+
+    @Test
+    void getLeaderboard_ShouldRejectUnalignedRange() throws Exception {
+        when(analysisService.getLeaderboard(anyString(), anyString(), anyInt()))
+                .thenThrow(new ServiceException(ErrorCode.BAD_REQUEST, "startDate and endDate must be aligned to a full hour"));
+
+        mockMvc.perform(get(Path.SELLER_GET_LEADERBOARD)
+                        .param("startDate", "2024-01-01T00:30")
+                        .param("endDate", "2024-01-08T00:00"))
+                .andExpect(status().isBadRequest());
     }
 }
@@ -10,20 +10,32 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import ru.tveu.shiftcrm.api.Path;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkItemResultDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkResultDTO;
 import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
 import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionSliceDTO;
 import ru.tveu.shiftcrm.core.entity.PaymentType;
 import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark;
+import ru.tveu.shiftcrm.core.service.ExportFormat;
+import ru.tveu.shiftcrm.core.service.TransactionExportService;
 import ru.tveu.shiftcrm.core.service.TransactionService;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -43,6 +55,9 @@ class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private TransactionExportService transactionExportService;
+
     private TransactionDTO transactionDTO;
     private TransactionCreateRequest createRequest;
 
@@ -60,6 +75,8 @@ class TransactionControllerTest {
                 .amount(100.0)
                 .paymentType(PaymentType.CARD.toString())
                 .build();
+
+        when(transactionService.getWatermark(1L)).thenReturn(new TransactionWatermark(1L, LocalDateTime.of(2024, 1, 1, 12, 0)));
     }
 
     @Test
@@ -75,6 +92,17 @@ class TransactionControllerTest {
         verify(transactionService, times(1)).get(1L);
     }
 
+    @Test
+    void testGetTransaction_NotModified() throws Exception {
+        when(transactionService.get(1L)).thenReturn(transactionDTO);
+
+        mockMvc.perform(get(Path.TRANSACTION_GET, 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"transaction-1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"transaction-1\""))
+                .andExpect(content().string(""));
+    }
+
     @Test
     void testGetTransaction_NotFound() throws Exception {
         when(transactionService.get(1L)).thenThrow(new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "Transaction not found"));
@@ -103,9 +131,54 @@ class TransactionControllerTest {
         verify(transactionService, times(1)).getAllBySellerId(1L, PageRequest.of(0, 10));
     }
 
+    //304 отдается по водяной метке, страница не запрашивается
     @Test
-    void testGetAllTransactionsBySeller_SellerNotFound() throws Exception {
+    void testGetAllTransactionsBySeller_NotModified() throws Exception {
+        when(transactionService.getAllBySellerId(1L, PageRequest.of(0, 10)))
+                .thenReturn(new PageImpl<>(List.of(transactionDTO)));
+
+        String eTag = mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER)
+                        .param("sellerId", "1")
+                        .param("page", "0")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER)
+                        .param("sellerId", "1")
+                        .param("page", "0")
+                        .param("size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(transactionService, times(1)).getAllBySellerId(1L, PageRequest.of(0, 10));
+    }
+
+    @Test
+    void testGetAllTransactionsBySeller_NewTransactionChangesETag() throws Exception {
         when(transactionService.getAllBySellerId(1L, PageRequest.of(0, 10)))
+                .thenReturn(new PageImpl<>(List.of(transactionDTO)));
+
+        String eTag = mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER)
+                        .param("sellerId", "1")
+                        .param("page", "0")
+                        .param("size", "10"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        when(transactionService.getWatermark(1L)).thenReturn(new TransactionWatermark(2L, LocalDateTime.of(2024, 1, 1, 12, 0)));
+
+        mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER)
+                        .param("sellerId", "1")
+                        .param("page", "0")
+                        .param("size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(transactionDTO.id()));
+    }
+
+    @Test
+    void testGetAllTransactionsBySeller_SellerNotFound() throws Exception {
+        when(transactionService.getWatermark(1L))
                 .thenThrow(new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "Seller not found"));
 
         mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER)
@@ -115,7 +188,88 @@ class TransactionControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(content().string("Seller not found"));
 
-        verify(transactionService, times(1)).getAllBySellerId(1L, PageRequest.of(0, 10));
+        verify(transactionService, never()).getAllBySellerId(any(), any());
+    }
+
+    @Test
+    void testGetTransactionsBySellerAfter_Success() throws Exception {
+        TransactionSliceDTO slice = TransactionSliceDTO.builder()
+                .content(List.of(transactionDTO))
+                .size(1)
+                .hasNext(true)
+                .nextCursor("MjAyNC0wMS0wMVQxMjowMHwy")
+                .build();
+        when(transactionService.getAllBySellerIdAfter(1L, "MjAyNC0wMS0wMVQxMDowMHwx", 1)).thenReturn(slice);
+
+        mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER_SEEK)
+                        .param("sellerId", "1")
+                        .param("cursor", "MjAyNC0wMS0wMVQxMDowMHwx")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(transactionDTO.id()))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.nextCursor").value("MjAyNC0wMS0wMVQxMjowMHwy"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        verify(transactionService, times(1)).getAllBySellerIdAfter(1L, "MjAyNC0wMS0wMVQxMDowMHwx", 1);
+    }
+
+    @Test
+    void testGetTransactionsBySellerAfter_NotModified() throws Exception {
+        when(transactionService.getAllBySellerIdAfter(1L, null, 20))
+                .thenReturn(new TransactionSliceDTO(List.of(transactionDTO), 1, false, null));
+
+        String eTag = mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER_SEEK)
+                        .param("sellerId", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER_SEEK)
+                        .param("sellerId", "1")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        verify(transactionService, times(1)).getAllBySellerIdAfter(1L, null, 20);
+    }
+
+    @Test
+    void testGetTransactionsBySellerAfter_FirstSliceWithDefaultSize() throws Exception {
+        when(transactionService.getAllBySellerIdAfter(1L, null, 20))
+                .thenReturn(new TransactionSliceDTO(List.of(), 0, false, null));
+
+        mockMvc.perform(get(Path.TRANSACTION_GET_BY_SELLER_SEEK)
+                        .param("sellerId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        verify(transactionService, times(1)).getAllBySellerIdAfter(1L, null, 20);
+    }
+
+    @Test
+    void testExportTransactions_Ndjson() throws Exception {
+        String body = objectMapper.writeValueAsString(transactionDTO) + "\n";
+        when(transactionExportService.prepare(1L, "2024-01-01T00:00", null, ExportFormat.NDJSON))
+                .thenReturn(out -> out.write(body.getBytes(StandardCharsets.UTF_8)));
+
+        mockMvc.perform(get(Path.TRANSACTION_EXPORT)
+                        .param("sellerId", "1")
+                        .param("startDate", "2024-01-01T00:00")
+                        .param("format", "NDJSON"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions-1.ndjson\""))
+                .andExpect(content().string(body));
+    }
+
+    @Test
+    void testExportTransactions_SellerNotFound() throws Exception {
+        when(transactionExportService.prepare(1L, null, null, ExportFormat.CSV))
+                .thenThrow(new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "Seller not found"));
+
+        mockMvc.perform(get(Path.TRANSACTION_EXPORT)
+                        .param("sellerId", "1"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Seller not found"));
     }
 
     @Test
@@ -147,4 +301,81 @@ class TransactionControllerTest {
 
         verify(transactionService, times(0)).create(any(TransactionCreateRequest.class));
     }
+
+    @Test
+    void testCreateTransactionsBulk_JsonArray() throws Exception {
+        when(transactionService.createAll(any())).thenReturn(bulkResult());
+
+        mockMvc.perform(MockMvcRequestBuilders.post(Path.TRANSACTION_POST_BULK)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(createRequest, createRequest))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[1].error").value("Seller not found with id: 2"));
+
+        verify(transactionService, times(1)).createAll(any());
+    }
+
+    @Test
+    void testCreateTransactionsBulk_Ndjson() throws Exception {
+        when(transactionService.createAll(any())).thenAnswer(invocation -> {
+            Iterator<TransactionCreateRequest> requests = invocation.getArgument(0);
+            int count = 0;
+            while (requests.hasNext()) {
+                requests.next();
+                count++;
+            }
+            return TransactionBulkResultDTO.builder().received(count).items(List.of()).build();
+        });
+
+        String body = objectMapper.writeValueAsString(createRequest) + "\n" + objectMapper.writeValueAsString(createRequest) + "\n";
+
+        mockMvc.perform(MockMvcRequestBuilders.post(Path.TRANSACTION_POST_BULK)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(2));
+    }
+
+    //строки до битой уже закоммичены: ответ - обычный отчет, битая строка в нем ошибкой
+    @Test
+    void testCreateTransactionsBulk_MalformedNdjson() throws Exception {
+        when(transactionService.createAll(any())).thenAnswer(invocation -> {
+            Iterator<TransactionCreateRequest> requests = invocation.getArgument(0);
+            int count = 0;
+            while (requests.hasNext()) {
+                requests.next();
+                count++;
+            }
+            return TransactionBulkResultDTO.builder()
+                    .received(count)
+                    .created(count)
+                    .items(List.of(new TransactionBulkItemResultDTO(0, 1L, null)))
+                    .build();
+        });
+
+        mockMvc.perform(MockMvcRequestBuilders.post(Path.TRANSACTION_POST_BULK)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(createRequest) + "\n{not json\n"
+                                + objectMapper.writeValueAsString(createRequest) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[1].index").value(1))
+                .andExpect(jsonPath("$.items[1].error").value(startsWith(ErrorMessage.MALFORMED_NDJSON)));
+    }
+
+    private TransactionBulkResultDTO bulkResult() {
+        return TransactionBulkResultDTO.builder()
+                .received(2)
+                .created(1)
+                .failed(1)
+                .items(List.of(
+                        new TransactionBulkItemResultDTO(0, 1L, null),
+                        new TransactionBulkItemResultDTO(1, null, "Seller not found with id: 2")))
+                .build();
+    }
 }
\ No newline at end of file
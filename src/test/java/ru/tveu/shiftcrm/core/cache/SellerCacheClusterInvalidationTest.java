@@ -0,0 +1,153 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.tveu.shiftcrm.ShiftCrmApplication;
+import ru.tveu.shiftcrm.api.dto.SellerCreateRequest;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.SellerUpdateRequest;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.core.config.CacheConfig;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.service.SellerService;
+import ru.tveu.shiftcrm.core.service.TransactionService;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Два узла приложения на одной тестовой базе: сброс кэша продавцов и новые транзакции одного узла должны доходить
+ * до другого через NOTIFY.
+ */
+class SellerCacheClusterInvalidationTest {
+
+    private static final long PROPAGATION_TIMEOUT_MS = 5000;
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+    private SellerService sellerServiceA;
+    private SellerService sellerServiceB;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = startNode();
+        nodeB = startNode();
+        sellerServiceA = nodeA.getBean(SellerService.class);
+        sellerServiceB = nodeB.getBean(SellerService.class);
+        jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+        //LISTEN подключается в фоне и при подключении очищает кэш
+        awaitListening(nodeA);
+        awaitListening(nodeB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    //update вместо create-drop: схема общая для обоих узлов и для контекстов других тестов
+    private ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(ShiftCrmApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("spring.cache.type=caffeine",
+                        "spring.cache.cache-names=" + CacheConfig.SELLERS,
+                        "spring.cache.caffeine.spec=maximumSize=100,expireAfterWrite=10m,recordStats",
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "shiftcrm.seller.cache.cluster-invalidation.poll-timeout-ms=50")
+                .run();
+    }
+
+    @Test
+    void updateOnOneNodeEvictsSellerOnAnother() {
+        SellerDTO created = sellerServiceA.create(new SellerCreateRequest("Cached Seller", "cached@example.com"));
+        try {
+            assertEquals("Cached Seller", sellerServiceB.get(created.id()).name());
+
+            //в обход сервиса: узел B продолжает отдавать продавца из кэша
+            jdbcTemplate.update("UPDATE seller SET name = 'Changed Directly' WHERE id = ?", created.id());
+            assertEquals("Cached Seller", sellerServiceB.get(created.id()).name());
+            assertTrue(stats(nodeB).hitCount() >= 1);
+
+            sellerServiceA.update(new SellerUpdateRequest(created.id(), "Renamed Seller", null));
+
+            assertEquals("Renamed Seller", await(() -> sellerServiceB.get(created.id()).name(), "Renamed Seller"));
+        } finally {
+            jdbcTemplate.update("DELETE FROM seller WHERE id = ?", created.id());
+        }
+    }
+
+    @Test
+    void deleteOnOneNodeEvictsSellerOnAnother() {
+        SellerDTO created = sellerServiceA.create(new SellerCreateRequest("Deleted Seller", "deleted@example.com"));
+        sellerServiceB.get(created.id());
+
+        sellerServiceA.delete(created.id());
+
+        String outcome = await(() -> {
+            try {
+                sellerServiceB.get(created.id());
+                return "cached";
+            } catch (ServiceException e) {
+                return e.getErrorCode().name();
+            }
+        }, ErrorCode.OBJECT_NOT_FOUND.name());
+        assertEquals(ErrorCode.OBJECT_NOT_FOUND.name(), outcome);
+    }
+
+    @Test
+    void transactionOnOneNodeRefreshesTimelineOnAnother() {
+        SellerDTO created = sellerServiceA.create(new SellerCreateRequest("Timeline Seller", "timeline@example.com"));
+        TransactionService transactionServiceA = nodeA.getBean(TransactionService.class);
+        SellerTimelineCache timelinesB = nodeB.getBean(SellerTimelineCache.class);
+        try {
+            transactionServiceA.create(new TransactionCreateRequest(created.id(), 100, "CARD"));
+            assertEquals(1, timelinesB.get(created.id()).count());
+
+            transactionServiceA.create(new TransactionCreateRequest(created.id(), 50, "CASH"));
+
+            assertEquals("2", await(() -> String.valueOf(timelinesB.get(created.id()).count()), "2"));
+        } finally {
+            jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ?", created.id());
+            jdbcTemplate.update("DELETE FROM seller WHERE id = ?", created.id());
+        }
+    }
+
+    private String await(Supplier<String> read, String expected) {
+        long deadline = System.currentTimeMillis() + PROPAGATION_TIMEOUT_MS;
+        String value = read.get();
+        while (!expected.equals(value) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            value = read.get();
+        }
+        return value;
+    }
+
+    private void awaitListening(ConfigurableApplicationContext node) {
+        SellerCacheInvalidator invalidator = node.getBean(SellerCacheInvalidator.class);
+        String listening = await(() -> String.valueOf(invalidator.isListening()), "true");
+        assertEquals("true", listening);
+    }
+
+    private CacheStats stats(ConfigurableApplicationContext node) {
+        CaffeineCache cache = (CaffeineCache) node.getBean(CacheManager.class).getCache(CacheConfig.SELLERS);
+        return cache.getNativeCache().stats();
+    }
+}
@@ -0,0 +1,203 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.tveu.shiftcrm.core.config.CacheConfig;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.event.RemoteCacheResetEvent;
+import ru.tveu.shiftcrm.core.event.RemoteSellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.RemoteTransactionsCreatedEvent;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionsImportedEvent;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SellerCacheInvalidatorTest {
+
+    private static final String CHANNEL = "seller_cache";
+    private static final int MAX_PENDING = 1000;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache cache;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SellerCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cacheManager.getCache(CacheConfig.SELLERS)).thenReturn(cache);
+        invalidator = newInvalidator();
+    }
+
+    @Test
+    void testChangeEvictsLocallyAndNotifiesOtherNodes() {
+        invalidator.onSellerChanged(SellerChangedEvent.updated(1L));
+
+        verify(cache).evict(1L);
+        verify(jdbcTemplate).queryForList(anyString(), eq(CHANNEL), eq(invalidator.notificationPayload(SellerChangedEvent.updated(1L))));
+    }
+
+    @Test
+    void testFailedNotifyDoesNotFailTheWrite() {
+        when(jdbcTemplate.queryForList(anyString(), eq(CHANNEL), anyString())).thenThrow(new IllegalStateException("down"));
+
+        invalidator.onSellerChanged(SellerChangedEvent.updated(1L));
+
+        verify(cache).evict(1L);
+    }
+
+    @Test
+    void testNotificationFromAnotherNodeEvictsSeller() {
+        invalidator.onNotification("other-node:7");
+
+        verify(cache).evict(7L);
+        verify(eventPublisher).publishEvent(new RemoteSellerChangedEvent(7L, false));
+    }
+
+    @Test
+    void testDeletedSellerReachesOtherNodeCaches() {
+        SellerCacheInvalidator other = newInvalidator();
+
+        other.onNotification(invalidator.notificationPayload(SellerChangedEvent.deleted(7L)));
+
+        verify(cache).evict(7L);
+        verify(eventPublisher).publishEvent(new RemoteSellerChangedEvent(7L, true));
+    }
+
+    @Test
+    void testOwnAndMalformedNotificationsAreIgnored() {
+        invalidator.onNotification(invalidator.notificationPayload(SellerChangedEvent.deleted(7L)));
+        invalidator.onNotification("other-node:not-a-number");
+        invalidator.onNotification("garbage");
+
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void testTransactionsReachOtherNodeInOneNotification() {
+        List<TransactionCreatedEvent> events = List.of(transaction(1), transaction(2));
+        events.forEach(invalidator::onTransactionCreated);
+
+        invalidator.flush();
+
+        List<String> payloads = sentPayloads();
+        assertEquals(1, payloads.size());
+        SellerCacheInvalidator otherNode = newInvalidator();
+        otherNode.onNotification(payloads.get(0));
+        verify(eventPublisher).publishEvent(new RemoteTransactionsCreatedEvent(events));
+    }
+
+    @Test
+    void testLargeBatchIsSplitUnderPayloadLimit() {
+        List<TransactionCreatedEvent> events = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            events.add(transaction(i));
+        }
+        events.forEach(invalidator::onTransactionCreated);
+
+        invalidator.flush();
+
+        List<String> payloads = sentPayloads();
+        assertTrue(payloads.size() > 1);
+        payloads.forEach(payload -> assertTrue(payload.length() <= SellerCacheInvalidator.MAX_PAYLOAD_CHARS));
+
+        SellerCacheInvalidator otherNode = newInvalidator();
+        payloads.forEach(otherNode::onNotification);
+        ArgumentCaptor<RemoteTransactionsCreatedEvent> received = ArgumentCaptor.forClass(RemoteTransactionsCreatedEvent.class);
+        verify(eventPublisher, times(payloads.size())).publishEvent(received.capture());
+        assertEquals(events, received.getAllValues().stream().flatMap(event -> event.transactions().stream()).toList());
+    }
+
+    @Test
+    void testFailedFlushSendsResetNextTime() {
+        invalidator.onTransactionCreated(transaction(1));
+        when(jdbcTemplate.queryForList(anyString(), eq(CHANNEL), anyString())).thenThrow(new IllegalStateException("down"));
+        invalidator.flush();
+
+        reset(jdbcTemplate);
+        invalidator.flush();
+
+        assertResetSent();
+    }
+
+    @Test
+    void testOverflowingOutboxSendsReset() {
+        for (int i = 0; i <= MAX_PENDING; i++) {
+            invalidator.onTransactionCreated(transaction(i));
+        }
+
+        invalidator.flush();
+
+        assertResetSent();
+    }
+
+    @Test
+    void testImportSendsReset() {
+        invalidator.onTransactionsImported(new TransactionsImportedEvent(Set.of(1L), 10));
+
+        assertResetSent();
+    }
+
+    @Test
+    void testEmptyOutboxSendsNothing() {
+        invalidator.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void assertResetSent() {
+        List<String> payloads = sentPayloads();
+        assertEquals(1, payloads.size());
+        newInvalidator().onNotification(payloads.get(0));
+        verify(eventPublisher).publishEvent(new RemoteCacheResetEvent());
+    }
+
+    private List<String> sentPayloads() {
+        ArgumentCaptor<String> payloads = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, atLeastOnce()).queryForList(anyString(), eq(CHANNEL), payloads.capture());
+        return payloads.getAllValues();
+    }
+
+    private SellerCacheInvalidator newInvalidator() {
+        return new SellerCacheInvalidator(cacheManager, jdbcTemplate, transactionManager, dataSource, eventPublisher,
+                CHANNEL, 50, 50, MAX_PENDING);
+    }
+
+    private static TransactionCreatedEvent transaction(long id) {
+        return new TransactionCreatedEvent(id, 100 + id % 7, 10.25 + id, PaymentType.CARD,
+                LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123_456_000).plusMinutes(id));
+    }
+}
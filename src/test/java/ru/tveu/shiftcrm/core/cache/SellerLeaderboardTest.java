@@ -0,0 +1,205 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.event.RemoteCacheResetEvent;
+import ru.tveu.shiftcrm.core.event.RemoteSellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.RemoteTransactionsCreatedEvent;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SellerLeaderboardTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 10, 12, 30);
+    private static final LocalDateTime TODAY = LocalDateTime.of(2024, 3, 10, 0, 0);
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SellerLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        leaderboard = new SellerLeaderboard(jdbcTemplate, transactionManager, 1);
+    }
+
+    @Test
+    void testTopSumsDayAndHourBuckets() {
+        leaderboard.rebuild(NOW);
+        leaderboard.onTransactionCreated(event(1L, 1L, 100.0, TODAY.minusDays(3).plusHours(5)));
+        leaderboard.onTransactionCreated(event(2L, 2L, 250.0, TODAY.minusDays(2).plusHours(1)));
+        leaderboard.onTransactionCreated(event(3L, 1L, 200.0, TODAY.plusHours(9)));
+        leaderboard.onTransactionCreated(event(4L, 3L, 10.0, TODAY.plusHours(11)));
+        leaderboard.onTransactionCreated(event(5L, 3L, 5.0, TODAY.plusHours(12)));
+
+        List<SellerLeaderboard.Rank> top = leaderboard.top(TODAY.minusDays(3), TODAY.plusHours(12), 2);
+
+        assertEquals(List.of(new SellerLeaderboard.Rank(1L, 30_000), new SellerLeaderboard.Rank(2L, 25_000)), top);
+        assertEquals(List.of(new SellerLeaderboard.Rank(3L, 1_500)), leaderboard.top(TODAY.plusHours(10), TODAY.plusHours(13), 5));
+    }
+
+    @Test
+    void testUnalignedOrEmptyRangeIsRejected() {
+        leaderboard.rebuild(NOW);
+
+        ServiceException unaligned = assertThrows(ServiceException.class,
+                () -> leaderboard.top(TODAY.plusMinutes(30), TODAY.plusHours(2), 10));
+        ServiceException empty = assertThrows(ServiceException.class,
+                () -> leaderboard.top(TODAY.plusHours(2), TODAY.plusHours(2), 10));
+
+        assertEquals(ErrorCode.BAD_REQUEST, unaligned.getErrorCode());
+        assertEquals(ErrorCode.BAD_REQUEST, empty.getErrorCode());
+    }
+
+    @Test
+    void testHoursOlderThanRetentionNeedDayAlignedRange() {
+        leaderboard.rebuild(NOW);
+        leaderboard.onTransactionCreated(event(1L, 1L, 100.0, TODAY.minusDays(5).plusHours(3)));
+
+        ServiceException exception = assertThrows(ServiceException.class,
+                () -> leaderboard.top(TODAY.minusDays(5).plusHours(3), TODAY, 10));
+
+        assertEquals(ErrorCode.BAD_REQUEST, exception.getErrorCode());
+        assertEquals(1, leaderboard.top(TODAY.minusDays(5), TODAY, 10).size());
+    }
+
+    @Test
+    void testPrunedHoursAreStillCountedInDays() {
+        leaderboard.rebuild(NOW);
+        leaderboard.onTransactionCreated(event(1L, 1L, 100.0, TODAY.plusHours(1)));
+
+        leaderboard.prune(NOW.plusDays(2));
+
+        assertThrows(ServiceException.class, () -> leaderboard.top(TODAY.plusHours(1), TODAY.plusHours(2), 10));
+        assertEquals(List.of(new SellerLeaderboard.Rank(1L, 10_000)), leaderboard.top(TODAY, TODAY.plusDays(1), 10));
+    }
+
+    @Test
+    void testRebuildKeepsOnlyEventsMissingFromSnapshot() throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong("seller_id")).thenReturn(1L);
+        when(row.getObject("hour", LocalDateTime.class)).thenReturn(TODAY.plusHours(9));
+        when(row.getLong("amount_cents")).thenReturn(20_000L);
+        doAnswer(invocation -> {
+            invocation.getArgument(2, RowCallbackHandler.class).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(eq(SellerLeaderboard.REBUILD_QUERY), anyMap(), any(RowCallbackHandler.class));
+        //транзакция 3 уже в снимке, 4 закоммичена после него
+        when(jdbcTemplate.queryForList(eq(SellerLeaderboard.VISIBLE_IDS_QUERY), anyMap(), eq(Long.class))).thenReturn(List.of(3L));
+
+        leaderboard.onTransactionCreated(event(3L, 1L, 200.0, TODAY.plusHours(9)));
+        leaderboard.onTransactionCreated(event(4L, 2L, 50.0, TODAY.plusHours(10)));
+        leaderboard.rebuild(NOW);
+
+        assertEquals(List.of(new SellerLeaderboard.Rank(1L, 20_000), new SellerLeaderboard.Rank(2L, 5_000)),
+                leaderboard.top(TODAY, TODAY.plusDays(1), 10));
+        verify(jdbcTemplate).queryForList(SellerLeaderboard.VISIBLE_IDS_QUERY, Map.of("ids", List.of(3L, 4L)), Long.class);
+    }
+
+    @Test
+    void testVisibleIdsAreCheckedInChunks() {
+        int events = SellerLeaderboard.VISIBLE_IDS_CHUNK * 2 + 1;
+        for (long id = 1; id <= events; id++) {
+            leaderboard.onTransactionCreated(event(id, 1L, 1.0, TODAY.plusHours(1)));
+        }
+
+        leaderboard.rebuild(NOW);
+
+        verify(jdbcTemplate, times(3)).queryForList(eq(SellerLeaderboard.VISIBLE_IDS_QUERY), anyMap(), eq(Long.class));
+        assertEquals(List.of(new SellerLeaderboard.Rank(1L, events * 100L)), leaderboard.top(TODAY, TODAY.plusDays(1), 10));
+    }
+
+    @Test
+    void testRemoteTransactionsAreCounted() {
+        leaderboard.rebuild(NOW);
+
+        leaderboard.onRemoteTransactionsCreated(new RemoteTransactionsCreatedEvent(List.of(
+                event(1L, 1L, 100.0, TODAY.plusHours(1)),
+                event(2L, 2L, 50.0, TODAY.plusHours(1)))));
+
+        assertEquals(List.of(new SellerLeaderboard.Rank(1L, 10_000), new SellerLeaderboard.Rank(2L, 5_000)),
+                leaderboard.top(TODAY, TODAY.plusHours(2), 10));
+    }
+
+    @Test
+    void testRemoteResetRebuildsFromDatabase() {
+        leaderboard.rebuild(NOW);
+        leaderboard.onTransactionCreated(event(1L, 1L, 100.0, TODAY.plusHours(1)));
+
+        leaderboard.onRemoteCacheReset(new RemoteCacheResetEvent());
+
+        verify(jdbcTemplate, times(2)).query(eq(SellerLeaderboard.REBUILD_QUERY), anyMap(), any(RowCallbackHandler.class));
+        //пересборка идет от текущего времени: часы 2024 года уже вне срока хранения, спрашиваем целый день
+        assertEquals(List.of(), leaderboard.top(TODAY, TODAY.plusDays(1), 10));
+    }
+
+    @Test
+    void testNotReadyBeforeRebuild() {
+        ServiceException exception = assertThrows(ServiceException.class,
+                () -> leaderboard.top(TODAY, TODAY.plusDays(1), 10));
+
+        assertEquals(ErrorCode.SERVICE_UNAVAILABLE, exception.getErrorCode());
+    }
+
+    @Test
+    void testEvictedSellerLeavesLeaderboard() {
+        leaderboard.rebuild(NOW);
+        leaderboard.onTransactionCreated(event(1L, 1L, 100.0, TODAY.plusHours(1)));
+        leaderboard.onTransactionCreated(event(2L, 2L, 50.0, TODAY.plusHours(1)));
+
+        leaderboard.evict(1L);
+
+        assertEquals(List.of(new SellerLeaderboard.Rank(2L, 5_000)), leaderboard.top(TODAY, TODAY.plusHours(2), 10));
+    }
+
+    @Test
+    void testOnlyDeletedSellerLeavesLeaderboard() {
+        leaderboard.rebuild(NOW);
+        leaderboard.onTransactionCreated(event(1L, 1L, 100.0, TODAY.plusHours(1)));
+        leaderboard.onTransactionCreated(event(2L, 2L, 50.0, TODAY.plusHours(1)));
+
+        leaderboard.onSellerChanged(SellerChangedEvent.updated(2L));
+        leaderboard.onSellerChanged(SellerChangedEvent.deleted(1L));
+
+        assertEquals(List.of(new SellerLeaderboard.Rank(2L, 5_000)), leaderboard.top(TODAY, TODAY.plusHours(2), 10));
+    }
+
+    @Test
+    void testSellerDeletedOnAnotherNodeLeavesLeaderboard() {
+        leaderboard.rebuild(NOW);
+        leaderboard.onTransactionCreated(event(1L, 1L, 100.0, TODAY.plusHours(1)));
+        leaderboard.onTransactionCreated(event(2L, 2L, 50.0, TODAY.plusHours(1)));
+
+        leaderboard.onRemoteSellerChanged(new RemoteSellerChangedEvent(2L, false));
+        leaderboard.onRemoteSellerChanged(new RemoteSellerChangedEvent(1L, true));
+
+        assertEquals(List.of(new SellerLeaderboard.Rank(2L, 5_000)), leaderboard.top(TODAY, TODAY.plusHours(2), 10));
+    }
+
+    private TransactionCreatedEvent event(Long transactionId, Long sellerId, double amount, LocalDateTime transactionDate) {
+        return new TransactionCreatedEvent(transactionId, sellerId, amount, PaymentType.CARD, transactionDate);
+    }
+}
@@ -0,0 +1,137 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.repository.TransactionRepository;
+import ru.tveu.shiftcrm.core.repository.projection.TimelineEntry;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SellerTimelineCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(transactionRepository.streamTimelineBySellerId(anyLong()))
+                .thenAnswer(invocation -> Stream.of(new TimelineEntry(START, 10.0), new TimelineEntry(START.plusHours(1), 20.0)));
+    }
+
+    @Test
+    void testTimelineIsLoadedOnce() {
+        SellerTimelineCache cache = new SellerTimelineCache(transactionRepository, transactionManager, meterRegistry, 1024);
+
+        cache.get(1L);
+        SellerTimeline timeline = cache.get(1L);
+
+        assertEquals(2, timeline.count());
+        verify(transactionRepository, times(1)).streamTimelineBySellerId(1L);
+
+        DistributionSummary loadedRows = meterRegistry.get("seller.timeline.rows").summary();
+        assertEquals(1, loadedRows.count());
+        assertEquals(2, loadedRows.totalAmount());
+    }
+
+    @Test
+    void testCreatedTransactionIsAppended() {
+        SellerTimelineCache cache = new SellerTimelineCache(transactionRepository, transactionManager, meterRegistry, 1024);
+        cache.get(1L);
+
+        cache.onTransactionCreated(event(1L, START.plusHours(2)));
+
+        assertEquals(3, cache.get(1L).count());
+        verify(transactionRepository, times(1)).streamTimelineBySellerId(1L);
+    }
+
+    @Test
+    void testOutOfOrderTransactionForcesReload() {
+        SellerTimelineCache cache = new SellerTimelineCache(transactionRepository, transactionManager, meterRegistry, 1024);
+        cache.get(1L);
+
+        cache.onTransactionCreated(event(1L, START.minusHours(1)));
+        cache.get(1L);
+
+        verify(transactionRepository, times(2)).streamTimelineBySellerId(1L);
+    }
+
+    @Test
+    void testEventDuringLoadIsNotLost() {
+        SellerTimelineCache cache = new SellerTimelineCache(transactionRepository, transactionManager, meterRegistry, 1024);
+        //событие о транзакции приходит, пока идет чтение ленты, которое ее уже не увидит
+        when(transactionRepository.streamTimelineBySellerId(1L)).thenAnswer(invocation -> {
+            cache.onTransactionCreated(event(1L, START.plusHours(2)));
+            return Stream.of(new TimelineEntry(START, 10.0), new TimelineEntry(START.plusHours(1), 20.0));
+        });
+
+        cache.get(1L);
+        cache.get(1L);
+
+        verify(transactionRepository, times(2)).streamTimelineBySellerId(1L);
+    }
+
+    @Test
+    void testLeastRecentlyUsedTimelineIsEvictedBySize() {
+        int timelineBytes = SellerTimeline.builder().add(START, 10.0).add(START.plusHours(1), 20.0).build().sizeInBytes();
+        SellerTimelineCache cache = new SellerTimelineCache(transactionRepository, transactionManager, meterRegistry, timelineBytes * 2L);
+
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(1L);
+        cache.get(3L);
+        cache.get(1L);
+        cache.get(2L);
+
+        verify(transactionRepository, times(1)).streamTimelineBySellerId(1L);
+        verify(transactionRepository, times(2)).streamTimelineBySellerId(2L);
+    }
+
+    @Test
+    void testEvict() {
+        SellerTimelineCache cache = new SellerTimelineCache(transactionRepository, transactionManager, meterRegistry, 1024);
+        cache.get(1L);
+
+        cache.evict(1L);
+        cache.get(1L);
+
+        verify(transactionRepository, times(2)).streamTimelineBySellerId(1L);
+    }
+
+    @Test
+    void testOnlyDeletedSellerIsEvicted() {
+        SellerTimelineCache cache = new SellerTimelineCache(transactionRepository, transactionManager, meterRegistry, 1024);
+        cache.get(1L);
+
+        cache.onSellerChanged(SellerChangedEvent.updated(1L));
+        cache.get(1L);
+        cache.onSellerChanged(SellerChangedEvent.deleted(1L));
+        cache.get(1L);
+
+        verify(transactionRepository, times(2)).streamTimelineBySellerId(1L);
+    }
+
+    private TransactionCreatedEvent event(Long sellerId, LocalDateTime transactionDate) {
+        return new TransactionCreatedEvent(1L, sellerId, 10.0, PaymentType.CARD, transactionDate);
+    }
+}
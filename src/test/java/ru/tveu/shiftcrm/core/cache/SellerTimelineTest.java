@@ -0,0 +1,126 @@
+package ru.tveu.shiftcrm.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SellerTimelineTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    void testMicrosRoundTrip() {
+        LocalDateTime dateTime = LocalDateTime.of(1965, 5, 17, 13, 45, 10, 987_654_000);
+
+        assertEquals(dateTime, SellerTimeline.fromMicros(SellerTimeline.toMicros(dateTime)));
+    }
+
+    @Test
+    void testDeltasAreCompressed() {
+        SellerTimeline.Builder builder = SellerTimeline.builder();
+        for (int i = 0; i < 10_000; i++) {
+            builder.add(START.plusSeconds(i));
+        }
+
+        SellerTimeline timeline = builder.build();
+
+        assertEquals(10_000, timeline.count());
+        //секундный шаг - 3 байта varint вместо 8 байт long
+        assertTrue(timeline.sizeInBytes() < 10_000 * 4);
+    }
+
+    @Test
+    void testAppendKeepsPreviousInstanceIntact() {
+        SellerTimeline first = SellerTimeline.builder().add(START).build();
+
+        SellerTimeline second = first.append(START.plusHours(1), 10.0);
+        SellerTimeline third = second.append(START.plusHours(2), 10.0);
+
+        assertEquals(1, first.count());
+        assertEquals(START, first.densestWindow(TimeUnit.DAYS.toMicros(1)).end());
+        assertEquals(3, third.densestWindow(TimeUnit.DAYS.toMicros(1)).count());
+    }
+
+    @Test
+    void testOutOfOrderAppendIsRejected() {
+        SellerTimeline timeline = SellerTimeline.builder().add(START).build();
+
+        assertNull(timeline.append(START.minusSeconds(1), 10.0));
+        assertThrows(IllegalArgumentException.class, () -> SellerTimeline.builder().add(START).add(START.minusSeconds(1)));
+    }
+
+    @Test
+    void testDensestWindow() {
+        SellerTimeline timeline = SellerTimeline.builder()
+                .add(START)
+                .add(START.plusDays(10))
+                .add(START.plusDays(10).plusHours(5))
+                .add(START.plusDays(11))
+                .add(START.plusDays(30))
+                .build();
+
+        SellerTimeline.Window window = timeline.densestWindow(TimeUnit.DAYS.toMicros(1));
+
+        assertEquals(3, window.count());
+        assertEquals(START.plusDays(10), window.start());
+        assertEquals(START.plusDays(11), window.end());
+        assertNull(SellerTimeline.EMPTY.densestWindow(TimeUnit.DAYS.toMicros(1)));
+    }
+
+    @Test
+    void testAllDurationsInOnePass() {
+        SellerTimeline timeline = SellerTimeline.builder()
+                .add(START)
+                .add(START.plusHours(1))
+                .add(START.plusDays(5).plusHours(2))
+                .add(START.plusDays(6))
+                .add(START.plusDays(6).plusHours(1))
+                .build();
+        long[] durations = {TimeUnit.HOURS.toMicros(1), TimeUnit.DAYS.toMicros(1), TimeUnit.DAYS.toMicros(7)};
+
+        SellerTimeline.Window[] windows = timeline.bestWindows(durations, false);
+
+        assertEquals(2, windows[0].count());
+        assertEquals(START, windows[0].start());
+        assertEquals(3, windows[1].count());
+        assertEquals(START.plusDays(5).plusHours(2), windows[1].start());
+        assertEquals(5, windows[2].count());
+        for (int i = 0; i < durations.length; i++) {
+            assertEquals(timeline.densestWindow(durations[i]), windows[i]);
+        }
+    }
+
+    @Test
+    void testRevenueWeightedWindow() {
+        SellerTimeline timeline = SellerTimeline.builder()
+                .add(START, 10.0)
+                .add(START.plusHours(1), 10.0)
+                .add(START.plusHours(2), 10.0)
+                .add(START.plusDays(3), 500.55)
+                .add(START.plusDays(10), -5.0)
+                .add(START.plusDays(10).plusHours(1), 20.0)
+                .build();
+
+        SellerTimeline.Window byCount = timeline.bestWindows(new long[]{TimeUnit.DAYS.toMicros(1)}, false)[0];
+        SellerTimeline.Window byAmount = timeline.bestWindows(new long[]{TimeUnit.DAYS.toMicros(1)}, true)[0];
+
+        assertEquals(START, byCount.start());
+        assertEquals(3, byCount.count());
+        assertEquals(START.plusDays(3), byAmount.start());
+        assertEquals(START.plusDays(3), byAmount.end());
+        assertEquals(1, byAmount.count());
+    }
+
+    @Test
+    void testAppendedAmountsAreWeighted() {
+        SellerTimeline timeline = SellerTimeline.builder().add(START, 1.0).add(START.plusHours(1), 1.0).build()
+                .append(START.plusDays(2), 100.0);
+
+        SellerTimeline.Window byAmount = timeline.bestWindows(new long[]{TimeUnit.DAYS.toMicros(1)}, true)[0];
+
+        assertEquals(START.plusDays(2), byAmount.start());
+    }
+}
@@ -0,0 +1,158 @@
+package ru.tveu.shiftcrm.core.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+import ru.tveu.shiftcrm.core.service.AnalysisService;
+import ru.tveu.shiftcrm.core.service.PeriodWeight;
+import ru.tveu.shiftcrm.core.service.TransactionService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Запись через /actuator/jfr: события приложения попадают в выгруженный файл с заполненными полями.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class JfrEventsTest {
+
+    private static final long UNKNOWN_SELLER_ID = -1L;
+
+    @Autowired
+    private JfrEndpoint jfrEndpoint;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AnalysisService analysisService;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Seller seller;
+
+    @BeforeEach
+    void setUp() {
+        seller = sellerRepository.save(Seller.builder()
+                .name("JFR Seller")
+                .contactInfo("jfr@example.com")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        //запись могла остаться после упавшей проверки
+        if (Boolean.TRUE.equals(jfrEndpoint.status().get("running"))) {
+            Files.deleteIfExists(jfrEndpoint.stop().getBody().getFile().toPath());
+        }
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ?", seller.getId());
+        sellerRepository.deleteById(seller.getId());
+    }
+
+    @Test
+    void testRecordingContainsApplicationEvents() throws IOException {
+        assertEquals(200, jfrEndpoint.start(null).getStatus());
+        assertEquals(409, jfrEndpoint.start(null).getStatus());
+
+        TransactionDTO created = transactionService.create(
+                new TransactionCreateRequest(seller.getId(), 125.5, PaymentType.CARD.name()));
+        transactionService.create(new TransactionCreateRequest(seller.getId(), 74.5, PaymentType.CASH.name()));
+        assertThrows(ServiceException.class, () -> transactionService.create(
+                new TransactionCreateRequest(UNKNOWN_SELLER_ID, 1.0, PaymentType.CARD.name())));
+        analysisService.findBestTransactionPeriods(List.of(1L, 7L), seller.getId(), PeriodWeight.AMOUNT);
+
+        List<RecordedEvent> events = dump(jfrEndpoint.stop());
+
+        List<RecordedEvent> creates = ofType(events, TransactionCreateEvent.NAME);
+        RecordedEvent first = creates.stream()
+                .filter(event -> event.getLong("transactionId") == created.id())
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No create event for transaction " + created.id()));
+        assertEquals(seller.getId().longValue(), first.getLong("sellerId"));
+        assertEquals(125.5, first.getDouble("amount"));
+        assertEquals(PaymentType.CARD.name(), first.getString("paymentType"));
+        assertEquals(TransactionCreateEvent.CREATED, first.getString("outcome"));
+        assertTrue(creates.stream().anyMatch(event -> event.getLong("sellerId") == UNKNOWN_SELLER_ID
+                && ErrorCode.OBJECT_NOT_FOUND.name().equals(event.getString("outcome"))
+                && event.getLong("transactionId") == -1));
+
+        RecordedEvent analysis = ofType(events, BestPeriodAnalysisEvent.NAME).stream()
+                .filter(event -> event.getLong("sellerId") == seller.getId())
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No analysis event for seller " + seller.getId()));
+        assertEquals("[1, 7]", analysis.getString("durations"));
+        assertEquals(PeriodWeight.AMOUNT.name(), analysis.getString("weight"));
+        assertEquals(2, analysis.getLong("rowsScanned"));
+        assertTrue(analysis.getDuration("loadTime").toNanos() > 0);
+        assertFalse(analysis.getDuration("computeTime").isNegative());
+        assertTrue(analysis.getString("result").startsWith("1d: "));
+    }
+
+    //выгрузку отдают наружу: окружения и системных свойств с паролем БД в ней быть не должно
+    @Test
+    void testRecordingIsBoundedAndOmitsSecrets() throws IOException {
+        assertEquals(200, jfrEndpoint.start(null).getStatus());
+        Map<String, Object> status = jfrEndpoint.status();
+        assertEquals(268435456L, status.get("maxSizeBytes"));
+        assertEquals("PT1H", status.get("maxAge"));
+
+        List<RecordedEvent> events = dump(jfrEndpoint.stop());
+
+        for (String secretEvent : JfrEndpoint.SECRET_EVENTS) {
+            assertTrue(ofType(events, secretEvent).isEmpty(), secretEvent);
+        }
+    }
+
+    @Test
+    void testStopWithoutRecordingIsNotFound() throws IOException {
+        assertEquals(404, jfrEndpoint.stop().getStatus());
+    }
+
+    private static List<RecordedEvent> dump(WebEndpointResponse<Resource> response) throws IOException {
+        assertEquals(200, response.getStatus());
+        Path file = Files.createTempFile("jfr-events-test-", ".jfr");
+        try {
+            try (InputStream in = response.getBody().getInputStream()) {
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            //временный файл эндпоинта удаляется после чтения ответа
+            assertFalse(response.getBody().exists());
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .toList();
+    }
+}
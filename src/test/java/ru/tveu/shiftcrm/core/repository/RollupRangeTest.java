@@ -0,0 +1,40 @@
+package ru.tveu.shiftcrm.core.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RollupRangeTest {
+
+    @Test
+    void testPartialEdgeDaysAreReadFromRawTable() {
+        RollupRange range = RollupRange.of(LocalDateTime.of(2024, 1, 1, 10, 0), LocalDateTime.of(2024, 1, 5, 8, 0));
+
+        assertEquals(LocalDate.of(2024, 1, 2), range.fullDaysFrom());
+        assertEquals(LocalDate.of(2024, 1, 5), range.fullDaysTo());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 0, 0), range.rawHeadEnd());
+        assertEquals(LocalDateTime.of(2024, 1, 5, 0, 0), range.rawTailStart());
+    }
+
+    @Test
+    void testStartAtMidnightIsWholeDay() {
+        RollupRange range = RollupRange.of(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 3, 0, 0));
+
+        assertEquals(LocalDate.of(2024, 1, 1), range.fullDaysFrom());
+        assertEquals(LocalDate.of(2024, 1, 3), range.fullDaysTo());
+        assertEquals(range.start(), range.rawHeadEnd());
+    }
+
+    @Test
+    void testRangeWithinOneDayHasNoWholeDays() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        RollupRange range = RollupRange.of(start, LocalDateTime.of(2024, 1, 2, 8, 0));
+
+        assertEquals(range.fullDaysFrom(), range.fullDaysTo());
+        assertEquals(start, range.rawHeadEnd());
+        assertEquals(start, range.rawTailStart());
+    }
+}
@@ -0,0 +1,97 @@
+package ru.tveu.shiftcrm.core.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Планы запросов по индексам из V1.4. Таблица маленькая и засевается один раз: выбор индекса вместо
+ * последовательного чтения задается SET LOCAL enable_seqscan = off, а не объемом данных.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionIndexUsageTest {
+
+    private static final String MIGRATION = "db.migration/V1.4__create_transaction_indexes.sql";
+    private static final String SELLER_NAME_PREFIX = "Index Seller ";
+    private static final int SELLERS = 20;
+    private static final int TRANSACTIONS = 2_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void setUp() {
+        new ResourceDatabasePopulator(new ClassPathResource(MIGRATION)).execute(dataSource);
+
+        jdbcTemplate.update("INSERT INTO seller (name, contact_info, registration_date) " +
+                "SELECT ? || g, 'index@example.com', now() FROM generate_series(1, ?) g", SELLER_NAME_PREFIX, SELLERS);
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                        "SELECT nextval('transaction_id_seq'), " +
+                        "       (ARRAY(SELECT id FROM seller WHERE name LIKE ? || '%' ORDER BY id))[1 + g % ?], " +
+                        "       round(CAST(random() * 1000 AS numeric), 2), 'CARD', " +
+                        "       TIMESTAMP '2020-01-01' + g * INTERVAL '1 minute' " +
+                        "FROM generate_series(1, ?) g",
+                SELLER_NAME_PREFIX, SELLERS, TRANSACTIONS);
+        //карта видимости для Index Only Scan; на паре тысяч строк это миллисекунды
+        jdbcTemplate.execute("VACUUM ANALYZE transaction");
+    }
+
+    @AfterAll
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id IN (SELECT id FROM seller WHERE name LIKE ? || '%')", SELLER_NAME_PREFIX);
+        jdbcTemplate.update("DELETE FROM seller WHERE name LIKE ? || '%'", SELLER_NAME_PREFIX);
+    }
+
+    @Test
+    void sellerTimelineUsesSellerDateIndex() {
+        Long sellerId = jdbcTemplate.queryForObject("SELECT min(id) FROM seller WHERE name LIKE ? || '%'", Long.class, SELLER_NAME_PREFIX);
+
+        String plan = explain("SELECT * FROM transaction WHERE seller_id = ? ORDER BY transaction_date", sellerId);
+
+        assertThat(plan).contains("idx_transaction_seller_date");
+    }
+
+    @Test
+    void periodAggregationUsesCoveringDateIndex() {
+        LocalDateTime startDate = LocalDateTime.of(2020, 1, 1, 6, 0);
+        LocalDateTime endDate = startDate.plusHours(6);
+
+        String plan = explain("SELECT seller_id, SUM(amount) FROM transaction " +
+                "WHERE transaction_date >= ? AND transaction_date <= ? GROUP BY seller_id", startDate, endDate);
+
+        assertThat(plan).contains("Index Only Scan using idx_transaction_date_seller_amount");
+    }
+
+    //SET LOCAL действует до конца транзакции, поэтому EXPLAIN идет в той же транзакции и на том же соединении
+    private String explain(String sql, Object... args) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            jdbcTemplate.execute("SET LOCAL enable_bitmapscan = off");
+            return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args).stream()
+                    .collect(Collectors.joining("\n"));
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package ru.tveu.shiftcrm.core.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.tveu.shiftcrm.core.event.TransactionsDetachedEvent;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionPartitionManagerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 11, 15);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testFuturePartitionsAreCreated() {
+        manager(2, 0).maintain(TODAY);
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transaction_2024_11 PARTITION OF transaction " +
+                "FOR VALUES FROM ('2024-11-01') TO ('2024-12-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transaction_2024_12 PARTITION OF transaction " +
+                "FOR VALUES FROM ('2024-12-01') TO ('2025-01-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transaction_2025_01 PARTITION OF transaction " +
+                "FOR VALUES FROM ('2025-01-01') TO ('2025-02-01')");
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class), any());
+    }
+
+    @Test
+    void testPartitionsOlderThanRetentionAreDetached() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any()))
+                .thenReturn(List.of("transaction_2024_07", "transaction_2024_08", "transaction_2024_11", "transaction_default"));
+
+        manager(0, 3).maintain(TODAY);
+
+        verify(jdbcTemplate).execute("ALTER TABLE transaction DETACH PARTITION transaction_2024_07");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE transaction DETACH PARTITION transaction_2024_08");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE transaction DETACH PARTITION transaction_default");
+    }
+
+    @Test
+    void testDetachDeletesDailyStatsOfMonth() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any()))
+                .thenReturn(List.of("transaction_2024_07", "transaction_2024_11"));
+
+        manager(0, 3).maintain(TODAY);
+
+        verify(jdbcTemplate).update(TransactionPartitionManager.DELETE_DAILY_STATS,
+                LocalDate.of(2024, 7, 1), LocalDate.of(2024, 8, 1));
+        verify(jdbcTemplate, times(1)).update(eq(TransactionPartitionManager.DELETE_DAILY_STATS), any(), any());
+        verify(transactionManager).commit(any());
+        verify(eventPublisher).publishEvent(new TransactionsDetachedEvent(
+                LocalDate.of(2024, 7, 1).atStartOfDay(), LocalDate.of(2024, 8, 1).atStartOfDay()));
+    }
+
+    @Test
+    void testFailedPartitionDoesNotStopMaintenance() {
+        doThrow(new DataIntegrityViolationException("updated partition constraint for default partition would be violated"))
+                .when(jdbcTemplate).execute(contains("transaction_2024_11"));
+
+        manager(1, 0).maintain(TODAY);
+
+        verify(jdbcTemplate).execute(contains("transaction_2024_12"));
+    }
+
+    private TransactionPartitionManager manager(int monthsAhead, int retentionMonths) {
+        return new TransactionPartitionManager(jdbcTemplate, transactionManager, eventPublisher, monthsAhead, retentionMonths);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.tveu.shiftcrm.core.repository;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import ru.tveu.shiftcrm.core.entity.Seller;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@Sql(scripts = {
+        "classpath:db.migration/V1.5__create_seller_daily_stats.sql",
+        "classpath:db.migration/V1.6__partition_transaction_table.sql"
+}, config = @SqlConfig(separator = ScriptUtils.EOF_STATEMENT_SEPARATOR))
+class TransactionPartitioningTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    private Seller seller;
+
+    @BeforeEach
+    void setUp() {
+        seller = sellerRepository.saveAndFlush(Seller.builder()
+                .name("Partition Seller")
+                .contactInfo("partition@example.com")
+                .build());
+
+        LocalDateTime thisMonth = LocalDateTime.now().withDayOfMonth(1).withHour(12);
+        jdbcTemplate.update("INSERT INTO transaction (seller_id, amount, payment_type, transaction_date) VALUES (?, 10, 'CARD', ?)",
+                seller.getId(), thisMonth);
+        jdbcTemplate.update("INSERT INTO transaction (seller_id, amount, payment_type, transaction_date) VALUES (?, 20, 'CASH', ?)",
+                seller.getId(), thisMonth.plusMonths(1));
+    }
+
+    @Test
+    void testRowsAreRoutedToMonthlyPartitions() {
+        Integer inCurrentMonth = jdbcTemplate.queryForObject("SELECT count(*) FROM " +
+                partitionOf(LocalDateTime.now()) + " WHERE seller_id = ?", Integer.class, seller.getId());
+        Integer inDefault = jdbcTemplate.queryForObject("SELECT count(*) FROM transaction_default WHERE seller_id = ?",
+                Integer.class, seller.getId());
+
+        assertThat(inCurrentMonth).isEqualTo(1);
+        assertThat(inDefault).isZero();
+    }
+
+    @Test
+    void testDateBoundedQueryIsPrunedToOnePartition() {
+        LocalDateTime startDate = LocalDateTime.now().withDayOfMonth(1).withHour(0);
+        LocalDateTime endDate = startDate.plusDays(10);
+
+        String plan = jdbcTemplate.queryForList("EXPLAIN SELECT t.seller_id, t.amount FROM transaction t " +
+                        "WHERE t.transaction_date >= ? AND t.transaction_date <= ?", String.class, startDate, endDate).stream()
+                .collect(Collectors.joining("\n"));
+
+        assertThat(plan).contains(partitionOf(startDate));
+        assertThat(plan).doesNotContain(partitionOf(startDate.plusMonths(1)));
+        assertThat(plan).doesNotContain("transaction_default");
+    }
+
+    @Test
+    void testDailyStatsTriggerSurvivesPartitioning() {
+        Long rolledUp = jdbcTemplate.queryForObject("SELECT sum(tx_count) FROM seller_daily_stats WHERE seller_id = ?",
+                Long.class, seller.getId());
+
+        assertThat(rolledUp).isEqualTo(2);
+    }
+
+    private String partitionOf(LocalDateTime date) {
+        return TransactionPartitionManager.partitionName(YearMonth.from(date));
+    }
+}
@@ -6,21 +6,37 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
 import ru.tveu.shiftcrm.core.entity.PaymentType;
 import ru.tveu.shiftcrm.core.entity.Seller;
 import ru.tveu.shiftcrm.core.entity.Transaction;
+import ru.tveu.shiftcrm.core.repository.projection.TimelineEntry;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionView;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionWatermark;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 @ActiveProfiles("test")
 @Transactional
+//в тестах схему создает hibernate, поэтому таблицу агрегатов и триггер накатываем сами (откатываются вместе с тестом)
+@Sql(scripts = "classpath:db.migration/V1.5__create_seller_daily_stats.sql",
+        config = @SqlConfig(separator = ScriptUtils.EOF_STATEMENT_SEPARATOR))
 class TransactionRepositoryTest {
 
     @Autowired
@@ -29,6 +45,9 @@ class TransactionRepositoryTest {
     @Autowired
     private SellerRepository sellerRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private Seller seller1;
     private Seller seller2;
 
@@ -76,11 +95,56 @@ class TransactionRepositoryTest {
         assertThat(result.get(0).getAmount()).isEqualTo(100.0);
     }
 
+    @Test
+    public void testStreamTimelineBySellerId() {
+        List<TimelineEntry> entries;
+        try (Stream<TimelineEntry> stream = transactionRepository.streamTimelineBySellerId(seller1.getId())) {
+            entries = stream.toList();
+        }
+
+        assertThat(entries).hasSize(2);
+        assertThat(entries).extracting(TimelineEntry::transactionDate).isSorted();
+        assertThat(entries).extracting(TimelineEntry::amount).containsExactlyInAnyOrder(100.0, 200.0);
+    }
+
+    @Test
+    public void testKeysetSlicesWalkAllTransactionsInOrder() {
+        LocalDateTime sameDate = LocalDateTime.of(2023, 5, 1, 12, 0);
+        for (int i = 0; i < 3; i++) {
+            createTransaction(seller1, 10.0 + i, PaymentType.CARD, sameDate);
+        }
+
+        List<Transaction> expected = transactionRepository.findAllBySellerOrderByTransactionDateAsc(seller1).stream()
+                .sorted(Comparator.comparing(Transaction::getTransactionDate).thenComparing(Transaction::getId))
+                .toList();
+
+        List<TransactionView> walked = new ArrayList<>();
+        Slice<TransactionView> slice = transactionRepository.findViewsBySellerIdFirst(seller1.getId(), PageRequest.ofSize(2));
+        walked.addAll(slice.getContent());
+        while (slice.hasNext()) {
+            TransactionView last = walked.get(walked.size() - 1);
+            slice = transactionRepository.findViewsBySellerIdAfter(seller1.getId(), last.transactionDate(), last.id(), PageRequest.ofSize(2));
+            walked.addAll(slice.getContent());
+        }
+
+        assertThat(walked).extracting(TransactionView::id).containsExactlyElementsOf(expected.stream().map(Transaction::getId).toList());
+        assertThat(walked).extracting(TransactionView::sellerId).containsOnly(seller1.getId());
+    }
+
+    @Test
+    public void testFindViewsBySellerId() {
+        Page<TransactionView> result = transactionRepository.findViewsBySellerId(seller1.getId(), Pageable.ofSize(1));
+
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).hasSize(1);
+        assertThat(transactionRepository.findViewById(result.getContent().get(0).id())).contains(result.getContent().get(0));
+    }
+
     @Test
     public void testFindMostProductiveSeller() {
         LocalDateTime startDate = LocalDateTime.now().minusDays(4);
         LocalDateTime endDate = LocalDateTime.now();
-        Optional<Seller> result = transactionRepository.findMostProductiveSeller(startDate, endDate);
+        Optional<Seller> result = sellerRepository.findMostProductiveSeller(startDate, endDate);
         assertThat(result).isPresent();
         assertThat(result.get()).isEqualTo(seller1);
     }
@@ -90,7 +154,7 @@ class TransactionRepositoryTest {
         LocalDateTime startDate = LocalDateTime.now().minusDays(4);
         LocalDateTime endDate = LocalDateTime.now();
         double threshold = 250.0;
-        Page<Seller> result = transactionRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, threshold, Pageable.ofSize(10));
+        Page<Seller> result = sellerRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, threshold, Pageable.ofSize(10));
         assertThat(result).isNotEmpty();
         assertThat(result.getContent()).contains(seller2);
     }
@@ -100,7 +164,7 @@ class TransactionRepositoryTest {
         LocalDateTime startDate = LocalDateTime.now().minusDays(4);
         LocalDateTime endDate = LocalDateTime.now();
         double threshold = 50.0;
-        Page<Seller> result = transactionRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, threshold, Pageable.ofSize(10));
+        Page<Seller> result = sellerRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, threshold, Pageable.ofSize(10));
         assertThat(result.getContent()).isEmpty();
     }
 
@@ -109,7 +173,7 @@ class TransactionRepositoryTest {
         LocalDateTime startDate = LocalDateTime.now().minusDays(4);
         LocalDateTime endDate = LocalDateTime.now();
         double threshold = 150.0;
-        Page<Seller> result = transactionRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, threshold, Pageable.ofSize(10));
+        Page<Seller> result = sellerRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, threshold, Pageable.ofSize(10));
         assertThat(result.getContent()).doesNotContain(seller2);
     }
 
@@ -122,12 +186,77 @@ class TransactionRepositoryTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    public void testWatermarkChangesWithSellerTransactions() {
+        TransactionWatermark before = transactionRepository.findWatermarkBySellerId(seller1.getId()).orElseThrow();
+        LocalDateTime oldest = LocalDateTime.of(2020, 1, 1, 9, 0);
+        createTransaction(seller1, 10.0, PaymentType.CASH, oldest);
+        transactionRepository.flush();
+        TransactionWatermark after = transactionRepository.findWatermarkBySellerId(seller1.getId()).orElseThrow();
+
+        assertThat(after.maxId()).isGreaterThan(before.maxId());
+        assertThat(after.oldestDate()).isEqualTo(oldest);
+
+        //так же из списка уходит старый месяц при отключении секции
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ? AND transaction_date = ?", seller1.getId(), oldest);
+        TransactionWatermark detached = transactionRepository.findWatermarkBySellerId(seller1.getId()).orElseThrow();
+
+        assertThat(detached.maxId()).isEqualTo(after.maxId());
+        assertThat(detached.oldestDate()).isNotEqualTo(after.oldestDate());
+    }
+
+    @Test
+    public void testWatermarkOfSellerWithoutTransactions() {
+        Seller newSeller = sellerRepository.save(Seller.builder().name("New Seller").contactInfo("new_seller@example.com").build());
+
+        assertThat(transactionRepository.findWatermarkBySellerId(newSeller.getId()))
+                .contains(new TransactionWatermark(null, null));
+        assertThat(transactionRepository.findWatermarkBySellerId(-1L)).isEmpty();
+    }
+
     @Test
     public void testNoSellersWithTransactions() {
         LocalDateTime startDate = LocalDateTime.now().minusYears(10);
         LocalDateTime endDate = LocalDateTime.now().minusYears(5);
-        Page<Seller> result = transactionRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, 100.0, Pageable.ofSize(10));
+        Page<Seller> result = sellerRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, 100.0, Pageable.ofSize(10));
         assertThat(result.getContent()).isEmpty();
     }
-}
 
+    @Test
+    public void testInsertsAreRolledUpPerSellerAndDay() {
+        insertTransaction(seller1, 100.0, PaymentType.CASH, LocalDateTime.of(2023, 3, 10, 9, 0));
+        insertTransaction(seller1, 50.0, PaymentType.CARD, LocalDateTime.of(2023, 3, 10, 18, 0));
+        insertTransaction(seller1, 25.0, PaymentType.CARD, LocalDateTime.of(2023, 3, 11, 1, 0));
+
+        Map<String, Object> stats = jdbcTemplate.queryForMap("SELECT tx_count, cash_amount, card_amount, transfer_amount " +
+                "FROM seller_daily_stats WHERE seller_id = ? AND day = DATE '2023-03-10'", seller1.getId());
+
+        assertThat(((Number) stats.get("tx_count")).longValue()).isEqualTo(2);
+        assertThat(((Number) stats.get("cash_amount")).doubleValue()).isEqualTo(100.0);
+        assertThat(((Number) stats.get("card_amount")).doubleValue()).isEqualTo(50.0);
+        assertThat(((Number) stats.get("transfer_amount")).doubleValue()).isZero();
+    }
+
+    @Test
+    public void testRollupDaysAreCombinedWithPartialEdgeDays() {
+        //целый день внутри периода: 300 у первого продавца
+        insertTransaction(seller1, 300.0, PaymentType.CARD, LocalDateTime.of(2023, 3, 10, 12, 0));
+        //неполные крайние дни: 250 + 100 у второго, плюс суммы за границами периода, которые не должны учитываться
+        insertTransaction(seller2, 1000.0, PaymentType.CASH, LocalDateTime.of(2023, 3, 9, 10, 0));
+        insertTransaction(seller2, 250.0, PaymentType.CASH, LocalDateTime.of(2023, 3, 9, 23, 0));
+        insertTransaction(seller2, 100.0, PaymentType.TRANSFER, LocalDateTime.of(2023, 3, 12, 1, 0));
+        insertTransaction(seller2, 1000.0, PaymentType.CASH, LocalDateTime.of(2023, 3, 12, 5, 0));
+
+        LocalDateTime startDate = LocalDateTime.of(2023, 3, 9, 20, 0);
+        LocalDateTime endDate = LocalDateTime.of(2023, 3, 12, 2, 0);
+
+        assertThat(sellerRepository.findMostProductiveSeller(startDate, endDate)).contains(seller2);
+        assertThat(sellerRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, 320.0, Pageable.ofSize(10)).getContent())
+                .containsExactly(seller1);
+    }
+
+    private void insertTransaction(Seller seller, double amount, PaymentType paymentType, LocalDateTime transactionDate) {
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                "VALUES (nextval('transaction_id_seq'), ?, ?, ?, ?)", seller.getId(), amount, paymentType.name(), transactionDate);
+    }
+}
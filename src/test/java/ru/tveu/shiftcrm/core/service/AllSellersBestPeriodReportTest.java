@@ -0,0 +1,67 @@
+package ru.tveu.shiftcrm.core.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AllSellersBestPeriodReportTest {
+
+    private static final String SELLER_NAME_PREFIX = "Report Seller ";
+    private static final int SELLERS = 200;
+    private static final int TRANSACTIONS_PER_SELLER = 200;
+
+    @Autowired
+    private AllSellersBestPeriodReport report;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private List<Long> sellerIds;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO seller (name, contact_info, registration_date) " +
+                "SELECT ? || g, 'report@example.com', now() FROM generate_series(1, ?) g", SELLER_NAME_PREFIX, SELLERS);
+        sellerIds = jdbcTemplate.queryForList("SELECT id FROM seller WHERE name LIKE ? || '%' ORDER BY id",
+                Long.class, SELLER_NAME_PREFIX);
+        //у каждого продавца свой шаг между транзакциями и случайный разброс, чтобы окна отличались
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                        "SELECT nextval('transaction_id_seq'), s.id, 10, 'CARD', " +
+                        "       TIMESTAMP '2023-01-01' + g * (s.id % 7 + 1) * INTERVAL '1 hour' + random() * INTERVAL '1 day' " +
+                        "FROM seller s CROSS JOIN generate_series(1, ?) g " +
+                        "WHERE s.name LIKE ? || '%'",
+                TRANSACTIONS_PER_SELLER, SELLER_NAME_PREFIX);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id IN (SELECT id FROM seller WHERE name LIKE ? || '%')", SELLER_NAME_PREFIX);
+        jdbcTemplate.update("DELETE FROM seller WHERE name LIKE ? || '%'", SELLER_NAME_PREFIX);
+    }
+
+    @Test
+    void reportMatchesPerSellerEngine() {
+        Map<Long, BestPeriod> periods = report.run(7);
+        SqlBestPeriodEngine engine = new SqlBestPeriodEngine(namedParameterJdbcTemplate);
+
+        assertThat(periods.keySet()).containsAll(sellerIds);
+        for (Long sellerId : sellerIds.subList(0, 20)) {
+            assertThat(periods.get(sellerId)).as("seller %d", sellerId).isEqualTo(engine.find(sellerId, 7));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.tveu.shiftcrm.core.service;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.tveu.shiftcrm.core.cache.SellerTimelineCache;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class BestPeriodEngineEquivalenceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final long[] DURATIONS = {0, 1, 3, 7, 30, 365};
+    private static final List<Long> DURATION_LIST = Arrays.stream(DURATIONS).boxed().toList();
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private SellerTimelineCache sellerTimelineCache;
+
+    @Test
+    void testSqlEngineMatchesTimelineEngineOnRandomData() {
+        TimelineBestPeriodEngine timelineEngine = new TimelineBestPeriodEngine(sellerTimelineCache);
+        SqlBestPeriodEngine sqlEngine = new SqlBestPeriodEngine(namedParameterJdbcTemplate);
+        Random random = new Random(42);
+
+        for (int sellerNumber = 0; sellerNumber < 20; sellerNumber++) {
+            Seller seller = sellerRepository.saveAndFlush(Seller.builder()
+                    .name("Equivalence Seller " + sellerNumber)
+                    .contactInfo("equivalence@example.com")
+                    .build());
+            insertTransactions(seller, random);
+
+            for (long duration : DURATIONS) {
+                assertThat(sqlEngine.find(seller.getId(), duration))
+                        .as("seller %d, duration %d", sellerNumber, duration)
+                        .isEqualTo(timelineEngine.find(seller.getId(), duration));
+            }
+            for (PeriodWeight weight : PeriodWeight.values()) {
+                assertThat(sqlEngine.find(seller.getId(), DURATION_LIST, weight))
+                        .as("seller %d, weight %s", sellerNumber, weight)
+                        .containsExactlyEntriesOf(timelineEngine.find(seller.getId(), DURATION_LIST, weight));
+            }
+        }
+    }
+
+    @Test
+    void testSellerWithoutTransactionsHasNoPeriodInBothEngines() {
+        Seller seller = sellerRepository.saveAndFlush(Seller.builder()
+                .name("Empty Seller")
+                .contactInfo("empty@example.com")
+                .build());
+
+        assertThat(new SqlBestPeriodEngine(namedParameterJdbcTemplate).find(seller.getId(), 7)).isNull();
+        assertThat(new TimelineBestPeriodEngine(sellerTimelineCache).find(seller.getId(), 7)).isNull();
+        assertThat(new SqlBestPeriodEngine(namedParameterJdbcTemplate).find(seller.getId(), DURATION_LIST, PeriodWeight.AMOUNT)).isEmpty();
+        assertThat(new TimelineBestPeriodEngine(sellerTimelineCache).find(seller.getId(), DURATION_LIST, PeriodWeight.AMOUNT)).isEmpty();
+    }
+
+    //всплески и дубликаты времени, чтобы проверить выбор при равном числе транзакций;
+    //целые положительные суммы складываются точно и в double, и в центах ленты
+    private void insertTransactions(Seller seller, Random random) {
+        int count = 1 + random.nextInt(400);
+        List<Object[]> rows = new ArrayList<>(count);
+        LocalDateTime burst = START.plusDays(random.nextInt(300));
+
+        for (int i = 0; i < count; i++) {
+            LocalDateTime date = random.nextInt(4) == 0
+                    ? burst.plusMinutes(random.nextInt(60 * 24 * 3))
+                    : START.plusSeconds(random.nextLong(365L * 24 * 3600)).plusNanos(random.nextInt(1_000_000) * 1_000L);
+            rows.add(new Object[]{seller.getId(), 1 + random.nextInt(1000), date});
+            if (random.nextInt(10) == 0) {
+                rows.add(new Object[]{seller.getId(), 1 + random.nextInt(1000), date});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                "VALUES (nextval('transaction_id_seq'), ?, ?, 'CARD', ?)", rows);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.tveu.shiftcrm.core.service;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.jfr.TransactionCreateEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Буферизованное создание пишет то же событие JFR, что и прямое: время ожидания group commit видно в записи.
+ */
+@ExtendWith(MockitoExtension.class)
+class BufferedTransactionServiceTest {
+
+    @Mock
+    private TransactionServiceImpl transactionService;
+
+    @Mock
+    private TransactionWriteBuffer writeBuffer;
+
+    @InjectMocks
+    private BufferedTransactionService bufferedTransactionService;
+
+    @Test
+    void testBufferedCreateIsRecorded() throws IOException {
+        TransactionCreateRequest created = new TransactionCreateRequest(1L, 100.0, PaymentType.CARD.name());
+        TransactionCreateRequest rejected = new TransactionCreateRequest(2L, 50.0, PaymentType.CASH.name());
+        when(writeBuffer.write(created)).thenReturn(TransactionDTO.builder().id(42L).sellerId(1L).build());
+        when(writeBuffer.write(rejected)).thenThrow(new ServiceException(ErrorCode.TOO_MANY_REQUESTS, "queue is full"));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(TransactionCreateEvent.class);
+            recording.start();
+            bufferedTransactionService.create(created);
+            assertThrows(ServiceException.class, () -> bufferedTransactionService.create(rejected));
+            recording.stop();
+            events = read(recording);
+        }
+
+        List<RecordedEvent> creates = events.stream()
+                .filter(event -> event.getEventType().getName().equals(TransactionCreateEvent.NAME))
+                .toList();
+        assertTrue(creates.stream().anyMatch(event -> event.getLong("transactionId") == 42L
+                && TransactionCreateEvent.CREATED.equals(event.getString("outcome"))));
+        assertTrue(creates.stream().anyMatch(event -> event.getLong("sellerId") == 2L
+                && ErrorCode.TOO_MANY_REQUESTS.name().equals(event.getString("outcome"))));
+    }
+
+    private static List<RecordedEvent> read(Recording recording) throws IOException {
+        Path file = Files.createTempFile("buffered-create-", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package ru.tveu.shiftcrm.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.event.RemoteCacheResetEvent;
+import ru.tveu.shiftcrm.core.event.RemoteSellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.RemoteTransactionsCreatedEvent;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CachingAnalysisServiceTest {
+
+    private static final String START = "2024-01-01T00:00:00";
+    private static final String END = "2024-01-31T23:59:59";
+    private static final int CALLERS = 32;
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Mock
+    private SlidingWindowAnalysisService delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CoalescingAnalysisService coalescing;
+    private CachingAnalysisService analysisService;
+    private SellerDTO sellerDTO;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        coalescing = new CoalescingAnalysisService(delegate, meterRegistry);
+        analysisService = new CachingAnalysisService(coalescing, meterRegistry, 1024 * 1024, MAX_AGE_MILLIS);
+        sellerDTO = new SellerDTO(1L, "Test Seller", "test@example.com", "2023-12-01T10:00", 0L);
+        when(delegate.getMostProductiveSeller(anyString(), anyString())).thenReturn(sellerDTO);
+    }
+
+    @Test
+    void testRepeatedRangeIsServedFromCache() {
+        analysisService.getMostProductiveSeller(START, END);
+        SellerDTO result = analysisService.getMostProductiveSeller(START, END);
+
+        assertEquals(sellerDTO, result);
+        verify(delegate, times(1)).getMostProductiveSeller(START, END);
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testTransactionOutsideRangeKeepsEntry() {
+        analysisService.getMostProductiveSeller(START, END);
+
+        analysisService.onTransactionCreated(event(LocalDateTime.of(2024, 2, 1, 0, 0)));
+        analysisService.onTransactionCreated(event(LocalDateTime.of(2023, 12, 31, 23, 59)));
+        analysisService.getMostProductiveSeller(START, END);
+
+        verify(delegate, times(1)).getMostProductiveSeller(START, END);
+    }
+
+    @Test
+    void testTransactionInsideRangeEvictsOnlyCoveringEntries() {
+        String february = "2024-02-01T00:00:00";
+        String februaryEnd = "2024-02-29T23:59:59";
+        analysisService.getMostProductiveSeller(START, END);
+        analysisService.getMostProductiveSeller(february, februaryEnd);
+
+        //граница периода включительная
+        analysisService.onTransactionCreated(event(LocalDateTime.parse(END)));
+        analysisService.getMostProductiveSeller(START, END);
+        analysisService.getMostProductiveSeller(february, februaryEnd);
+
+        verify(delegate, times(2)).getMostProductiveSeller(START, END);
+        verify(delegate, times(1)).getMostProductiveSeller(february, februaryEnd);
+        assertEquals(1, meterRegistry.get("cache.invalidations").counter().count());
+    }
+
+    @Test
+    void testTransactionDuringLoadIsNotCachedAsStale() {
+        when(delegate.getMostProductiveSeller(START, END)).thenAnswer(invocation -> {
+            analysisService.onTransactionCreated(event(LocalDateTime.of(2024, 1, 15, 12, 0)));
+            return sellerDTO;
+        });
+
+        analysisService.getMostProductiveSeller(START, END);
+        analysisService.getMostProductiveSeller(START, END);
+
+        verify(delegate, times(2)).getMostProductiveSeller(START, END);
+    }
+
+    @Test
+    void testFailuresAreNotCached() {
+        when(delegate.getMostProductiveSeller(START, END))
+                .thenThrow(new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "there is no sellers in this period"))
+                .thenReturn(sellerDTO);
+
+        assertThrows(ServiceException.class, () -> analysisService.getMostProductiveSeller(START, END));
+
+        assertEquals(sellerDTO, analysisService.getMostProductiveSeller(START, END));
+    }
+
+    @Test
+    void testMemoryCapEvictsLeastRecentlyUsed() {
+        long entryBytes = CachingAnalysisService.sizeOf(sellerDTO);
+        analysisService = new CachingAnalysisService(coalescing, new SimpleMeterRegistry(), entryBytes * 2, MAX_AGE_MILLIS);
+
+        analysisService.getMostProductiveSeller("2024-01-01T00:00:00", "2024-01-02T00:00:00");
+        analysisService.getMostProductiveSeller("2024-01-02T00:00:00", "2024-01-03T00:00:00");
+        analysisService.getMostProductiveSeller("2024-01-01T00:00:00", "2024-01-02T00:00:00");
+        analysisService.getMostProductiveSeller("2024-01-03T00:00:00", "2024-01-04T00:00:00");
+        analysisService.getMostProductiveSeller("2024-01-01T00:00:00", "2024-01-02T00:00:00");
+        analysisService.getMostProductiveSeller("2024-01-02T00:00:00", "2024-01-03T00:00:00");
+
+        verify(delegate, times(1)).getMostProductiveSeller("2024-01-01T00:00:00", "2024-01-02T00:00:00");
+        verify(delegate, times(2)).getMostProductiveSeller("2024-01-02T00:00:00", "2024-01-03T00:00:00");
+    }
+
+    @Test
+    void testEstimatedCountIsNotCached() {
+        Pageable pageable = PageRequest.of(0, 10);
+
+        analysisService.getSellersWithTransactionsBelowThreshold(START, END, 100.0, pageable, CountMode.ESTIMATE);
+        analysisService.getSellersWithTransactionsBelowThreshold(START, END, 100.0, pageable, CountMode.ESTIMATE);
+
+        verify(delegate, times(2)).getSellersWithTransactionsBelowThreshold(START, END, 100.0, pageable, CountMode.ESTIMATE);
+    }
+
+    @Test
+    void testSellerChangeClearsCache() {
+        analysisService.getMostProductiveSeller(START, END);
+
+        analysisService.onSellerChanged(SellerChangedEvent.updated(1L));
+        analysisService.getMostProductiveSeller(START, END);
+
+        verify(delegate, times(2)).getMostProductiveSeller(START, END);
+    }
+
+    @Test
+    void testRemoteTransactionsEvictOnlyCoveringEntries() {
+        String february = "2024-02-01T00:00:00";
+        String februaryEnd = "2024-02-29T23:59:59";
+        analysisService.getMostProductiveSeller(START, END);
+        analysisService.getMostProductiveSeller(february, februaryEnd);
+
+        analysisService.onRemoteTransactionsCreated(new RemoteTransactionsCreatedEvent(List.of(
+                event(LocalDateTime.of(2024, 1, 10, 9, 0)),
+                event(LocalDateTime.of(2024, 3, 1, 9, 0)))));
+        analysisService.getMostProductiveSeller(START, END);
+        analysisService.getMostProductiveSeller(february, februaryEnd);
+
+        verify(delegate, times(2)).getMostProductiveSeller(START, END);
+        verify(delegate, times(1)).getMostProductiveSeller(february, februaryEnd);
+    }
+
+    @Test
+    void testRemoteResetClearsCache() {
+        analysisService.getMostProductiveSeller(START, END);
+
+        analysisService.onRemoteCacheReset(new RemoteCacheResetEvent());
+        analysisService.getMostProductiveSeller(START, END);
+
+        verify(delegate, times(2)).getMostProductiveSeller(START, END);
+    }
+
+    @Test
+    void testSellerChangedOnAnotherNodeClearsCache() {
+        analysisService.getMostProductiveSeller(START, END);
+
+        analysisService.onRemoteSellerChanged(new RemoteSellerChangedEvent(1L, true));
+        analysisService.getMostProductiveSeller(START, END);
+
+        verify(delegate, times(2)).getMostProductiveSeller(START, END);
+    }
+
+    @Test
+    void testEntryOlderThanMaxAgeIsReloaded() throws InterruptedException {
+        analysisService = new CachingAnalysisService(coalescing, new SimpleMeterRegistry(), 1024 * 1024, 20);
+
+        analysisService.getMostProductiveSeller(START, END);
+        Thread.sleep(50);
+        analysisService.getMostProductiveSeller(START, END);
+
+        verify(delegate, times(2)).getMostProductiveSeller(START, END);
+    }
+
+    @Test
+    void testConcurrentIdenticalRequestsShareOneQuery() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        when(delegate.getMostProductiveSeller(START, END)).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            //держим запрос, пока все остальные вызовы не присоединятся к нему
+            awaitCoalesced(CALLERS - 1);
+            return sellerDTO;
+        });
+
+        List<SellerDTO> results = runConcurrently(() -> analysisService.getMostProductiveSeller(START, END));
+
+        assertEquals(1, queries.get());
+        assertEquals(CALLERS, results.size());
+        results.forEach(result -> assertSame(sellerDTO, result));
+    }
+
+    @Test
+    void testConcurrentEstimatedRequestsAreCoalescedWithoutCaching() throws Exception {
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<SellerDTO> sellers = new SliceImpl<>(List.of(sellerDTO), pageable, false);
+        AtomicInteger queries = new AtomicInteger();
+        when(delegate.getSellersWithTransactionsBelowThreshold(START, END, 100.0, pageable, CountMode.ESTIMATE)).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            awaitCoalesced(CALLERS - 1);
+            return sellers;
+        });
+
+        List<Slice<SellerDTO>> results = runConcurrently(
+                () -> analysisService.getSellersWithTransactionsBelowThreshold(START, END, 100.0, pageable, CountMode.ESTIMATE));
+
+        assertEquals(1, queries.get());
+        results.forEach(result -> assertSame(sellers, result));
+    }
+
+    @Test
+    void testConcurrentCallersShareFailure() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        when(delegate.getMostProductiveSeller(START, END)).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            awaitCoalesced(CALLERS - 1);
+            throw new ServiceException(ErrorCode.OBJECT_NOT_FOUND, "there is no sellers in this period");
+        });
+
+        List<String> outcomes = runConcurrently(() -> {
+            try {
+                analysisService.getMostProductiveSeller(START, END);
+                return "found";
+            } catch (ServiceException e) {
+                return e.getErrorCode().name();
+            }
+        });
+
+        assertEquals(1, queries.get());
+        outcomes.forEach(outcome -> assertEquals(ErrorCode.OBJECT_NOT_FOUND.name(), outcome));
+    }
+
+    private <T> List<T> runConcurrently(Callable<T> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitCoalesced(int callers) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("analysis.requests.coalesced").counter().count() < callers) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Only " + meterRegistry.get("analysis.requests.coalesced").counter().count() + " callers were coalesced");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private TransactionCreatedEvent event(LocalDateTime transactionDate) {
+        return new TransactionCreatedEvent(1L, 1L, 10.0, PaymentType.CARD, transactionDate);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.tveu.shiftcrm.core.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Без кэша результатов одинаковые одновременные запросы все равно склеиваются: основной AnalysisService -
+ * {@link CoalescingAnalysisService}.
+ */
+@SpringBootTest(properties = "shiftcrm.analysis.cache.enabled=false")
+@ActiveProfiles("test")
+class CoalescingAnalysisServiceTest {
+
+    private static final String START = "2024-01-01T00:00:00";
+    private static final String END = "2024-01-31T23:59:59";
+    private static final int CALLERS = 16;
+
+    @Autowired
+    private AnalysisService analysisService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private SlidingWindowAnalysisService delegate;
+
+    @Test
+    void testConcurrentIdenticalRequestsShareOneQueryWithoutCache() throws Exception {
+        assertInstanceOf(CoalescingAnalysisService.class, analysisService);
+        SellerDTO sellerDTO = new SellerDTO(1L, "Test Seller", "test@example.com", "2023-12-01T10:00", 0L);
+        double coalescedBefore = coalesced();
+        AtomicInteger queries = new AtomicInteger();
+        when(delegate.getMostProductiveSeller(START, END)).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            //держим запрос, пока все остальные вызовы не присоединятся к нему
+            long deadline = System.currentTimeMillis() + 5000;
+            while (coalesced() - coalescedBefore < CALLERS - 1) {
+                if (System.currentTimeMillis() > deadline) {
+                    fail("Only " + (coalesced() - coalescedBefore) + " callers were coalesced");
+                }
+                Thread.sleep(5);
+            }
+            return sellerDTO;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<SellerDTO>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return analysisService.getMostProductiveSeller(START, END);
+                }));
+            }
+            start.countDown();
+
+            for (Future<SellerDTO> future : futures) {
+                assertSame(sellerDTO, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, queries.get());
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("analysis.requests.coalesced").counter().count();
+    }
+}
@@ -0,0 +1,125 @@
+package ru.tveu.shiftcrm.core.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionSliceDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+import ru.tveu.shiftcrm.core.repository.TransactionRepository;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class ReadPathStatementCountTest {
+
+    private static final int TRANSACTIONS = 50;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private SellerService sellerService;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Seller seller;
+    private Long transactionId;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        seller = sellerRepository.save(Seller.builder()
+                .name("Read Path Seller")
+                .contactInfo("read-path@example.com")
+                .build());
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                            "VALUES (nextval('transaction_id_seq'), ?, ?, ?, ?)",
+                    seller.getId(), 10.0 + i, PaymentType.CARD.name(), start.plusHours(i));
+        }
+        transactionId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM transaction WHERE seller_id = ?",
+                Long.class, seller.getId());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ?", seller.getId());
+        sellerRepository.deleteById(seller.getId());
+    }
+
+    @Test
+    void transactionReadsDoNotHydrateEntities() {
+        //прежний путь: сущности транзакций в persistence context
+        statistics.clear();
+        transactionRepository.findAllBySeller(seller, PageRequest.of(0, PAGE_SIZE));
+        long entitiesBefore = statistics.getEntityLoadCount();
+
+        statistics.clear();
+        transactionService.get(transactionId);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        statistics.clear();
+        Page<TransactionDTO> page = transactionService.getAllBySellerId(seller.getId(), PageRequest.of(0, PAGE_SIZE));
+        assertThat(page.getTotalElements()).isEqualTo(TRANSACTIONS);
+        //страница и COUNT(*), без отдельного запроса продавца
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        statistics.clear();
+        TransactionSliceDTO first = transactionService.getAllBySellerIdAfter(seller.getId(), null, PAGE_SIZE);
+        transactionService.getAllBySellerIdAfter(seller.getId(), first.nextCursor(), PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        log.info("Entities loaded per page of {} transactions: before {}, after 0", PAGE_SIZE, entitiesBefore);
+        assertThat(entitiesBefore).isGreaterThanOrEqualTo(PAGE_SIZE);
+    }
+
+    @Test
+    void sellerReadsDoNotHydrateEntities() {
+        statistics.clear();
+        sellerService.get(seller.getId());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        sellerService.getAll(PageRequest.of(0, 1));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        sellerService.getAll(PageRequest.of(0, 1), CountMode.NONE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
@@ -0,0 +1,97 @@
+package ru.tveu.shiftcrm.core.service;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import ru.tveu.shiftcrm.api.dto.SellerDTO;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Форма страницы в каждом режиме подсчета: EXACT - Page с точным COUNT(*), NONE - Slice без подсчета,
+ * ESTIMATE - Page с оценкой планировщика. Время режимов сравнивает SellerCountModeBenchmarkTest в loadTest.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@Sql(scripts = "classpath:db.migration/V1.5__create_seller_daily_stats.sql",
+        config = @SqlConfig(separator = ScriptUtils.EOF_STATEMENT_SEPARATOR))
+class SellerCountModeTest {
+
+    private static final int SELLERS = 100;
+    private static final int TRANSACTIONS = 1_000;
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 6, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2023, 3, 1, 18, 0);
+
+    @Autowired
+    private SellerService sellerService;
+
+    @Autowired
+    private SlidingWindowAnalysisService analysisService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO seller (name, contact_info, registration_date) " +
+                "SELECT 'Count Seller ' || g, 'count@example.com', now() FROM generate_series(1, ?) g", SELLERS);
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                        "SELECT nextval('transaction_id_seq'), " +
+                        "       (ARRAY(SELECT id FROM seller WHERE name LIKE 'Count Seller %' ORDER BY id))[1 + g % ?], " +
+                        "       round(CAST(random() * 100 AS numeric), 2), 'CARD', " +
+                        "       TIMESTAMP '2023-01-01' + g * INTERVAL '30 seconds' " +
+                        "FROM generate_series(1, ?) g",
+                SELLERS, TRANSACTIONS);
+        jdbcTemplate.execute("ANALYZE seller");
+        jdbcTemplate.execute("ANALYZE transaction");
+        jdbcTemplate.execute("ANALYZE seller_daily_stats");
+    }
+
+    @Test
+    void sellerListingCountModes() {
+        Pageable pageable = PageRequest.of(2, 20);
+        long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM seller", Long.class);
+
+        Page<SellerDTO> exact = (Page<SellerDTO>) sellerService.getAll(pageable, CountMode.EXACT);
+        Slice<SellerDTO> none = sellerService.getAll(pageable, CountMode.NONE);
+        Page<SellerDTO> estimated = (Page<SellerDTO>) sellerService.getAll(pageable, CountMode.ESTIMATE);
+
+        assertThat(exact.getTotalElements()).isEqualTo(total);
+        assertThat(none).isNotInstanceOf(Page.class);
+        assertThat(none.hasNext()).isTrue();
+        assertThat(estimated.getTotalElements()).isBetween(total / 2, total * 2);
+    }
+
+    @Test
+    void belowThresholdCountModes() {
+        Pageable pageable = PageRequest.of(0, 20);
+        String startDate = START.toString();
+        String endDate = END.toString();
+
+        Page<SellerDTO> exact = (Page<SellerDTO>) analysisService.getSellersWithTransactionsBelowThreshold(
+                startDate, endDate, 500.0, pageable, CountMode.EXACT);
+        Slice<SellerDTO> none = analysisService.getSellersWithTransactionsBelowThreshold(
+                startDate, endDate, 500.0, pageable, CountMode.NONE);
+        Page<SellerDTO> estimated = (Page<SellerDTO>) analysisService.getSellersWithTransactionsBelowThreshold(
+                startDate, endDate, 500.0, pageable, CountMode.ESTIMATE);
+
+        assertThat(none.getContent()).hasSameSizeAs(exact.getContent());
+        assertThat(none.hasNext()).isEqualTo(exact.hasNext());
+        assertThat(estimated.getTotalElements()).isPositive();
+    }
+}
@@ -5,18 +5,26 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import ru.tveu.shiftcrm.api.dto.EstimatedPage;
 import ru.tveu.shiftcrm.api.dto.SellerCreateRequest;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
 import ru.tveu.shiftcrm.api.dto.SellerUpdateRequest;
 import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.event.SellerChangedEvent;
 import ru.tveu.shiftcrm.core.exception.ErrorCode;
 import ru.tveu.shiftcrm.core.exception.ErrorMessage;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
 import ru.tveu.shiftcrm.core.mapper.SellerMapper;
+import ru.tveu.shiftcrm.core.repository.RowCountEstimator;
 import ru.tveu.shiftcrm.core.repository.SellerRepository;
+import ru.tveu.shiftcrm.core.repository.projection.SellerView;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -33,10 +41,20 @@ class SellerServiceImplTest {
     @Mock
     private SellerMapper sellerMapper;
 
+    @Mock
+    private RowCountEstimator rowCountEstimator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ServiceMetrics serviceMetrics;
+
     @InjectMocks
     private SellerServiceImpl sellerService;
 
     private Seller seller;
+    private SellerView sellerView;
     private SellerCreateRequest createRequest;
     private SellerUpdateRequest updateRequest;
     private SellerDTO sellerDTO;
@@ -52,11 +70,13 @@ class SellerServiceImplTest {
                 .registrationDate(LocalDateTime.now())
                 .build();
 
+        sellerView = new SellerView(seller.getId(), seller.getName(), seller.getContactInfo(), seller.getRegistrationDate(), 0L);
+
         createRequest = new SellerCreateRequest("Test Seller", "test@example.com");
 
         updateRequest = new SellerUpdateRequest(1L, "Updated Seller", "updated@example.com");
 
-        sellerDTO = new SellerDTO(1L, "Test Seller", "test@example.com", seller.getRegistrationDate().toString());
+        sellerDTO = new SellerDTO(1L, "Test Seller", "test@example.com", seller.getRegistrationDate().toString(), 0L);
     }
 
     @Test
@@ -69,35 +89,49 @@ class SellerServiceImplTest {
 
         assertEquals(sellerDTO, result);
         verify(sellerRepository, times(1)).save(seller);
+        verify(serviceMetrics).sellerCreated();
     }
 
     @Test
     void testUpdateSeller_Success() {
         when(sellerRepository.findById(updateRequest.id())).thenReturn(Optional.of(seller));
-        when(sellerRepository.save(any(Seller.class))).thenReturn(seller);
+        when(sellerRepository.saveAndFlush(any(Seller.class))).thenReturn(seller);
         when(sellerMapper.map(any(Seller.class))).thenReturn(sellerDTO);
 
         SellerDTO result = sellerService.update(updateRequest);
 
         assertEquals(sellerDTO, result);
-        verify(sellerRepository, times(1)).save(seller);
+        verify(sellerRepository, times(1)).saveAndFlush(seller);
+        verify(eventPublisher).publishEvent(SellerChangedEvent.updated(1L));
     }
 
     @Test
-    void testGetSeller_Success() {
+    void testUpdateSeller_WithoutChangesKeepsCache() {
         when(sellerRepository.findById(1L)).thenReturn(Optional.of(seller));
         when(sellerMapper.map(seller)).thenReturn(sellerDTO);
 
+        sellerService.update(new SellerUpdateRequest(1L, " ", null));
+
+        verify(sellerRepository, never()).saveAndFlush(any(Seller.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testGetSeller_Success() {
+        when(sellerRepository.findViewById(1L)).thenReturn(Optional.of(sellerView));
+        when(sellerMapper.map(sellerView)).thenReturn(sellerDTO);
+
         SellerDTO result = sellerService.get(1L);
 
         assertEquals(sellerDTO, result);
         assertEquals(seller.getRegistrationDate().toString(), result.registrationDate());
-        verify(sellerRepository, times(1)).findById(1L);
+        verify(sellerRepository, times(1)).findViewById(1L);
+        verify(sellerRepository, never()).findById(any());
     }
 
     @Test
     void testGetSeller_NotFound() {
-        when(sellerRepository.findById(1L)).thenReturn(Optional.empty());
+        when(sellerRepository.findViewById(1L)).thenReturn(Optional.empty());
 
         ServiceException exception = assertThrows(ServiceException.class, () -> {
             sellerService.get(1L);
@@ -109,15 +143,16 @@ class SellerServiceImplTest {
 
     @Test
     void testGetAllSellers() {
-        Page<Seller> sellerPage = new PageImpl<>(List.of(seller));
-        when(sellerRepository.findAll(any(Pageable.class))).thenReturn(sellerPage);
-        when(sellerMapper.map(sellerPage)).thenReturn(new PageImpl<>(List.of(sellerDTO)));
+        Page<SellerView> sellerPage = new PageImpl<>(List.of(sellerView));
+        when(sellerRepository.findAllViews(any(Pageable.class))).thenReturn(sellerPage);
+        when(sellerMapper.map(sellerView)).thenReturn(sellerDTO);
 
         Page<SellerDTO> result = sellerService.getAll(Pageable.ofSize(10));
 
         assertEquals(1, result.getTotalElements());
         assertEquals(sellerDTO, result.getContent().get(0));
-        verify(sellerRepository, times(1)).findAll(any(Pageable.class));
+        verify(sellerRepository, times(1)).findAllViews(any(Pageable.class));
+        verify(sellerRepository, never()).findAll(any(Pageable.class));
     }
 
     @Test
@@ -127,6 +162,7 @@ class SellerServiceImplTest {
         sellerService.delete(1L);
 
         verify(sellerRepository, times(1)).deleteById(1L);
+        verify(eventPublisher).publishEvent(SellerChangedEvent.deleted(1L));
     }
 
     @Test
@@ -141,4 +177,33 @@ class SellerServiceImplTest {
         assertTrue(exception.getMessage().contains(ErrorMessage.SELLER_NOT_FOUND));
     }
 
+
+    @Test
+    void testGetAllSellers_WithoutCountUsesSlice() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(sellerRepository.findViewSlice(pageable)).thenReturn(new SliceImpl<>(List.of(sellerView), pageable, true));
+        when(sellerMapper.map(sellerView)).thenReturn(sellerDTO);
+
+        Slice<SellerDTO> result = sellerService.getAll(pageable, CountMode.NONE);
+
+        assertTrue(result.hasNext());
+        assertFalse(result instanceof Page);
+        verify(sellerRepository, never()).findAll(any(Pageable.class));
+        verifyNoInteractions(rowCountEstimator);
+    }
+
+    @Test
+    void testGetAllSellers_EstimatedCountComesFromStatistics() {
+        Pageable pageable = PageRequest.of(2, 10);
+        when(sellerRepository.findViewSlice(pageable)).thenReturn(new SliceImpl<>(List.of(sellerView), pageable, false));
+        when(sellerMapper.map(sellerView)).thenReturn(sellerDTO);
+        when(rowCountEstimator.estimateTable("seller")).thenReturn(7L);
+
+        Page<SellerDTO> result = (Page<SellerDTO>) sellerService.getAll(pageable, CountMode.ESTIMATE);
+
+        //оценка меньше уже увиденных строк поднимается до них
+        assertEquals(21, result.getTotalElements());
+        assertTrue(((EstimatedPage<SellerDTO>) result).isTotalEstimated());
+        verify(sellerRepository, never()).findAll(any(Pageable.class));
+    }
 }
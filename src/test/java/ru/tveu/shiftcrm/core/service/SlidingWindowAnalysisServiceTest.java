@@ -6,22 +6,30 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 import ru.tveu.shiftcrm.api.dto.PeriodDTO;
 import ru.tveu.shiftcrm.api.dto.SellerDTO;
+import ru.tveu.shiftcrm.api.dto.SellerPeriodDTO;
+import ru.tveu.shiftcrm.api.dto.SellerRankDTO;
+import ru.tveu.shiftcrm.core.cache.SellerLeaderboard;
 import ru.tveu.shiftcrm.core.entity.Seller;
-import ru.tveu.shiftcrm.core.entity.Transaction;
 import ru.tveu.shiftcrm.core.exception.ErrorCode;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.jfr.BestPeriodAnalysisEvent;
 import ru.tveu.shiftcrm.core.mapper.SellerMapper;
+import ru.tveu.shiftcrm.core.repository.RowCountEstimator;
 import ru.tveu.shiftcrm.core.repository.SellerRepository;
-import ru.tveu.shiftcrm.core.repository.TransactionRepository;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,11 +37,20 @@ import static org.mockito.Mockito.*;
 class SlidingWindowAnalysisServiceTest {
 
     @Mock
-    private TransactionRepository transactionRepository;
+    private BestPeriodEngine bestPeriodEngine;
+
+    @Mock
+    private AllSellersBestPeriodReport allSellersBestPeriodReport;
+
+    @Mock
+    private SellerLeaderboard sellerLeaderboard;
 
     @Mock
     private SellerMapper sellerMapper;
 
+    @Mock
+    private RowCountEstimator rowCountEstimator;
+
     @Mock
     private SellerRepository sellerRepository;
 
@@ -60,9 +77,9 @@ class SlidingWindowAnalysisServiceTest {
         seller.setContactInfo("john.doe@example.com");
         seller.setRegistrationDate(LocalDateTime.now());
 
-        SellerDTO mockSellerDTO = new SellerDTO(seller.getId(), seller.getName(), seller.getContactInfo(), seller.getRegistrationDate().toString());
+        SellerDTO mockSellerDTO = new SellerDTO(seller.getId(), seller.getName(), seller.getContactInfo(), seller.getRegistrationDate().toString(), 0L);
 
-        when(transactionRepository.findMostProductiveSeller(startDate, endDate)).thenReturn(Optional.of(seller));
+        when(sellerRepository.findMostProductiveSeller(startDate, endDate)).thenReturn(Optional.of(seller));
         when(sellerMapper.map(seller)).thenReturn(mockSellerDTO);
 
 
@@ -71,7 +88,7 @@ class SlidingWindowAnalysisServiceTest {
         assertNotNull(result);
         assertEquals(mockSellerDTO.id(), result.id());
         assertEquals(mockSellerDTO.name(), result.name());
-        verify(transactionRepository).findMostProductiveSeller(startDate, endDate);
+        verify(sellerRepository).findMostProductiveSeller(startDate, endDate);
         verify(sellerMapper).map(seller);
     }
 
@@ -82,7 +99,7 @@ class SlidingWindowAnalysisServiceTest {
         String startDateString = startDate.toString();
         String endDateString = endDate.toString();
 
-        when(transactionRepository.findMostProductiveSeller(startDate, endDate)).thenReturn(Optional.empty());
+        when(sellerRepository.findMostProductiveSeller(startDate, endDate)).thenReturn(Optional.empty());
 
 
         ServiceException exception = assertThrows(ServiceException.class, () -> {
@@ -104,7 +121,7 @@ class SlidingWindowAnalysisServiceTest {
         Pageable pageable = Pageable.ofSize(10);
         Page<Seller> sellerPage = mock(Page.class);
 
-        when(transactionRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable))
+        when(sellerRepository.findSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable))
                 .thenReturn(sellerPage);
         when(sellerMapper.map(sellerPage)).thenReturn(mock(Page.class));
 
@@ -112,30 +129,63 @@ class SlidingWindowAnalysisServiceTest {
         Page<SellerDTO> result = slidingWindowAnalysisService.getSellersWithTransactionsBelowThreshold(startDateString, endDateString, txSum, pageable);
 
         assertNotNull(result);
-        verify(transactionRepository).findSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable);
+        verify(sellerRepository).findSellersWithTransactionsBelowThreshold(startDate, endDate, txSum, pageable);
         verify(sellerMapper).map(sellerPage);
     }
 
+    @Test
+    void testGetSellersWithTransactionsBelowThresholdWithoutCount() {
+        LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, 1, 31, 23, 59);
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<Seller> sellerSlice = new SliceImpl<>(List.of(seller), pageable, false);
+
+        when(sellerRepository.findSliceOfSellersWithTransactionsBelowThreshold(startDate, endDate, 100.0, pageable)).thenReturn(sellerSlice);
+        when(sellerMapper.map(sellerSlice)).thenReturn(new SliceImpl<>(List.of(), pageable, false));
+
+        Slice<SellerDTO> result = slidingWindowAnalysisService.getSellersWithTransactionsBelowThreshold(
+                startDate.toString(), endDate.toString(), 100.0, pageable, CountMode.NONE);
+
+        assertFalse(result.hasNext());
+        verify(sellerRepository, never()).findSellersWithTransactionsBelowThreshold(any(), any(), anyDouble(), any());
+        verifyNoInteractions(rowCountEstimator);
+    }
+
+    @Test
+    void testGetSellersWithTransactionsBelowThresholdWithEstimatedCount() {
+        LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, 1, 31, 23, 59);
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<Seller> sellerSlice = new SliceImpl<>(List.of(seller), pageable, true);
+
+        when(sellerRepository.findSliceOfSellersWithTransactionsBelowThreshold(startDate, endDate, 100.0, pageable)).thenReturn(sellerSlice);
+        when(sellerMapper.map(sellerSlice)).thenReturn(new SliceImpl<>(List.of(new SellerDTO(1L, "John Doe", "john.doe@example.com", "2024-01-01T00:00", 0L)), pageable, true));
+        when(rowCountEstimator.estimateRows(eq(SellerRepository.SELLERS_BELOW_THRESHOLD), anyMap())).thenReturn(340L);
+
+        Slice<SellerDTO> result = slidingWindowAnalysisService.getSellersWithTransactionsBelowThreshold(
+                startDate.toString(), endDate.toString(), 100.0, pageable, CountMode.ESTIMATE);
+
+        assertEquals(340, ((Page<SellerDTO>) result).getTotalElements());
+        verify(rowCountEstimator).estimateRows(eq(SellerRepository.SELLERS_BELOW_THRESHOLD),
+                argThat(parameters -> parameters.get("threshold").equals(100.0) && parameters.containsKey("fullDaysFrom")));
+    }
+
     @Test
     void testFindBestTransactionPeriod() {
         long durationInDays = 7;
         Long sellerId = 1L;
-        Transaction transaction1 = new Transaction(); // Add necessary fields and values
-        transaction1.setTransactionDate(LocalDateTime.of(2024, 1, 1, 0, 0));
-        Transaction transaction2 = new Transaction();
-        transaction2.setTransactionDate(LocalDateTime.of(2024, 1, 2, 0, 0));
-        List<Transaction> transactions = List.of(transaction1, transaction2);
+        BestPeriod period = new BestPeriod(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 2, 0, 0), 2);
 
-        when(sellerRepository.findById(sellerId)).thenReturn(Optional.of(seller));
-        when(transactionRepository.findAllBySellerOrderByTransactionDateAsc(seller)).thenReturn(transactions);
+        when(bestPeriodEngine.find(eq(sellerId), eq(List.of(durationInDays)), eq(PeriodWeight.COUNT), any(BestPeriodAnalysisEvent.class)))
+                .thenReturn(Map.of(durationInDays, period));
 
-        PeriodDTO result = slidingWindowAnalysisService.findBestTransactionPeriod(durationInDays, sellerId);
+        PeriodDTO result = slidingWindowAnalysisService.findBestTransactionPeriod(durationInDays, sellerId, PeriodWeight.COUNT);
 
         assertNotNull(result);
-        assertNotNull(result.dateStart());
-        assertNotNull(result.dateEnd());
-        verify(sellerRepository).findById(sellerId);
-        verify(transactionRepository).findAllBySellerOrderByTransactionDateAsc(seller);
+        assertEquals("2024-01-01T00:00", result.dateStart());
+        assertEquals("2024-01-02T00:00", result.dateEnd());
+        verify(bestPeriodEngine).find(eq(sellerId), eq(List.of(durationInDays)), eq(PeriodWeight.COUNT), any(BestPeriodAnalysisEvent.class));
+        verify(sellerRepository, never()).existsById(sellerId);
     }
 
     @Test
@@ -143,10 +193,12 @@ class SlidingWindowAnalysisServiceTest {
         long durationInDays = 7;
         Long sellerId = 1L;
 
-        when(sellerRepository.findById(sellerId)).thenReturn(Optional.empty());
+        when(bestPeriodEngine.find(eq(sellerId), eq(List.of(durationInDays)), eq(PeriodWeight.COUNT), any(BestPeriodAnalysisEvent.class)))
+                .thenReturn(Map.of());
+        when(sellerRepository.existsById(sellerId)).thenReturn(false);
 
         ServiceException exception = assertThrows(ServiceException.class, () -> {
-            slidingWindowAnalysisService.findBestTransactionPeriod(durationInDays, sellerId);
+            slidingWindowAnalysisService.findBestTransactionPeriod(durationInDays, sellerId, PeriodWeight.COUNT);
         });
 
         assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
@@ -158,13 +210,121 @@ class SlidingWindowAnalysisServiceTest {
         long durationInDays = 7;
         Long sellerId = 1L;
 
-        when(sellerRepository.findById(sellerId)).thenReturn(Optional.of(seller));
-        when(transactionRepository.findAllBySellerOrderByTransactionDateAsc(seller)).thenReturn(Collections.emptyList());
+        when(bestPeriodEngine.find(eq(sellerId), eq(List.of(durationInDays)), eq(PeriodWeight.COUNT), any(BestPeriodAnalysisEvent.class)))
+                .thenReturn(Map.of());
+        when(sellerRepository.existsById(sellerId)).thenReturn(true);
 
         ServiceException exception = assertThrows(ServiceException.class, () -> {
-            slidingWindowAnalysisService.findBestTransactionPeriod(durationInDays, sellerId);
+            slidingWindowAnalysisService.findBestTransactionPeriod(durationInDays, sellerId, PeriodWeight.COUNT);
         });
 
         assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
     }
+
+    @Test
+    void testFindBestTransactionPeriodByAmount() {
+        BestPeriod period = new BestPeriod(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 2, 0, 0), 2);
+        when(bestPeriodEngine.find(eq(1L), eq(List.of(7L)), eq(PeriodWeight.AMOUNT), any(BestPeriodAnalysisEvent.class)))
+                .thenReturn(Map.of(7L, period));
+
+        PeriodDTO result = slidingWindowAnalysisService.findBestTransactionPeriod(7, 1L, PeriodWeight.AMOUNT);
+
+        assertEquals("2024-01-01T00:00", result.dateStart());
+    }
+
+    //оба движка получают только неотрицательные длины: отрицательная - 400 до обращения к движку
+    @Test
+    void testNegativeDurationIsBadRequest() {
+        ServiceException single = assertThrows(ServiceException.class,
+                () -> slidingWindowAnalysisService.findBestTransactionPeriod(-1, 1L, PeriodWeight.COUNT));
+        ServiceException several = assertThrows(ServiceException.class,
+                () -> slidingWindowAnalysisService.findBestTransactionPeriods(List.of(1L, -7L), 1L, PeriodWeight.COUNT));
+        ServiceException all = assertThrows(ServiceException.class,
+                () -> slidingWindowAnalysisService.findBestTransactionPeriodForAllSellers(-1));
+
+        assertEquals(ErrorCode.BAD_REQUEST, single.getErrorCode());
+        assertEquals(ErrorCode.BAD_REQUEST, several.getErrorCode());
+        assertEquals(ErrorCode.BAD_REQUEST, all.getErrorCode());
+        verifyNoInteractions(bestPeriodEngine);
+    }
+
+    @Test
+    void testFindBestTransactionPeriods() {
+        List<Long> durations = List.of(7L, 1L);
+        Map<Long, BestPeriod> periods = new LinkedHashMap<>();
+        periods.put(7L, new BestPeriod(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 6, 0, 0), 5));
+        periods.put(1L, new BestPeriod(LocalDateTime.of(2024, 1, 5, 0, 0), LocalDateTime.of(2024, 1, 6, 0, 0), 3));
+
+        when(bestPeriodEngine.find(eq(1L), eq(durations), eq(PeriodWeight.AMOUNT), any(BestPeriodAnalysisEvent.class))).thenReturn(periods);
+
+        Map<Long, PeriodDTO> result = slidingWindowAnalysisService.findBestTransactionPeriods(durations, 1L, PeriodWeight.AMOUNT);
+
+        assertEquals(List.of(7L, 1L), List.copyOf(result.keySet()));
+        assertEquals(new PeriodDTO("2024-01-05T00:00", "2024-01-06T00:00"), result.get(1L));
+        verify(sellerRepository, never()).existsById(1L);
+    }
+
+    @Test
+    void testFindBestTransactionPeriodsNoTransactions() {
+        List<Long> durations = List.of(1L, 7L);
+
+        when(bestPeriodEngine.find(eq(1L), eq(durations), eq(PeriodWeight.COUNT), any(BestPeriodAnalysisEvent.class))).thenReturn(Map.of());
+        when(sellerRepository.existsById(1L)).thenReturn(false);
+
+        ServiceException exception = assertThrows(ServiceException.class,
+                () -> slidingWindowAnalysisService.findBestTransactionPeriods(durations, 1L, PeriodWeight.COUNT));
+
+        assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    void testFindBestTransactionPeriodsRejectsEmptyAndTooManyDurations() {
+        List<Long> tooMany = LongStream.rangeClosed(1, 33).boxed().toList();
+
+        ServiceException empty = assertThrows(ServiceException.class,
+                () -> slidingWindowAnalysisService.findBestTransactionPeriods(List.of(), 1L, PeriodWeight.COUNT));
+        ServiceException overflow = assertThrows(ServiceException.class,
+                () -> slidingWindowAnalysisService.findBestTransactionPeriods(tooMany, 1L, PeriodWeight.COUNT));
+
+        assertEquals(ErrorCode.BAD_REQUEST, empty.getErrorCode());
+        assertEquals(ErrorCode.BAD_REQUEST, overflow.getErrorCode());
+        verifyNoInteractions(bestPeriodEngine);
+    }
+
+    @Test
+    void testFindBestTransactionPeriodForAllSellers() {
+        Map<Long, BestPeriod> periods = new LinkedHashMap<>();
+        periods.put(1L, new BestPeriod(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 2, 0, 0), 2));
+        periods.put(2L, new BestPeriod(LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 1, 0, 0), 1));
+
+        when(allSellersBestPeriodReport.run(7)).thenReturn(periods);
+
+        List<SellerPeriodDTO> result = slidingWindowAnalysisService.findBestTransactionPeriodForAllSellers(7);
+
+        assertEquals(2, result.size());
+        assertEquals(new SellerPeriodDTO(1L, "2024-01-01T00:00", "2024-01-02T00:00", 2), result.get(0));
+        assertEquals(2L, result.get(1).sellerId());
+    }
+
+    @Test
+    void testGetLeaderboard() {
+        LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, 1, 2, 0, 0);
+
+        when(sellerLeaderboard.top(startDate, endDate, 2))
+                .thenReturn(List.of(new SellerLeaderboard.Rank(2L, 150_050), new SellerLeaderboard.Rank(1L, 9_900)));
+
+        List<SellerRankDTO> result = slidingWindowAnalysisService.getLeaderboard(startDate.toString(), endDate.toString(), 2);
+
+        assertEquals(List.of(new SellerRankDTO(2L, 1500.5), new SellerRankDTO(1L, 99.0)), result);
+    }
+
+    @Test
+    void testGetLeaderboardRejectsInvalidLimit() {
+        ServiceException exception = assertThrows(ServiceException.class,
+                () -> slidingWindowAnalysisService.getLeaderboard("2024-01-01T00:00", "2024-01-02T00:00", 0));
+
+        assertEquals(ErrorCode.BAD_REQUEST, exception.getErrorCode());
+        verifyNoInteractions(sellerLeaderboard);
+    }
 }
@@ -0,0 +1,132 @@
+package ru.tveu.shiftcrm.core.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import ru.tveu.shiftcrm.api.dto.BulkLoadResultDTO;
+import ru.tveu.shiftcrm.api.dto.GenerateRequest;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Порции COPY меньше объема генерации, чтобы проверить загрузку в несколько транзакций.
+ */
+@SpringBootTest(properties = {
+        "shiftcrm.bulk-load.generator.enabled=true",
+        "shiftcrm.bulk-load.batch-rows=3000"
+})
+@ActiveProfiles("test")
+//схема из hibernate: у id транзакции нет default, который в миграциях дает последовательность
+@Sql(statements = "ALTER TABLE transaction ALTER COLUMN id SET DEFAULT nextval('transaction_id_seq')")
+class SyntheticDataGeneratorTest {
+
+    private static final int SELLERS = 100;
+    private static final long TRANSACTIONS = 10_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @Autowired
+    private SyntheticDataGenerator generator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> generatedSellers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Long sellerId : generatedSellers) {
+            jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ?", sellerId);
+            jdbcTemplate.update("DELETE FROM seller WHERE id = ?", sellerId);
+        }
+    }
+
+    @Test
+    void testGeneratesRequestedRowsInRange() {
+        BulkLoadResultDTO result = generate(1.0, Map.of(PaymentType.CARD, 1), 42L);
+
+        assertEquals(SELLERS, result.sellers());
+        assertEquals(TRANSACTIONS, result.transactions());
+        assertEquals(TRANSACTIONS, (long) jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM transaction WHERE seller_id = ANY (?) " +
+                        "AND transaction_date >= ? AND transaction_date < ? AND payment_type = 'CARD' AND amount > 0",
+                Long.class, generatedSellers.toArray(Long[]::new), START, END));
+    }
+
+    @Test
+    void testZipfSkewsTransactionsToTopSellers() {
+        generate(1.0, null, 42L);
+        List<Long> counts = countsBySeller();
+
+        //при s = 1 и 100 продавцах первый ранг получает около 19% транзакций, среднее - 1%
+        long average = TRANSACTIONS / SELLERS;
+        assertTrue(counts.get(0) > 10 * average, "Top seller has " + counts.get(0));
+    }
+
+    @Test
+    void testZeroExponentIsUniform() {
+        generate(0.0, null, 42L);
+        List<Long> counts = countsBySeller();
+
+        long average = TRANSACTIONS / SELLERS;
+        assertTrue(counts.get(0) < 2 * average, "Top seller has " + counts.get(0));
+    }
+
+    @Test
+    void testSameSeedGivesSameDistribution() {
+        generate(1.0, null, 7L);
+        List<Long> first = countsBySeller();
+        tearDown();
+        generatedSellers.clear();
+
+        generate(1.0, null, 7L);
+        assertEquals(first, countsBySeller());
+    }
+
+    @Test
+    void testEmptyRangeIsBadRequest() {
+        GenerateRequest request = GenerateRequest.builder()
+                .sellers(1)
+                .transactions(1)
+                .start(END.toString())
+                .end(START.toString())
+                .build();
+
+        ServiceException e = assertThrows(ServiceException.class, () -> generator.generate(request));
+        assertEquals(ErrorCode.BAD_REQUEST, e.getErrorCode());
+    }
+
+    private BulkLoadResultDTO generate(double exponent, Map<PaymentType, Integer> paymentMix, long seed) {
+        long maxSellerBefore = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM seller", Long.class);
+        BulkLoadResultDTO result = generator.generate(GenerateRequest.builder()
+                .sellers(SELLERS)
+                .transactions(TRANSACTIONS)
+                .zipfExponent(exponent)
+                .start(START.toString())
+                .end(END.toString())
+                .paymentMix(paymentMix)
+                .seed(seed)
+                .build());
+        generatedSellers.addAll(jdbcTemplate.queryForList("SELECT id FROM seller WHERE id > ?", Long.class, maxSellerBefore));
+        return result;
+    }
+
+    //число транзакций по продавцам по убыванию, продавцы без транзакций - нули
+    private List<Long> countsBySeller() {
+        return jdbcTemplate.queryForList("SELECT count(t.id) FROM seller s LEFT JOIN transaction t ON t.seller_id = s.id " +
+                        "WHERE s.id = ANY (?) GROUP BY s.id ORDER BY count(t.id) DESC",
+                Long.class, (Object) generatedSellers.toArray(Long[]::new));
+    }
+}
@@ -0,0 +1,76 @@
+package ru.tveu.shiftcrm.core.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.tveu.shiftcrm.core.cache.SellerTimeline;
+import ru.tveu.shiftcrm.core.cache.SellerTimelineCache;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class TimelineBestPeriodEngineTest {
+
+    @Mock
+    private SellerTimelineCache sellerTimelineCache;
+
+    @InjectMocks
+    private TimelineBestPeriodEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testPicksDensestWindow() {
+        SellerTimeline timeline = SellerTimeline.builder()
+                .add(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .add(LocalDateTime.of(2024, 2, 1, 10, 0))
+                .add(LocalDateTime.of(2024, 2, 1, 11, 0))
+                .add(LocalDateTime.of(2024, 2, 2, 9, 30, 0, 123_456_000))
+                .add(LocalDateTime.of(2024, 3, 1, 0, 0))
+                .build();
+        when(sellerTimelineCache.get(1L)).thenReturn(timeline);
+
+        BestPeriod period = engine.find(1L, 1);
+
+        assertEquals(LocalDateTime.of(2024, 2, 1, 10, 0), period.start());
+        assertEquals(LocalDateTime.of(2024, 2, 2, 9, 30, 0, 123_456_000), period.end());
+        assertEquals(3, period.transactionCount());
+    }
+
+    @Test
+    void testFindsEveryDurationByAmount() {
+        SellerTimeline timeline = SellerTimeline.builder()
+                .add(LocalDateTime.of(2024, 1, 1, 0, 0), 10)
+                .add(LocalDateTime.of(2024, 1, 1, 1, 0), 10)
+                .add(LocalDateTime.of(2024, 1, 1, 2, 0), 10)
+                .add(LocalDateTime.of(2024, 1, 3, 0, 0), 500)
+                .build();
+        when(sellerTimelineCache.get(1L)).thenReturn(timeline);
+
+        Map<Long, BestPeriod> byCount = engine.find(1L, List.of(1L, 3L), PeriodWeight.COUNT);
+        Map<Long, BestPeriod> byAmount = engine.find(1L, List.of(1L, 3L), PeriodWeight.AMOUNT);
+
+        assertEquals(List.of(1L, 3L), List.copyOf(byCount.keySet()));
+        assertEquals(LocalDateTime.of(2024, 1, 1, 2, 0), byCount.get(1L).end());
+        assertEquals(4, byCount.get(3L).transactionCount());
+        assertEquals(new BestPeriod(LocalDateTime.of(2024, 1, 3, 0, 0), LocalDateTime.of(2024, 1, 3, 0, 0), 1), byAmount.get(1L));
+        assertEquals(4, byAmount.get(3L).transactionCount());
+    }
+
+    @Test
+    void testEmptyTimelineHasNoPeriod() {
+        when(sellerTimelineCache.get(1L)).thenReturn(SellerTimeline.EMPTY);
+
+        assertNull(engine.find(1L, 7));
+        assertTrue(engine.find(1L, List.of(1L, 7L), PeriodWeight.AMOUNT).isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package ru.tveu.shiftcrm.core.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkItemResultDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkResultDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Пакетная загрузка на настоящей БД: ошибка вставки на flush() откатывает только свой чанк,
+ * а строки прошлых чанков остаются в отчете со своими id.
+ */
+@SpringBootTest(properties = "shiftcrm.transaction.bulk.chunk-size=2")
+@ActiveProfiles("test")
+class TransactionBulkCreateTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @SpyBean
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Seller kept;
+    private Seller deleted;
+
+    @BeforeEach
+    void setUp() {
+        kept = sellerRepository.save(Seller.builder()
+                .name("Bulk Seller")
+                .contactInfo("bulk@example.com")
+                .build());
+        deleted = sellerRepository.save(Seller.builder()
+                .name("Deleted Bulk Seller")
+                .contactInfo("deleted@example.com")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id IN (?, ?)", kept.getId(), deleted.getId());
+        jdbcTemplate.update("DELETE FROM seller WHERE id IN (?, ?)", kept.getId(), deleted.getId());
+    }
+
+    //продавца удаляют между проверкой чанка и вставкой: FK падает на flush()
+    @Test
+    void testSellerDeletedDuringBulkRollsBackOnlyItsChunk() {
+        AtomicInteger checks = new AtomicInteger();
+        doAnswer(invocation -> {
+            Object existing = invocation.callRealMethod();
+            if (checks.incrementAndGet() == 2) {
+                //отдельный поток - отдельное соединение с автокоммитом, вне транзакции чанка
+                CompletableFuture.runAsync(() ->
+                        jdbcTemplate.update("DELETE FROM seller WHERE id = ?", deleted.getId())).join();
+            }
+            return existing;
+        }).when(sellerRepository).findExistingIds(anyCollection());
+
+        TransactionBulkResultDTO result = transactionService.createAll(List.of(
+                request(kept), request(kept),
+                request(deleted), request(deleted)).iterator());
+
+        assertEquals(4, result.received());
+        assertEquals(2, result.created());
+        assertEquals(2, result.failed());
+        List<TransactionBulkItemResultDTO> items = result.items();
+        assertNotNull(items.get(0).id());
+        assertNotNull(items.get(1).id());
+        for (TransactionBulkItemResultDTO item : items.subList(2, 4)) {
+            assertNull(item.id());
+            assertTrue(item.error().startsWith(ErrorMessage.BULK_CHUNK_ROLLED_BACK), item.error());
+        }
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM transaction WHERE seller_id = ?",
+                Integer.class, kept.getId()));
+    }
+
+    private static TransactionCreateRequest request(Seller seller) {
+        return new TransactionCreateRequest(seller.getId(), 10.0, PaymentType.CARD.name());
+    }
+}
@@ -0,0 +1,94 @@
+package ru.tveu.shiftcrm.core.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class TransactionCreateStatementCountTest {
+
+    private static final int CREATES = 200;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Seller seller;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        seller = sellerRepository.save(Seller.builder()
+                .name("Statement Seller")
+                .contactInfo("statements@example.com")
+                .build());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ?", seller.getId());
+        sellerRepository.deleteById(seller.getId());
+    }
+
+    @Test
+    void createDoesNotSelectSeller() {
+        TransactionCreateRequest createRequest = new TransactionCreateRequest(seller.getId(), 10.0, PaymentType.CARD.name());
+
+        //прежний путь: findById продавца перед каждой вставкой
+        statistics.clear();
+        for (int i = 0; i < CREATES; i++) {
+            sellerRepository.findById(seller.getId());
+            transactionService.create(createRequest);
+        }
+        double statementsBefore = (double) statistics.getPrepareStatementCount() / CREATES;
+
+        statistics.clear();
+        for (int i = 0; i < CREATES; i++) {
+            transactionService.create(createRequest);
+        }
+        double statementsAfter = (double) statistics.getPrepareStatementCount() / CREATES;
+
+        log.info("SQL statements per create: before {}, after {}", statementsBefore, statementsAfter);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statementsAfter).isLessThan(1.1);
+        assertThat(statementsBefore - statementsAfter).isGreaterThan(0.9);
+    }
+
+    @Test
+    void createForUnknownSellerIsReportedAsNotFound() {
+        TransactionCreateRequest createRequest = new TransactionCreateRequest(Long.MAX_VALUE, 10.0, PaymentType.CARD.name());
+
+        ServiceException exception = assertThrows(ServiceException.class, () -> transactionService.create(createRequest));
+
+        assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
+    }
+}
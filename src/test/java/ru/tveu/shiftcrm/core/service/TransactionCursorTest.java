@@ -0,0 +1,35 @@
+package ru.tveu.shiftcrm.core.service;
+
+import org.junit.jupiter.api.Test;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCursorTest {
+
+    @Test
+    void testCursorRoundTrip() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123_456_000), 42L);
+
+        String token = cursor.encode();
+
+        assertFalse(token.contains("="));
+        assertEquals(cursor, TransactionCursor.decode(token));
+    }
+
+    @Test
+    void testMalformedCursorIsBadRequest() {
+        String withoutSeparator = Base64.getUrlEncoder().encodeToString("2024-05-01T10:15".getBytes(StandardCharsets.UTF_8));
+        String badDate = Base64.getUrlEncoder().encodeToString("yesterday|1".getBytes(StandardCharsets.UTF_8));
+
+        for (String token : new String[]{"not base64!", withoutSeparator, badDate}) {
+            ServiceException exception = assertThrows(ServiceException.class, () -> TransactionCursor.decode(token));
+            assertEquals(ErrorCode.BAD_REQUEST, exception.getErrorCode());
+        }
+    }
+}
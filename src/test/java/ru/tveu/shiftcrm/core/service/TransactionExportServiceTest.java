@@ -0,0 +1,163 @@
+package ru.tveu.shiftcrm.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "shiftcrm.transaction.export.fetch-size=100")
+@ActiveProfiles("test")
+class TransactionExportServiceTest {
+
+    private static final int TRANSACTIONS = 5;
+    private static final int LARGE_EXPORT = 100_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Autowired
+    private TransactionExportService exportService;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Seller seller;
+
+    @BeforeEach
+    void setUp() {
+        seller = sellerRepository.save(Seller.builder()
+                .name("Export Seller")
+                .contactInfo("export@example.com")
+                .build());
+        //вставляем в обратном порядке: выгрузка обязана сортировать по дате
+        for (int i = TRANSACTIONS - 1; i >= 0; i--) {
+            jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                            "VALUES (nextval('transaction_id_seq'), ?, ?, ?, ?)",
+                    seller.getId(), 1_000_000.5 + i, PaymentType.CARD.name(), START.plusDays(i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ?", seller.getId());
+        sellerRepository.deleteById(seller.getId());
+    }
+
+    @Test
+    void testCsvExportContainsAllTransactionsInDateOrder() throws IOException {
+        List<String> lines = lines(export(null, null, ExportFormat.CSV));
+
+        assertEquals(TRANSACTIONS + 1, lines.size());
+        assertEquals(TransactionExportService.CSV_HEADER, lines.get(0));
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            String[] values = lines.get(i + 1).split(",");
+            assertEquals(String.valueOf(seller.getId()), values[1]);
+            assertEquals(BigDecimal.valueOf(1_000_000.5 + i).toPlainString(), values[2]);
+            assertEquals(PaymentType.CARD.name(), values[3]);
+            assertEquals(START.plusDays(i).toString(), values[4]);
+        }
+    }
+
+    //без экспоненты: Double.toString дал бы 1000000.5 -> 1.0000005E6
+    @Test
+    void testCsvAmountIsPlain() throws IOException {
+        List<String> lines = lines(export(null, null, ExportFormat.CSV));
+
+        assertEquals("1000000.5", lines.get(1).split(",")[2]);
+    }
+
+    @Test
+    void testNdjsonExportWithInclusiveRange() throws IOException {
+        String start = START.plusDays(1).toString();
+        String end = START.plusDays(3).toString();
+
+        List<String> lines = lines(export(start, end, ExportFormat.NDJSON));
+
+        assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            TransactionDTO transaction = objectMapper.readValue(lines.get(i), TransactionDTO.class);
+            assertEquals(seller.getId(), transaction.sellerId());
+            assertEquals(START.plusDays(i + 1).toString(), transaction.transactionDate());
+        }
+    }
+
+    @Test
+    void testUnknownSeller() {
+        ServiceException exception = assertThrows(ServiceException.class,
+                () -> exportService.prepare(-1L, null, null, ExportFormat.CSV));
+
+        assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    void testInvalidRange() {
+        assertEquals(ErrorCode.BAD_REQUEST, assertThrows(ServiceException.class,
+                () -> exportService.prepare(seller.getId(), "2024-02-01T00:00", "2024-01-01T00:00", ExportFormat.CSV))
+                .getErrorCode());
+        assertEquals(ErrorCode.BAD_REQUEST, assertThrows(ServiceException.class,
+                () -> exportService.prepare(seller.getId(), "yesterday", null, ExportFormat.CSV))
+                .getErrorCode());
+    }
+
+    //выгрузка больше fetch size во много раз: строки пишутся по мере чтения курсора, ничего не копится
+    @Test
+    void testLargeExportIsStreamed() throws IOException {
+        jdbcTemplate.update("INSERT INTO transaction (id, seller_id, amount, payment_type, transaction_date) " +
+                        "SELECT nextval('transaction_id_seq'), ?, 10.0, 'CASH', TIMESTAMP '2023-01-01' + g * INTERVAL '1 second' " +
+                        "FROM generate_series(1, ?) g",
+                seller.getId(), LARGE_EXPORT);
+        LineCountingOutputStream out = new LineCountingOutputStream();
+
+        exportService.prepare(seller.getId(), null, null, ExportFormat.NDJSON).writeTo(out);
+
+        assertEquals(LARGE_EXPORT + TRANSACTIONS, out.lines);
+    }
+
+    private String export(String startDate, String endDate, ExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.prepare(seller.getId(), startDate, endDate, format).writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> lines(String body) {
+        assertTrue(body.endsWith("\n"));
+        return new ArrayList<>(body.lines().toList());
+    }
+
+    private static final class LineCountingOutputStream extends OutputStream {
+
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+    }
+}
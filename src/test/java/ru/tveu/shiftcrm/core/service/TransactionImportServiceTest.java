@@ -0,0 +1,114 @@
+package ru.tveu.shiftcrm.core.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import ru.tveu.shiftcrm.api.dto.BulkLoadResultDTO;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.repository.SellerRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "shiftcrm.bulk-load.import.enabled=true")
+@ActiveProfiles("test")
+//схема из hibernate: у id транзакции нет default, который в миграциях дает последовательность
+@Sql(statements = "ALTER TABLE transaction ALTER COLUMN id SET DEFAULT nextval('transaction_id_seq')")
+class TransactionImportServiceTest {
+
+    private static final long UNKNOWN_SELLER_ID = -1L;
+
+    @Autowired
+    private TransactionImportService importService;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Seller seller;
+
+    @BeforeEach
+    void setUp() {
+        seller = sellerRepository.save(Seller.builder()
+                .name("Import Seller")
+                .contactInfo("import@example.com")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE seller_id = ?", seller.getId());
+        sellerRepository.deleteById(seller.getId());
+    }
+
+    @Test
+    void testImportsAllRows() throws IOException {
+        BulkLoadResultDTO result = importCsv(TransactionImportService.CSV_HEADER + "\n" +
+                seller.getId() + ",100.50,CARD,2024-01-01T10:00:00\n" +
+                "\n" +
+                seller.getId() + ",20,CASH,2024-01-02T11:30\n");
+
+        assertEquals(1, result.sellers());
+        assertEquals(2, result.transactions());
+        assertEquals(120.5, jdbcTemplate.queryForObject("SELECT sum(amount) FROM transaction WHERE seller_id = ?",
+                Double.class, seller.getId()));
+    }
+
+    //файл /transaction/export загружается обратно как есть, его id заменяются новыми
+    @Test
+    void testImportsExportFormat() throws IOException {
+        BulkLoadResultDTO result = importCsv(TransactionExportService.CSV_HEADER + "\n" +
+                "999999," + seller.getId() + ",15.25,TRANSFER,2024-03-01T09:15\n");
+
+        assertEquals(1, result.transactions());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM transaction WHERE id = 999999", Integer.class));
+    }
+
+    @Test
+    void testWrongHeaderIsBadRequest() {
+        ServiceException e = assertThrows(ServiceException.class, () -> importCsv("seller,amount\n"));
+
+        assertEquals(ErrorCode.BAD_REQUEST, e.getErrorCode());
+    }
+
+    @Test
+    void testInvalidRowRollsBackFile() {
+        ServiceException e = assertThrows(ServiceException.class, () -> importCsv(TransactionImportService.CSV_HEADER + "\n" +
+                seller.getId() + ",10,CARD,2024-01-01T10:00\n" +
+                seller.getId() + ",10,CHEQUE,2024-01-01T10:00\n"));
+
+        assertEquals(ErrorCode.BAD_REQUEST, e.getErrorCode());
+        assertTrue(e.getMessage().contains("row 3"), e.getMessage());
+        assertEquals(0, countBySeller());
+    }
+
+    @Test
+    void testUnknownSellerIsNotFound() {
+        ServiceException e = assertThrows(ServiceException.class, () -> importCsv(TransactionImportService.CSV_HEADER + "\n" +
+                seller.getId() + ",10,CARD,2024-01-01T10:00\n" +
+                UNKNOWN_SELLER_ID + ",10,CARD,2024-01-01T10:00\n"));
+
+        assertEquals(ErrorCode.OBJECT_NOT_FOUND, e.getErrorCode());
+        assertEquals(0, countBySeller());
+    }
+
+    private BulkLoadResultDTO importCsv(String csv) throws IOException {
+        return importService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private int countBySeller() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM transaction WHERE seller_id = ?", Integer.class, seller.getId());
+    }
+}
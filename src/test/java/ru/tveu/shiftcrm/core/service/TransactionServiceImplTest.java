@@ -1,28 +1,45 @@
 package ru.tveu.shiftcrm.core.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.tveu.shiftcrm.api.dto.TransactionBulkResultDTO;
 import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
 import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.api.dto.TransactionSliceDTO;
 import ru.tveu.shiftcrm.core.entity.PaymentType;
 import ru.tveu.shiftcrm.core.entity.Seller;
 import ru.tveu.shiftcrm.core.entity.Transaction;
+import ru.tveu.shiftcrm.core.event.TransactionCreatedEvent;
 import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ErrorMessage;
 import ru.tveu.shiftcrm.core.exception.ServiceException;
 import ru.tveu.shiftcrm.core.mapper.TransactionMapper;
 import ru.tveu.shiftcrm.core.repository.SellerRepository;
 import ru.tveu.shiftcrm.core.repository.TransactionRepository;
+import ru.tveu.shiftcrm.core.repository.projection.TransactionView;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -40,11 +57,24 @@ class TransactionServiceImplTest {
     @Mock
     private SellerRepository sellerRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
     private Seller seller;
     private Transaction transaction;
+    private TransactionView transactionView;
     private TransactionDTO transactionDTO;
     private TransactionCreateRequest createRequest;
 
@@ -63,6 +93,8 @@ class TransactionServiceImplTest {
                 .paymentType(PaymentType.CARD)
                 .build();
 
+        transactionView = new TransactionView(1L, seller.getId(), 100.0, PaymentType.CARD, LocalDateTime.of(2024, 1, 1, 10, 0));
+
         transactionDTO = TransactionDTO.builder()
                 .id(1L)
                 .sellerId(seller.getId())
@@ -75,6 +107,8 @@ class TransactionServiceImplTest {
                 .amount(100.0)
                 .paymentType(PaymentType.CARD.toString())
                 .build();
+
+        ReflectionTestUtils.setField(transactionService, "bulkChunkSize", 2);
     }
 
     @Test
@@ -88,61 +122,204 @@ class TransactionServiceImplTest {
         assertNotNull(result);
         assertEquals(transactionDTO, result);
         verify(transactionRepository, times(1)).save(transaction);
+        verify(eventPublisher).publishEvent(TransactionCreatedEvent.of(transaction));
+    }
+
+    @Test
+    void testCreateTransaction_SellerForeignKeyViolation_ShouldThrowNotFound() {
+        when(transactionMapper.map(createRequest)).thenReturn(transaction);
+        when(transactionRepository.save(transaction)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("insert violates foreign key", null, Transaction.SELLER_FOREIGN_KEY)));
+
+        ServiceException exception = assertThrows(ServiceException.class, () -> {
+            transactionService.create(createRequest);
+        });
+
+        assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
+        assertEquals(ErrorMessage.SELLER_NOT_FOUND + seller.getId(), exception.getMessage());
+        verify(transactionMapper, times(0)).map(any(Transaction.class));
+        verify(eventPublisher, times(0)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void testCreateAllTransactions_ReportsPerItemResults() {
+        TransactionCreateRequest unknownSeller = new TransactionCreateRequest(2L, 10.0, PaymentType.CASH.toString());
+        TransactionCreateRequest unknownPaymentType = new TransactionCreateRequest(1L, 10.0, "BARTER");
+        Transaction second = Transaction.builder().id(2L).seller(seller).amount(100.0).paymentType(PaymentType.CARD).build();
+
+        when(sellerRepository.findExistingIds(any())).thenReturn(Set.of(1L));
+        when(sellerRepository.getReferenceById(1L)).thenReturn(seller);
+        when(transactionMapper.map(createRequest, seller)).thenReturn(transaction, second);
+
+        TransactionBulkResultDTO result = transactionService.createAll(
+                List.of(createRequest, unknownSeller, unknownPaymentType, createRequest).iterator());
+
+        assertEquals(4, result.received());
+        assertEquals(2, result.created());
+        assertEquals(2, result.failed());
+        assertEquals(1L, result.items().get(0).id());
+        assertEquals(ErrorMessage.SELLER_NOT_FOUND + 2L, result.items().get(1).error());
+        assertEquals(ErrorMessage.UNKNOWN_PAYMENT_TYPE + "BARTER", result.items().get(2).error());
+        assertEquals(2L, result.items().get(3).id());
+        verify(sellerRepository, times(2)).findExistingIds(any());
+        verify(transactionRepository, times(2)).saveAll(any());
+        verify(entityManager, times(2)).clear();
+        verify(eventPublisher, times(2)).publishEvent(any(TransactionCreatedEvent.class));
+    }
+
+    @Test
+    void testCreateAllTransactions_ChunkFailureRollsBackOnlyThatChunk() {
+        Transaction second = Transaction.builder().id(2L).seller(seller).amount(100.0).paymentType(PaymentType.CARD).build();
+
+        when(sellerRepository.findExistingIds(any())).thenReturn(Set.of(1L));
+        when(sellerRepository.getReferenceById(1L)).thenReturn(seller);
+        when(transactionMapper.map(createRequest, seller)).thenReturn(transaction, second);
+        when(transactionRepository.saveAll(any())).thenReturn(List.of())
+                .thenThrow(new DataIntegrityViolationException("deadlock detected"));
+
+        TransactionBulkResultDTO result = transactionService.createAll(
+                List.of(createRequest, createRequest, createRequest, createRequest).iterator());
+
+        assertEquals(4, result.received());
+        assertEquals(2, result.created());
+        assertEquals(2, result.failed());
+        assertEquals(1L, result.items().get(0).id());
+        assertEquals(2L, result.items().get(1).id());
+        assertEquals(ErrorMessage.BULK_CHUNK_ROLLED_BACK + "deadlock detected", result.items().get(2).error());
+        assertNull(result.items().get(3).id());
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(eventPublisher, times(2)).publishEvent(any(TransactionCreatedEvent.class));
+    }
+
+    @Test
+    void testCreateAllTransactions_AppliesBeanValidation() {
+        TransactionCreateRequest blankPaymentType = new TransactionCreateRequest(1L, 10.0, " ");
+
+        TransactionBulkResultDTO result = transactionService.createAll(List.of(blankPaymentType).iterator());
+
+        assertEquals(0, result.created());
+        assertEquals("paymentType must not be blank", result.items().get(0).error());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testCreateAllTransactions_SellerIdNull() {
+        TransactionCreateRequest withoutSeller = new TransactionCreateRequest(null, 10.0, PaymentType.CASH.toString());
+
+        TransactionBulkResultDTO result = transactionService.createAll(List.of(withoutSeller).iterator());
+
+        assertEquals(0, result.created());
+        assertEquals(ErrorMessage.SELLER_ID_NULL, result.items().get(0).error());
+        verify(sellerRepository, times(0)).findExistingIds(any());
     }
 
     @Test
     void testGetTransactionById_Success() {
-        when(transactionRepository.findById(1L)).thenReturn(Optional.of(transaction));
-        when(transactionMapper.map(transaction)).thenReturn(transactionDTO);
+        when(transactionRepository.findViewById(1L)).thenReturn(Optional.of(transactionView));
+        when(transactionMapper.map(transactionView)).thenReturn(transactionDTO);
 
         TransactionDTO result = transactionService.get(1L);
 
         assertNotNull(result);
         assertEquals(transactionDTO, result);
-        verify(transactionRepository, times(1)).findById(1L);
+        verify(transactionRepository, times(1)).findViewById(1L);
+        verify(transactionRepository, never()).findById(any());
     }
 
     @Test
     void testGetTransactionById_NotFound_ShouldThrowException() {
-        when(transactionRepository.findById(1L)).thenReturn(Optional.empty());
+        when(transactionRepository.findViewById(1L)).thenReturn(Optional.empty());
 
         ServiceException exception = assertThrows(ServiceException.class, () -> {
             transactionService.get(1L);
         });
 
         assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
-        verify(transactionRepository, times(1)).findById(1L);
+        verify(transactionRepository, times(1)).findViewById(1L);
     }
 
     @Test
     void testGetAllTransactionsBySellerId_Success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Transaction> transactionPage = new PageImpl<>(List.of(transaction));
+        Page<TransactionView> transactionPage = new PageImpl<>(List.of(transactionView));
 
-        when(sellerRepository.findById(1L)).thenReturn(Optional.of(seller));
-        when(transactionRepository.findAllBySeller(seller, pageable)).thenReturn(transactionPage);
-        when(transactionMapper.map(transactionPage)).thenReturn(new PageImpl<>(List.of(transactionDTO)));
+        when(transactionRepository.findViewsBySellerId(1L, pageable)).thenReturn(transactionPage);
+        when(transactionMapper.map(transactionView)).thenReturn(transactionDTO);
 
         Page<TransactionDTO> result = transactionService.getAllBySellerId(1L, pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
         assertEquals(transactionDTO, result.getContent().get(0));
-        verify(sellerRepository, times(1)).findById(1L);
-        verify(transactionRepository, times(1)).findAllBySeller(seller, pageable);
+        verify(transactionRepository, times(1)).findViewsBySellerId(1L, pageable);
+        verify(sellerRepository, never()).findById(any());
+        verify(sellerRepository, never()).existsById(any());
     }
 
     @Test
     void testGetAllTransactionsBySellerId_SellerNotFound_ShouldThrowException() {
         Pageable pageable = PageRequest.of(0, 10);
 
-        when(sellerRepository.findById(1L)).thenReturn(Optional.empty());
+        when(transactionRepository.findViewsBySellerId(1L, pageable)).thenReturn(Page.empty(pageable));
+        when(sellerRepository.existsById(1L)).thenReturn(false);
 
         ServiceException exception = assertThrows(ServiceException.class, () -> {
             transactionService.getAllBySellerId(1L, pageable);
         });
 
         assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
-        verify(transactionRepository, times(0)).findAllBySeller(any(Seller.class), any(Pageable.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetAllBySellerIdAfter_FirstSliceReturnsCursorOfLastRow() {
+        TransactionView second = new TransactionView(2L, 1L, 50.0, PaymentType.CASH, LocalDateTime.of(2024, 1, 1, 12, 0));
+
+        when(transactionRepository.findViewsBySellerIdFirst(1L, PageRequest.ofSize(2)))
+                .thenReturn(new SliceImpl<>(List.of(transactionView, second), PageRequest.ofSize(2), true));
+        when(transactionMapper.map(any(TransactionView.class))).thenReturn(transactionDTO);
+
+        TransactionSliceDTO result = transactionService.getAllBySellerIdAfter(1L, null, 2);
+
+        assertEquals(2, result.size());
+        assertTrue(result.hasNext());
+        assertEquals(new TransactionCursor(second.transactionDate(), 2L), TransactionCursor.decode(result.nextCursor()));
+        verify(sellerRepository, never()).existsById(1L);
+    }
+
+    @Test
+    void testGetAllBySellerIdAfter_LastSliceHasNoCursor() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2024, 1, 1, 12, 0), 2L);
+
+        when(transactionRepository.findViewsBySellerIdAfter(1L, cursor.transactionDate(), 2L, PageRequest.ofSize(10)))
+                .thenReturn(new SliceImpl<>(List.of(transactionView), PageRequest.ofSize(10), false));
+        when(transactionMapper.map(transactionView)).thenReturn(transactionDTO);
+
+        TransactionSliceDTO result = transactionService.getAllBySellerIdAfter(1L, cursor.encode(), 10);
+
+        assertEquals(List.of(transactionDTO), result.content());
+        assertFalse(result.hasNext());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void testGetAllBySellerIdAfter_EmptySliceOfUnknownSeller_ShouldThrowException() {
+        when(transactionRepository.findViewsBySellerIdFirst(1L, PageRequest.ofSize(10)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(10), false));
+        when(sellerRepository.existsById(1L)).thenReturn(false);
+
+        ServiceException exception = assertThrows(ServiceException.class,
+                () -> transactionService.getAllBySellerIdAfter(1L, null, 10));
+
+        assertEquals(ErrorCode.OBJECT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    void testGetAllBySellerIdAfter_InvalidSize_ShouldThrowException() {
+        ServiceException exception = assertThrows(ServiceException.class,
+                () -> transactionService.getAllBySellerIdAfter(1L, null, 0));
+
+        assertEquals(ErrorCode.BAD_REQUEST, exception.getErrorCode());
+        verifyNoInteractions(transactionRepository);
+    }
+}
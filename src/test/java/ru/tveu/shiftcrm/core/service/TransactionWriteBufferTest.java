@@ -0,0 +1,208 @@
+package ru.tveu.shiftcrm.core.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.tveu.shiftcrm.api.dto.TransactionCreateRequest;
+import ru.tveu.shiftcrm.api.dto.TransactionDTO;
+import ru.tveu.shiftcrm.core.entity.PaymentType;
+import ru.tveu.shiftcrm.core.entity.Seller;
+import ru.tveu.shiftcrm.core.entity.Transaction;
+import ru.tveu.shiftcrm.core.exception.ErrorCode;
+import ru.tveu.shiftcrm.core.exception.ServiceException;
+import ru.tveu.shiftcrm.core.mapper.TransactionMapper;
+import ru.tveu.shiftcrm.core.repository.TransactionRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TransactionWriteBufferTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionMapper transactionMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionWriteBuffer writeBuffer;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(transactionMapper.map(any(TransactionCreateRequest.class))).thenAnswer(invocation -> {
+            TransactionCreateRequest request = invocation.getArgument(0);
+            return Transaction.builder()
+                    .seller(Seller.builder().id(request.sellerId()).build())
+                    .amount(request.amount())
+                    .paymentType(PaymentType.valueOf(request.paymentType()))
+                    .build();
+        });
+        when(transactionMapper.map(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            return TransactionDTO.builder()
+                    .id(transaction.getId())
+                    .sellerId(transaction.getSeller().getId())
+                    .amount(transaction.getAmount())
+                    .paymentType(transaction.getPaymentType())
+                    .build();
+        });
+        when(transactionRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(transaction -> transaction.setId(ids.incrementAndGet()));
+            return transactions;
+        });
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(ids.incrementAndGet());
+            return transaction;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writeBuffer.isRunning()) {
+            writeBuffer.stop();
+        }
+    }
+
+    @Test
+    void testFullBatchIsCommittedOnce() throws Exception {
+        writeBuffer = buffer(100, 3, 10_000);
+        writeBuffer.start();
+
+        List<CompletableFuture<TransactionDTO>> results = List.of(
+                writeBuffer.submit(request(1L)),
+                writeBuffer.submit(request(1L)),
+                writeBuffer.submit(request(2L)));
+
+        for (CompletableFuture<TransactionDTO> result : results) {
+            assertNotNull(result.get(5, TimeUnit.SECONDS).id());
+        }
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(transactionRepository, times(1)).saveAll(any());
+        verify(eventPublisher, times(3)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void testPartialBatchIsCommittedAfterMaxDelay() throws Exception {
+        writeBuffer = buffer(100, 500, 5);
+        writeBuffer.start();
+
+        TransactionDTO result = writeBuffer.write(request(1L));
+
+        assertEquals(1L, result.id());
+    }
+
+    @Test
+    void testFullQueueIsRejected() {
+        writeBuffer = buffer(1, 500, 10_000);
+        writeBuffer.start();
+        writeBuffer.submit(request(1L));
+
+        ServiceException exception = assertThrows(ServiceException.class, () -> writeBuffer.submit(request(1L)));
+
+        assertEquals(ErrorCode.TOO_MANY_REQUESTS, exception.getErrorCode());
+    }
+
+    @Test
+    void testStoppedBufferIsUnavailable() {
+        writeBuffer = buffer(100, 500, 10);
+
+        ServiceException exception = assertThrows(ServiceException.class, () -> writeBuffer.submit(request(1L)));
+
+        assertEquals(ErrorCode.SERVICE_UNAVAILABLE, exception.getErrorCode());
+    }
+
+    @Test
+    void testStopDrainsPendingTransactions() throws Exception {
+        writeBuffer = buffer(100, 500, 10_000);
+        writeBuffer.start();
+        CompletableFuture<TransactionDTO> first = writeBuffer.submit(request(1L));
+        CompletableFuture<TransactionDTO> second = writeBuffer.submit(request(1L));
+
+        writeBuffer.stop();
+
+        assertNotNull(first.get(1, TimeUnit.SECONDS).id());
+        assertNotNull(second.get(1, TimeUnit.SECONDS).id());
+        assertFalse(writeBuffer.isRunning());
+    }
+
+    @Test
+    void testForeignKeyViolationFailsOnlyItsOwnRequest() throws Exception {
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("insert violates foreign key", null, Transaction.SELLER_FOREIGN_KEY));
+        doThrow(violation).when(transactionRepository).saveAll(any());
+        doAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            if (transaction.getSeller().getId() == 404L) {
+                throw violation;
+            }
+            transaction.setId(ids.incrementAndGet());
+            return transaction;
+        }).when(transactionRepository).save(any(Transaction.class));
+        writeBuffer = buffer(100, 2, 10_000);
+        writeBuffer.start();
+
+        CompletableFuture<TransactionDTO> valid = writeBuffer.submit(request(1L));
+        CompletableFuture<TransactionDTO> unknownSeller = writeBuffer.submit(request(404L));
+
+        assertNotNull(valid.get(5, TimeUnit.SECONDS).id());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> unknownSeller.get(5, TimeUnit.SECONDS));
+        assertEquals(ErrorCode.OBJECT_NOT_FOUND, ((ServiceException) exception.getCause()).getErrorCode());
+    }
+
+    //слушатель падает уже после коммита: ответы приходят, писатель продолжает разбирать очередь
+    @Test
+    void testFailingListenerDoesNotStopWriter() throws Exception {
+        doThrow(new IllegalStateException("listener failed")).when(eventPublisher).publishEvent(any(Object.class));
+        writeBuffer = buffer(100, 2, 10_000);
+        writeBuffer.start();
+
+        CompletableFuture<TransactionDTO> first = writeBuffer.submit(request(1L));
+        CompletableFuture<TransactionDTO> second = writeBuffer.submit(request(2L));
+        assertNotNull(first.get(5, TimeUnit.SECONDS).id());
+        assertNotNull(second.get(5, TimeUnit.SECONDS).id());
+
+        CompletableFuture<TransactionDTO> third = writeBuffer.submit(request(1L));
+        CompletableFuture<TransactionDTO> fourth = writeBuffer.submit(request(2L));
+        assertNotNull(third.get(5, TimeUnit.SECONDS).id());
+        assertNotNull(fourth.get(5, TimeUnit.SECONDS).id());
+    }
+
+    private TransactionWriteBuffer buffer(int capacity, int batchSize, long maxDelayMillis) {
+        return new TransactionWriteBuffer(transactionRepository, transactionMapper, transactionTemplate, eventPublisher,
+                capacity, batchSize, maxDelayMillis, 5_000);
+    }
+
+    private TransactionCreateRequest request(Long sellerId) {
+        return new TransactionCreateRequest(sellerId, 100.0, PaymentType.CARD.name());
+    }
+}